@@ -0,0 +1,16 @@
+package bench;
+
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.io.IOException;
+
+/**
+ * Runs the benchmarks. Any arguments are passed on to JMH, e.g. a regular expression such as
+ * "StandardSudokuGrid" to run only some of the benchmarks, or "-p corpus=HARD" to run only the
+ * hard puzzles.
+ */
+public class BenchmarkMain {
+  public static void main(String[] args) throws IOException, RunnerException {
+    org.openjdk.jmh.Main.main(args);
+  }
+}
@@ -0,0 +1,70 @@
+package bench;
+
+import main.grid.model.BitboardSudokuGrid;
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+import main.solver.BitmaskBacktrackingSolver;
+
+/**
+ * The puzzles that the benchmarks run over, grouped by how hard they are to solve.
+ *
+ * <p>Easy puzzles need only singles, medium puzzles need locked candidates, subsets, or fish, and
+ * hard puzzles are the ones that defeat human-style techniques or naive backtracking (Arto
+ * Inkala's puzzle, a 17-clue puzzle, and a puzzle built to be adversarial for brute force).</p>
+ */
+public enum PuzzleCorpus {
+  EASY(
+      ".41729.3.769..34.2.3264.7194.39..17.6.7..49.319537..24214567398376.9.541958431267",
+      "318..54.6...6.381...6.8.5.3864952137123476958795318264.3.5..78......73.5....39641",
+      "762..8..198......615.....87478..3169526..98733198..425835..1692297685314641932758",
+      ".49132....81479...327685914.96.518...75.28....38.46..5853267...712894563964513..."),
+  MEDIUM(
+      ".76.9..2.2..7.........4...3193....4..274138...4....1329...8.........4.85.8..2.31.",
+      "28....473534827196.71.34.8.3..5...4....34..6.46.79.31..9.2.3654..3..9821....8.937",
+      "....6........42736..673..4..94....68....964.76.7.5.9231......85.6..8.271..5.1..94",
+      ".3.....1...8.9....4..6.8......57694....98352....124...276..519....7.9....95...47."),
+  HARD(
+      "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+      ".......1.4.........2...........5.4.7..8...3....1.9....3..4..2...5.1........8.6...",
+      "..............3.85..1.2.......5.7.....4...1...9.......5......73..2.1........4...9");
+
+  private final String[] puzzles;
+
+  PuzzleCorpus(String... puzzles) {
+    this.puzzles = puzzles;
+  }
+
+  /**
+   * Returns the puzzles in the compact, one-line format.
+   * @return  the puzzles
+   */
+  public String[] getPuzzles() {
+    return puzzles.clone();
+  }
+
+  /**
+   * Parses the puzzles into new grids.
+   * @return  a new grid for each puzzle
+   */
+  public ISquareSudokuGrid[] newGrids() {
+    ISquareSudokuGrid[] grids = new ISquareSudokuGrid[puzzles.length];
+    for (int k = 0; k < puzzles.length; k++) {
+      grids[k] = new StandardSudokuGrid(puzzles[k]);
+    }
+    return grids;
+  }
+
+  /**
+   * Solves the puzzles, so that benchmarks can replay the solution values without measuring a
+   * solver.
+   * @return  the solution of each puzzle
+   */
+  public ISquareSudokuGrid[] newSolutions() {
+    ISquareSudokuGrid[] solutions = new ISquareSudokuGrid[puzzles.length];
+    for (int k = 0; k < puzzles.length; k++) {
+      ISquareSudokuGrid solution = new BitmaskBacktrackingSolver(new BitboardSudokuGrid(puzzles[k])).solve();
+      solutions[k] = new StandardSudokuGrid(solution.compactString());
+    }
+    return solutions;
+  }
+}
@@ -0,0 +1,54 @@
+package bench.analysis;
+
+import bench.PuzzleCorpus;
+import main.analysis.Canonicalizer;
+import main.grid.model.ISquareSudokuGrid;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of canonicalizing the puzzles of the corpus, and their solutions, which have no
+ * empty elements to keep the columns tied and take longer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CanonicalizerBenchmark {
+
+  @Param({"EASY", "MEDIUM", "HARD"})
+  public PuzzleCorpus corpus;
+
+  private ISquareSudokuGrid[] puzzles;
+
+  private ISquareSudokuGrid[] solutions;
+
+  private Canonicalizer canonicalizer;
+
+  @Setup(Level.Trial)
+  public void loadCorpus() {
+    puzzles = corpus.newGrids();
+    solutions = corpus.newSolutions();
+    canonicalizer = new Canonicalizer();
+  }
+
+  // The canonicalizer leaves the grids untouched, so they can be reused.
+
+  @Benchmark
+  public void canonicalizePuzzles(Blackhole blackhole) {
+    for (ISquareSudokuGrid puzzle : puzzles) {
+      blackhole.consume(canonicalizer.canonicalString(puzzle));
+    }
+  }
+
+  @Benchmark
+  public void canonicalizeSolutions(Blackhole blackhole) {
+    for (ISquareSudokuGrid solution : solutions) {
+      blackhole.consume(canonicalizer.canonicalString(solution));
+    }
+  }
+}
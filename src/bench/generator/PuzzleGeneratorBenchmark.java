@@ -0,0 +1,42 @@
+package bench.generator;
+
+import main.generator.PuzzleGenerator;
+import main.generator.Symmetry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of generating a single puzzle, from the random solution grid to the last
+ * uniqueness check.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PuzzleGeneratorBenchmark {
+
+  @Param({"NONE", "ROTATIONAL"})
+  public Symmetry symmetry;
+
+  @Param({"30", "26"})
+  public int clues;
+
+  private PuzzleGenerator generator;
+
+  private SplittableRandom random;
+
+  @Setup(Level.Trial)
+  public void createGenerator() {
+    generator = new PuzzleGenerator(9, symmetry, clues);
+    random = new SplittableRandom(1);
+  }
+
+  @Benchmark
+  public Object generate() {
+    return generator.generate(random);
+  }
+}
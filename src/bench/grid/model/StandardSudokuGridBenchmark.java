@@ -0,0 +1,125 @@
+package bench.grid.model;
+
+import bench.PuzzleCorpus;
+import main.grid.model.ISquareSudokuGrid;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the grid operations that the solvers call in their inner loops. Each benchmark
+ * runs the operation over every puzzle of the corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StandardSudokuGridBenchmark {
+
+  @Param({"EASY", "MEDIUM", "HARD"})
+  public PuzzleCorpus corpus;
+
+  private ISquareSudokuGrid[] puzzles;
+
+  private ISquareSudokuGrid[] solutions;
+
+  /** Fresh copies of the puzzles for the benchmarks that modify them. */
+  private ISquareSudokuGrid[] scratch;
+
+  @Setup(Level.Trial)
+  public void loadCorpus() {
+    puzzles = corpus.newGrids();
+    solutions = corpus.newSolutions();
+    scratch = new ISquareSudokuGrid[puzzles.length];
+  }
+
+  @Setup(Level.Invocation)
+  public void copyPuzzles() {
+    for (int k = 0; k < puzzles.length; k++) {
+      scratch[k] = puzzles[k].copy();
+    }
+  }
+
+  /**
+   * Fills in every empty element of each puzzle with its solution value.
+   */
+  @Benchmark
+  public ISquareSudokuGrid[] setValue() {
+    for (int k = 0; k < scratch.length; k++) {
+      ISquareSudokuGrid grid = scratch[k];
+      int n = grid.getDimension();
+      for (int r = 0; r < n; r++) {
+        for (int c = 0; c < n; c++) {
+          if (!grid.isFixed(r, c)) {
+            grid.setValue(r, c, solutions[k].getValue(r, c));
+          }
+        }
+      }
+    }
+    return scratch;
+  }
+
+  @Benchmark
+  public void copy(Blackhole blackhole) {
+    for (ISquareSudokuGrid puzzle : puzzles) {
+      blackhole.consume(puzzle.copy());
+    }
+  }
+
+  /**
+   * Checks the solutions, which is the slow path: every row, column, and box has to be checked.
+   */
+  @Benchmark
+  public void isSolved(Blackhole blackhole) {
+    for (ISquareSudokuGrid solution : solutions) {
+      blackhole.consume(solution.isSolved());
+    }
+  }
+
+  @Benchmark
+  public void getCandidateValues(Blackhole blackhole) {
+    for (ISquareSudokuGrid puzzle : puzzles) {
+      int n = puzzle.getDimension();
+      for (int r = 0; r < n; r++) {
+        for (int c = 0; c < n; c++) {
+          blackhole.consume(puzzle.getCandidateValues(r, c));
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void getCandidateMask(Blackhole blackhole) {
+    for (ISquareSudokuGrid puzzle : puzzles) {
+      int n = puzzle.getDimension();
+      for (int r = 0; r < n; r++) {
+        for (int c = 0; c < n; c++) {
+          blackhole.consume(puzzle.getCandidateMask(r, c));
+        }
+      }
+    }
+  }
+
+  /**
+   * Peeks at placing every value in every empty element, the way the iterative brute force
+   * solver does.
+   */
+  @Benchmark
+  public void peekConstraintsOnPlace(Blackhole blackhole) {
+    for (ISquareSudokuGrid puzzle : puzzles) {
+      int n = puzzle.getDimension();
+      for (int r = 0; r < n; r++) {
+        for (int c = 0; c < n; c++) {
+          if (!puzzle.isFixed(r, c)) {
+            for (int value = 1; value <= n; value++) {
+              blackhole.consume(puzzle.peekConstraintsOnPlace(r, c, value));
+            }
+          }
+        }
+      }
+    }
+  }
+}
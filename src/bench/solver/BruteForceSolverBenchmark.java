@@ -0,0 +1,74 @@
+package bench.solver;
+
+import bench.PuzzleCorpus;
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+import main.solver.BruteForceSolver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmarks of the brute force solver. The hard corpus is left out by default,
+ * because naive backtracking takes minutes on it; pass "-p corpus=HARD" to run it anyway.
+ *
+ * <p>{@link BruteForceSolver#findAllSolutions()} doesn't finish in reasonable time on puzzles with
+ * more than a handful of empty elements, so it runs over nearly complete puzzles with more than
+ * one solution instead of the corpus.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BruteForceSolverBenchmark {
+
+  @Param({"EASY", "MEDIUM"})
+  public PuzzleCorpus corpus;
+
+  private ISquareSudokuGrid[] puzzles;
+
+  @Setup(Level.Trial)
+  public void loadCorpus() {
+    puzzles = corpus.newGrids();
+  }
+
+  // The solvers copy the grid before modifying it, so the puzzles can be reused.
+
+  @Benchmark
+  public void solve(Blackhole blackhole) {
+    for (ISquareSudokuGrid puzzle : puzzles) {
+      blackhole.consume(new BruteForceSolver(puzzle).solve());
+    }
+  }
+
+  @Benchmark
+  public void solveIterative(Blackhole blackhole) {
+    for (ISquareSudokuGrid puzzle : puzzles) {
+      blackhole.consume(new BruteForceSolver(puzzle).solveIterative());
+    }
+  }
+
+  @Benchmark
+  public void findAllSolutions(ImproperPuzzles improperPuzzles, Blackhole blackhole) {
+    for (ISquareSudokuGrid puzzle : improperPuzzles.puzzles) {
+      blackhole.consume(new BruteForceSolver(puzzle).findAllSolutions());
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ImproperPuzzles {
+    private ISquareSudokuGrid[] puzzles;
+
+    @Setup(Level.Trial)
+    public void loadPuzzles() {
+      puzzles = new ISquareSudokuGrid[] {
+          new StandardSudokuGrid("2957438614318659..8761925433874592166123874955492167387635241899286713541549386.."),
+          new StandardSudokuGrid("396.257.8184739652527.683.924938157667125498385369742196587213471294386543851629."),
+          new StandardSudokuGrid("376598421214736598859241763193852647627413859548679..2961385274732164985485927...")
+      };
+    }
+  }
+}
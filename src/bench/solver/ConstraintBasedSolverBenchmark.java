@@ -0,0 +1,49 @@
+package bench.solver;
+
+import bench.PuzzleCorpus;
+import main.grid.model.ISquareSudokuGrid;
+import main.solver.ConstraintBasedSolver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmarks of the constraint based solver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstraintBasedSolverBenchmark {
+
+  @Param({"EASY", "MEDIUM", "HARD"})
+  public PuzzleCorpus corpus;
+
+  private ISquareSudokuGrid[] puzzles;
+
+  /** Fresh copies of the puzzles, since the solver fills in the grid it is given. */
+  private ISquareSudokuGrid[] scratch;
+
+  @Setup(Level.Trial)
+  public void loadCorpus() {
+    puzzles = corpus.newGrids();
+    scratch = new ISquareSudokuGrid[puzzles.length];
+  }
+
+  @Setup(Level.Invocation)
+  public void copyPuzzles() {
+    for (int k = 0; k < puzzles.length; k++) {
+      scratch[k] = puzzles[k].copy();
+    }
+  }
+
+  @Benchmark
+  public void solve(Blackhole blackhole) {
+    for (ISquareSudokuGrid puzzle : scratch) {
+      blackhole.consume(new ConstraintBasedSolver(puzzle).solve());
+    }
+  }
+}
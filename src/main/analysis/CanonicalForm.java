@@ -0,0 +1,39 @@
+package main.analysis;
+
+/**
+ * The canonical form of a grid (see {@link Canonicalizer}), and a transformation that maps the
+ * grid to it.
+ */
+public class CanonicalForm {
+  private final String compactString;
+  private final GridTransform transform;
+
+  public CanonicalForm(String compactString, GridTransform transform) {
+    this.compactString = compactString;
+    this.transform = transform;
+  }
+
+  /**
+   * Gets the canonical form, in the format of {@link main.grid.model.ISquareSudokuGrid#compactString()}.
+   * Two grids are equivalent exactly when their canonical forms are equal.
+   * @return  the compact string of the canonical grid
+   */
+  public String getCompactString() {
+    return compactString;
+  }
+
+  /**
+   * Gets a transformation that maps the grid to its canonical form. If the grid has symmetries,
+   * several transformations do, and this is one of them. Its inverse maps the canonical grid (or
+   * its solution) back to the grid (or the grid's solution).
+   * @return  the transformation
+   */
+  public GridTransform getTransform() {
+    return transform;
+  }
+
+  @Override
+  public String toString() {
+    return compactString;
+  }
+}
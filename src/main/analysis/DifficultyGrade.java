@@ -0,0 +1,67 @@
+package main.analysis;
+
+import main.solver.SolverStatistics;
+import main.solver.SolvingTechnique;
+
+/**
+ * The difficulty of a puzzle: the hardest technique needed to solve it, the rating of that
+ * technique, and how often each technique was applied.
+ */
+public class DifficultyGrade {
+  private final boolean solved;
+  private final SolvingTechnique hardestTechnique;
+  private final SolverStatistics statistics;
+
+  public DifficultyGrade(boolean solved, SolvingTechnique hardestTechnique, SolverStatistics statistics) {
+    this.solved = solved;
+    this.hardestTechnique = hardestTechnique;
+    this.statistics = statistics;
+  }
+
+  /**
+   * Checks whether the techniques solved the puzzle. If not, the puzzle needs techniques that
+   * the solver doesn't know (or guessing), or it doesn't have a solution.
+   * @return  true if the puzzle was solved without guessing
+   */
+  public boolean isSolved() {
+    return solved;
+  }
+
+  /**
+   * Gets the hardest technique that was applied, whether or not the puzzle was solved.
+   * @return  the hardest technique, or null if the puzzle needed none (all elements were given)
+   */
+  public SolvingTechnique getHardestTechnique() {
+    return hardestTechnique;
+  }
+
+  /**
+   * Gets the numeric rating of the puzzle: the rating of the hardest technique needed to solve
+   * it (see {@link SolvingTechnique#getRating()}).
+   * @return  the rating, 0 if the puzzle needed no technique, or
+   *          {@link Double#POSITIVE_INFINITY} if the techniques couldn't solve it
+   */
+  public double getRating() {
+    if (!solved) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return hardestTechnique == null ? 0 : hardestTechnique.getRating();
+  }
+
+  /**
+   * Gets the statistics of the grading run, e.g. how often each technique was applied.
+   * @return  the statistics
+   */
+  public SolverStatistics getStatistics() {
+    return statistics;
+  }
+
+  @Override
+  public String toString() {
+    if (!solved) {
+      return "Unsolved" + (hardestTechnique == null ? "" : " (got as far as " + hardestTechnique.getDisplayName() + ")");
+    }
+    return hardestTechnique == null ? "0.0" :
+        String.format("%.1f (%s)", hardestTechnique.getRating(), hardestTechnique.getDisplayName());
+  }
+}
@@ -0,0 +1,68 @@
+package main.analysis;
+
+import main.grid.model.BitboardSudokuGrid;
+import main.grid.model.ISquareSudokuGrid;
+import main.solver.ConstraintBasedSolver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Grades puzzles by the techniques of {@link ConstraintBasedSolver} that are needed to solve
+ * them.
+ *
+ * <p>The solver always applies the cheapest technique that makes progress, so the hardest
+ * technique it applies is the hardest one the puzzle needs. The brute force fallback is
+ * disabled: a puzzle that the techniques can't finish is graded as unsolved instead of being
+ * solved by guessing.</p>
+ */
+public class DifficultyGrader {
+
+  /**
+   * Grades a puzzle. The puzzle itself is left untouched.
+   * @param puzzle  the puzzle
+   * @return  the grade of the puzzle
+   */
+  public DifficultyGrade grade(ISquareSudokuGrid puzzle) {
+    ISquareSudokuGrid grid = new BitboardSudokuGrid(puzzle);
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(grid);
+    solver.setBruteForceFallback(false);
+    ISquareSudokuGrid result = solver.solve();
+    return new DifficultyGrade(result.isSolved(), solver.getStatistics().getHardestTechnique(), solver.getStatistics());
+  }
+
+  /**
+   * Grades puzzles in parallel, on the pool of the calling thread (the common pool, unless called
+   * from a task of another {@link java.util.concurrent.ForkJoinPool}).
+   * @param puzzles the puzzles
+   * @return  the grades, in the same order as the puzzles
+   */
+  public List<DifficultyGrade> gradeAll(List<ISquareSudokuGrid> puzzles) {
+    return puzzles.parallelStream().map(this::grade).toList();
+  }
+
+  /**
+   * Grades a puzzle file from the command line and prints each puzzle with its grade.
+   * @param args  the puzzle file, with one puzzle per line in the compact format
+   * @throws IOException  if the file can't be read
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.out.println("Usage: DifficultyGrader <puzzle file>");
+      return;
+    }
+    List<String> puzzles;
+    try (Stream<String> lines = Files.lines(Paths.get(args[0]), StandardCharsets.US_ASCII)) {
+      puzzles = lines.map(String::trim).filter(line -> !line.isEmpty() && line.charAt(0) != '#').toList();
+    }
+    List<DifficultyGrade> grades = new DifficultyGrader().gradeAll(
+        puzzles.stream().<ISquareSudokuGrid>map(BitboardSudokuGrid::new).toList());
+    for (int k = 0; k < puzzles.size(); k++) {
+      System.out.println(puzzles.get(k) + "\t" + grades.get(k));
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package main.analysis;
+
+import main.grid.model.CompactFormat;
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+
+/**
+ * A validity-preserving transformation of a grid: a permutation of the elements (made of
+ * band and stack permutations, row and column permutations within them, and transposition)
+ * followed by a relabeling of the values. Transforming a puzzle's solution gives the solution of
+ * the transformed puzzle.
+ */
+public final class GridTransform {
+  private final int n;
+
+  /** For each element of the transformed grid, the element of the original grid it comes from. */
+  private final int[] sourceCells;
+
+  /** For each value of the original grid, its value in the transformed grid; 0 stays 0. */
+  private final int[] values;
+
+  /**
+   * @param n the dimension of the grids
+   * @param sourceCells a permutation of the element indices: for each element of the transformed
+   *                    grid, the element of the original grid that it comes from
+   * @param values  a permutation of 1 to N, indexed 1 to N: the value in the transformed grid of
+   *                each value in the original grid
+   */
+  GridTransform(int n, int[] sourceCells, int[] values) {
+    this.n = n;
+    this.sourceCells = sourceCells;
+    this.values = values;
+  }
+
+  /**
+   * Creates the transformation that leaves grids of the given dimension unchanged.
+   * @param n the dimension of the grids
+   * @return  the identity
+   */
+  public static GridTransform identity(int n) {
+    int[] sourceCells = new int[n * n];
+    for (int cell = 0; cell < sourceCells.length; cell++) {
+      sourceCells[cell] = cell;
+    }
+    int[] values = new int[n + 1];
+    for (int value = 0; value <= n; value++) {
+      values[value] = value;
+    }
+    return new GridTransform(n, sourceCells, values);
+  }
+
+  public int getDimension() {
+    return n;
+  }
+
+  /**
+   * Gets the element of the original grid that an element of the transformed grid comes from.
+   * @param cell  the index of the element in the transformed grid (row * N + column)
+   * @return  the index of the element in the original grid
+   */
+  public int sourceCellOf(int cell) {
+    return sourceCells[cell];
+  }
+
+  /**
+   * Gets the value that a value of the original grid becomes.
+   * @param value the value between 1 and N, or 0 for an empty element
+   * @return  the value in the transformed grid
+   */
+  public int mapValue(int value) {
+    return values[value];
+  }
+
+  /**
+   * Transforms the values of a grid. Candidates aren't carried over: the transformed grid has the
+   * candidates implied by its values.
+   * @param grid  the grid, which is left untouched
+   * @return  a new grid with the transformed values
+   * @throws IllegalArgumentException if the grid's dimension isn't the transformation's
+   */
+  public ISquareSudokuGrid apply(ISquareSudokuGrid grid) {
+    if (grid.getDimension() != n) {
+      throw new IllegalArgumentException("Expected a grid of dimension " + n + ", got " + grid.getDimension());
+    }
+    int[][] transformed = new int[n][n];
+    for (int cell = 0; cell < n * n; cell++) {
+      int source = sourceCells[cell];
+      transformed[cell / n][cell % n] = values[grid.getValue(source / n, source % n)];
+    }
+    return new StandardSudokuGrid(transformed);
+  }
+
+  /**
+   * Transforms the values of a grid in the compact format (see {@link CompactFormat}), without
+   * building the grid.
+   * @param compactValues the values, N * N characters
+   * @return  the transformed values, in the compact format
+   * @throws IllegalArgumentException if the string has the wrong length or an invalid character
+   */
+  public String apply(String compactValues) {
+    if (compactValues.length() != n * n) {
+      throw new IllegalArgumentException("Expected " + n * n + " characters, got " + compactValues.length());
+    }
+    char[] transformed = new char[n * n];
+    for (int cell = 0; cell < n * n; cell++) {
+      int value = CompactFormat.parseValue(compactValues.charAt(sourceCells[cell]), n);
+      if (value < 0) {
+        throw new IllegalArgumentException("Invalid character: " + compactValues.charAt(sourceCells[cell]));
+      }
+      transformed[cell] = CompactFormat.toChar(values[value]);
+    }
+    return new String(transformed);
+  }
+
+  /**
+   * Creates the transformation that undoes this one.
+   * @return  the inverse transformation
+   */
+  public GridTransform inverse() {
+    int[] inverseCells = new int[sourceCells.length];
+    for (int cell = 0; cell < sourceCells.length; cell++) {
+      inverseCells[sourceCells[cell]] = cell;
+    }
+    int[] inverseValues = new int[values.length];
+    for (int value = 0; value < values.length; value++) {
+      inverseValues[values[value]] = value;
+    }
+    return new GridTransform(n, inverseCells, inverseValues);
+  }
+
+  /**
+   * Creates the transformation that applies this one and then the other one.
+   * @param other the transformation to apply second
+   * @return  the composition
+   * @throws IllegalArgumentException if the dimensions differ
+   */
+  public GridTransform andThen(GridTransform other) {
+    if (other.n != n) {
+      throw new IllegalArgumentException("Expected a transformation of dimension " + n + ", got " + other.n);
+    }
+    int[] composedCells = new int[sourceCells.length];
+    for (int cell = 0; cell < sourceCells.length; cell++) {
+      composedCells[cell] = sourceCells[other.sourceCells[cell]];
+    }
+    int[] composedValues = new int[values.length];
+    for (int value = 0; value < values.length; value++) {
+      composedValues[value] = other.values[values[value]];
+    }
+    return new GridTransform(n, composedCells, composedValues);
+  }
+}
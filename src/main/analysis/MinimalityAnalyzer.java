@@ -0,0 +1,68 @@
+package main.analysis;
+
+import main.grid.model.BitboardSudokuGrid;
+import main.grid.model.GridGeometry;
+import main.grid.model.ISquareSudokuGrid;
+import main.solver.BitmaskBacktrackingSolver;
+import main.util.Pair;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Checks whether each clue of a puzzle can be removed while keeping the solution unique.
+ *
+ * <p>The puzzle is solved once. Since the solution of a proper puzzle is known, removing a clue
+ * keeps the solution unique exactly when the puzzle without the clue has no solution with a
+ * different value in the clue's element. So instead of counting up to two solutions from
+ * scratch for each clue, the analyzer copies the loaded puzzle, clears the clue, removes the
+ * solution's value as a candidate there, and checks that no solution is left. The first solution
+ * found ends the search, and contradictions usually show up while propagating, before any
+ * branching.</p>
+ *
+ * <p>The clues are checked in parallel, on the pool of the calling thread (the common pool,
+ * unless called from a task of another {@link java.util.concurrent.ForkJoinPool}).</p>
+ */
+public class MinimalityAnalyzer {
+
+  /**
+   * Analyzes the clues of a puzzle. The puzzle itself is left untouched.
+   * @param puzzle  the puzzle
+   * @return  whether the puzzle is proper, and which of its clues are redundant
+   */
+  public MinimalityReport analyze(ISquareSudokuGrid puzzle) {
+    BitboardSudokuGrid loaded = new BitboardSudokuGrid(puzzle);
+    GridGeometry geometry = loaded.getGeometry();
+    int[] clues = IntStream.range(0, geometry.getCellCount())
+        .filter(cell -> loaded.isFixed(geometry.rowOf(cell), geometry.columnOf(cell)))
+        .toArray();
+
+    BitmaskBacktrackingSolver solver = new BitmaskBacktrackingSolver(loaded);
+    ISquareSudokuGrid solution = solver.solve();
+    if (!solution.isSolved() || !solver.hasUniqueSolution()) {
+      return new MinimalityReport(false, clues.length, List.of());
+    }
+
+    List<Pair<Integer, Integer>> redundantClues = IntStream.of(clues).parallel()
+        .filter(cell -> isRedundant(loaded, solution, cell))
+        .mapToObj(cell -> new Pair<>(geometry.rowOf(cell), geometry.columnOf(cell)))
+        .toList();
+    return new MinimalityReport(true, clues.length, redundantClues);
+  }
+
+  /**
+   * Checks whether the puzzle without the given clue still has a unique solution, i.e. whether
+   * no solution has a different value in the clue's element.
+   */
+  private static boolean isRedundant(BitboardSudokuGrid puzzle, ISquareSudokuGrid solution, int clue) {
+    GridGeometry geometry = puzzle.getGeometry();
+    int r = geometry.rowOf(clue);
+    int c = geometry.columnOf(clue);
+    int value = solution.getValue(r, c);
+
+    BitboardSudokuGrid withoutClue = puzzle.copy();
+    withoutClue.clearValue(r, c);
+    withoutClue.setCandidate(r, c, value, false);
+    return new BitmaskBacktrackingSolver(withoutClue).countSolutions(1) == 0;
+  }
+}
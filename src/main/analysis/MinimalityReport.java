@@ -0,0 +1,62 @@
+package main.analysis;
+
+import main.util.Pair;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of checking a puzzle for minimality: whether it has a unique solution, and which of
+ * its clues could be removed without losing that.
+ */
+public class MinimalityReport {
+  private final boolean proper;
+  private final int clueCount;
+  private final List<Pair<Integer, Integer>> redundantClues;
+
+  public MinimalityReport(boolean proper, int clueCount, List<Pair<Integer, Integer>> redundantClues) {
+    this.proper = proper;
+    this.clueCount = clueCount;
+    this.redundantClues = Collections.unmodifiableList(redundantClues);
+  }
+
+  /**
+   * Checks whether the puzzle has a unique solution. The redundant clues are only analyzed for
+   * proper puzzles.
+   * @return  true if the puzzle has a unique solution
+   */
+  public boolean isProper() {
+    return proper;
+  }
+
+  public int getClueCount() {
+    return clueCount;
+  }
+
+  /**
+   * Gets the clues that can each be removed on their own while keeping the solution unique.
+   * Removing several of them together may still make the solution ambiguous.
+   * @return  the coordinates (row, column) of the redundant clues, in row-major order
+   */
+  public List<Pair<Integer, Integer>> getRedundantClues() {
+    return redundantClues;
+  }
+
+  /**
+   * Checks whether the puzzle is minimal (irreducible): it is proper, and removing any one of
+   * its clues makes the solution ambiguous.
+   * @return  true if the puzzle is minimal
+   */
+  public boolean isMinimal() {
+    return proper && redundantClues.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    if (!proper) {
+      return "Not a proper puzzle (" + clueCount + " clues)";
+    }
+    return isMinimal() ? "Minimal (" + clueCount + " clues)" :
+        redundantClues.size() + " of " + clueCount + " clues are redundant: " + redundantClues;
+  }
+}
@@ -0,0 +1,56 @@
+package main.batch;
+
+import main.solver.SolverStatistics;
+
+/**
+ * The outcome of solving a file of puzzles: how many there were, how long it took, and the
+ * combined statistics of the solver runs.
+ */
+public class BatchResult {
+  private final long puzzleCount;
+  private final long solvedCount;
+  private final long elapsedNanos;
+  private final SolverStatistics statistics;
+
+  public BatchResult(long puzzleCount, long solvedCount, long elapsedNanos, SolverStatistics statistics) {
+    this.puzzleCount = puzzleCount;
+    this.solvedCount = solvedCount;
+    this.elapsedNanos = elapsedNanos;
+    this.statistics = statistics;
+  }
+
+  public long getPuzzleCount() {
+    return puzzleCount;
+  }
+
+  public long getSolvedCount() {
+    return solvedCount;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Returns the statistics of every solver run, merged. The elapsed time of the statistics is the
+   * sum of the solve times, which exceeds the wall time when puzzles are solved in parallel.
+   * @return  the merged statistics
+   */
+  public SolverStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Returns the throughput of the run.
+   * @return  the number of puzzles solved per second
+   */
+  public double getPuzzlesPerSecond() {
+    return elapsedNanos == 0 ? 0 : puzzleCount * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Solved %d of %d puzzles in %.3f s (%.0f puzzles/sec)",
+        solvedCount, puzzleCount, elapsedNanos / 1e9, getPuzzlesPerSecond());
+  }
+}
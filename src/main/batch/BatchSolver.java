@@ -0,0 +1,276 @@
+package main.batch;
+
+import main.grid.model.BitboardSudokuGrid;
+import main.grid.model.CompactFormat;
+import main.grid.model.ISquareSudokuGrid;
+import main.solver.BitmaskBacktrackingSolver;
+import main.solver.ISquareSudokuSolver;
+import main.solver.SolverStatistics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Solves a file of puzzles in parallel.
+ *
+ * <p>The input has one puzzle per line in the compact format (see
+ * {@link BitboardSudokuGrid#BitboardSudokuGrid(String)}); blank lines and lines starting with '#'
+ * are skipped. The puzzles are read in chunks, each chunk is solved on a fork-join pool while the
+ * next one is read, and the solutions are written in input order, one per line. Puzzles without
+ * a solution are written as {@link #NO_SOLUTION}.</p>
+ *
+ * <p>Large databases of puzzles are better stored in the packed binary format (see
+ * {@link PackedGridFormat} and {@link #packFile(Path, Path)}), which
+ * {@link #solvePackedFile(Path, Path)} reads and writes through memory mappings instead of
+ * parsing lines.</p>
+ */
+public class BatchSolver {
+
+  /** The line written in place of a solution for puzzles that can't be solved. */
+  public static final String NO_SOLUTION = "No solution";
+
+  private static final int DEFAULT_CHUNK_SIZE = 4096;
+
+  private final ForkJoinPool pool;
+
+  private final int chunkSize;
+
+  /**
+   * Creates a batch solver that uses the given number of worker threads.
+   * @param parallelism the number of worker threads
+   */
+  public BatchSolver(int parallelism) {
+    this(parallelism, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a batch solver that uses the given number of worker threads and reads the given
+   * number of puzzles at a time.
+   * @param parallelism the number of worker threads
+   * @param chunkSize the number of puzzles solved together
+   */
+  public BatchSolver(int parallelism, int chunkSize) {
+    this.pool = new ForkJoinPool(parallelism);
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Solves every puzzle in the input file and writes the solutions to the output file.
+   * @param input the file of puzzles
+   * @param output  the file that the solutions are written to
+   * @return  the number of puzzles, the time it took to solve them, and the solver statistics
+   * @throws IOException  if either file can't be read or written
+   */
+  public BatchResult solveFile(Path input, Path output) throws IOException {
+    long start = System.nanoTime();
+    long puzzleCount = 0;
+    long solvedCount = 0;
+    SolverStatistics statistics = new SolverStatistics();
+    try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII);
+         BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.US_ASCII)) {
+      String[] chunk = readChunk(reader);
+      while (chunk.length > 0) {
+        String[] puzzles = chunk;
+        String[] solutions = new String[puzzles.length];
+        // Each worker counts into its own statistics, which are merged at the end of the chunk.
+        ForkJoinTask<SolverStatistics> solving = pool.submit(() ->
+            IntStream.range(0, puzzles.length).parallel().collect(SolverStatistics::new,
+                (chunkStatistics, k) -> solutions[k] = solve(puzzles[k], chunkStatistics), SolverStatistics::merge));
+
+        // Read the next chunk while this one is being solved.
+        chunk = readChunk(reader);
+
+        try {
+          statistics.merge(solving.get());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while solving", e);
+        } catch (ExecutionException e) {
+          throw new IOException("Failed to solve a puzzle", e.getCause());
+        }
+        for (String solution : solutions) {
+          writer.write(solution);
+          writer.newLine();
+          if (!NO_SOLUTION.equals(solution)) {
+            solvedCount++;
+          }
+        }
+        puzzleCount += puzzles.length;
+      }
+    }
+    return new BatchResult(puzzleCount, solvedCount, System.nanoTime() - start, statistics);
+  }
+
+  /**
+   * Solves every puzzle in a packed input file (see {@link PackedGridFormat}) and writes the
+   * solutions to a packed output file of solutions, at the same indices. Puzzles without a
+   * solution are left missing in the output. The input is read straight from its memory mapping,
+   * so there is no parsing, and the puzzles are solved in parallel without chunking.
+   * @param input the packed file of puzzles
+   * @param output  the packed file that the solutions are written to
+   * @return  the number of puzzles, the time it took to solve them, and the solver statistics
+   * @throws IOException  if either file can't be read or written
+   */
+  public BatchResult solvePackedFile(Path input, Path output) throws IOException {
+    long start = System.nanoTime();
+    LongAdder solvedCount = new LongAdder();
+    SolverStatistics statistics;
+    try (PackedGridReader reader = PackedGridReader.open(input);
+         PackedGridWriter writer =
+             PackedGridWriter.create(output, reader.getDimension(), PackedGridFormat.Encoding.SOLUTIONS, reader.size())) {
+      ForkJoinTask<SolverStatistics> solving = pool.submit(() ->
+          LongStream.range(0, reader.size()).parallel().collect(SolverStatistics::new, (workerStatistics, index) -> {
+            ISquareSudokuGrid solution = solve(reader.read(index), workerStatistics);
+            if (solution != null) {
+              writer.write(index, solution);
+              solvedCount.increment();
+            }
+          }, SolverStatistics::merge));
+      try {
+        statistics = solving.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while solving", e);
+      } catch (ExecutionException e) {
+        throw new IOException("Failed to solve a puzzle", e.getCause());
+      }
+      return new BatchResult(reader.size(), solvedCount.sum(), System.nanoTime() - start, statistics);
+    }
+  }
+
+  /**
+   * Converts a text file of puzzles, in the format read by {@link #solveFile(Path, Path)}, to a
+   * packed file of givens. The text file is read twice: once to count the puzzles, so that the
+   * packed file can be sized up front, and once to write them.
+   * @param input the text file of puzzles, which must all have the same dimension
+   * @param output  the packed file
+   * @return  the number of puzzles
+   * @throws IOException  if either file can't be read or written, or a puzzle is invalid
+   */
+  public static long packFile(Path input, Path output) throws IOException {
+    long count = 0;
+    int n = 0;
+    try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII)) {
+      for (String line = nextPuzzle(reader); line != null; line = nextPuzzle(reader)) {
+        if (n == 0) {
+          n = CompactFormat.dimensionOf(line.length());
+        }
+        if (n == 0 || line.length() != n * n) {
+          throw new IOException("Puzzle " + count + " has an invalid length: " + line.length());
+        }
+        count++;
+      }
+    }
+
+    try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII);
+         PackedGridWriter writer = PackedGridWriter.create(output, n == 0 ? 9 : n, PackedGridFormat.Encoding.GIVENS, count)) {
+      int[] values = new int[n * n];
+      for (long index = 0; index < count; index++) {
+        String line = nextPuzzle(reader);
+        if (line == null) {
+          throw new IOException("The puzzle file changed while it was packed");
+        }
+        for (int cell = 0; cell < values.length; cell++) {
+          values[cell] = CompactFormat.parseValue(line.charAt(cell), n);
+          if (values[cell] < 0) {
+            throw new IOException("Puzzle " + index + " has an invalid character: " + line.charAt(cell));
+          }
+        }
+        writer.write(index, values);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Solves a single puzzle in the compact format.
+   * @param puzzle  the puzzle
+   * @return  the solution in the compact format, or {@link #NO_SOLUTION}
+   */
+  public static String solve(String puzzle) {
+    return solve(puzzle, new SolverStatistics());
+  }
+
+  private static String solve(String puzzle, SolverStatistics statistics) {
+    ISquareSudokuGrid solution = solve(new BitboardSudokuGrid(puzzle), statistics);
+    return solution == null ? NO_SOLUTION : solution.compactString();
+  }
+
+  /**
+   * Solves a puzzle and adds the solver's counters to the statistics.
+   * @return  the solution, or null if there is none
+   */
+  private static ISquareSudokuGrid solve(ISquareSudokuGrid puzzle, SolverStatistics statistics) {
+    ISquareSudokuSolver solver = new BitmaskBacktrackingSolver(puzzle);
+    ISquareSudokuGrid solution = solver.solve();
+    statistics.merge(solver.getStatistics());
+    return solution.isSolved() ? solution : null;
+  }
+
+  /**
+   * Stops the worker threads.
+   */
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  /** Reads the next line that isn't blank or a comment, trimmed, or null at the end. */
+  private static String nextPuzzle(BufferedReader reader) throws IOException {
+    String line;
+    while ((line = reader.readLine()) != null) {
+      line = line.trim();
+      if (!line.isEmpty() && line.charAt(0) != '#') {
+        return line;
+      }
+    }
+    return null;
+  }
+
+  private String[] readChunk(BufferedReader reader) throws IOException {
+    String[] lines = new String[chunkSize];
+    int count = 0;
+    String line;
+    while (count < chunkSize && (line = nextPuzzle(reader)) != null) {
+      lines[count++] = line;
+    }
+    return count == chunkSize ? lines : Arrays.copyOf(lines, count);
+  }
+
+  /**
+   * Solves a puzzle file from the command line and prints the throughput. A packed puzzle file
+   * (see {@link PackedGridFormat}) is solved into a packed solution file, and a text one into a
+   * text one.
+   * @param args  the input file, the output file, and optionally the number of worker threads
+   * @throws IOException  if either file can't be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.out.println("Usage: BatchSolver <puzzle file> <solution file> [threads]");
+      return;
+    }
+    int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+    BatchSolver batchSolver = new BatchSolver(parallelism);
+    try {
+      Path input = Paths.get(args[0]);
+      Path output = Paths.get(args[1]);
+      BatchResult result = PackedGridReader.isPacked(input)
+          ? batchSolver.solvePackedFile(input, output) : batchSolver.solveFile(input, output);
+      System.out.println(result);
+      System.out.print(result.getStatistics());
+    } finally {
+      batchSolver.shutdown();
+    }
+  }
+}
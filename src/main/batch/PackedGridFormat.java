@@ -0,0 +1,324 @@
+package main.batch;
+
+import main.grid.model.GridGeometry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The packed binary format of a file of grids, read by {@link PackedGridReader} and written by
+ * {@link PackedGridWriter}.
+ *
+ * <p>A file starts with a 16 byte header: the magic bytes "SDKP", the format version, the
+ * dimension N of the grids, the {@link Encoding} of the grids, a reserved byte, and the number of
+ * grids as a big-endian long. The grids follow as fixed-size records, so the grid at an index can
+ * be found without reading the ones before it. Within a record, the bits are packed from the
+ * lowest bit of the first byte on.</p>
+ */
+public final class PackedGridFormat {
+
+  /** The encodings of the grids in a file. */
+  public enum Encoding {
+    /**
+     * Any grid (usually a puzzle's givens): each value, or 0 for an empty element, in the fewest
+     * bits that fit N, e.g. 4 bits per element and 41 bytes per grid for 9x9 grids.
+     */
+    GIVENS,
+
+    /**
+     * Solved grids: for each row but the last, each value is written as its index among the values
+     * not used yet by the row, in the fewest bits that fit the number of those values. The last
+     * row follows from the columns. A 9x9 grid takes 21 bytes. A record of zeros marks a missing
+     * grid, since it would have every row in increasing order, which is never a solution. Only
+     * valid solutions can be written, and 1x1 grids aren't supported.
+     */
+    SOLUTIONS
+  }
+
+  /** The size of the file header in bytes. */
+  public static final int HEADER_SIZE = 16;
+
+  private static final byte[] MAGIC = {'S', 'D', 'K', 'P'};
+
+  private static final int VERSION = 1;
+
+  private static final int COUNT_OFFSET = 8;
+
+  private final int n;
+
+  private final Encoding encoding;
+
+  /** The number of bits per element for {@link Encoding#GIVENS}. */
+  private final int bitsPerValue;
+
+  /** For {@link Encoding#SOLUTIONS}, the number of bits for each position of a row. */
+  private final int[] bitsPerPosition;
+
+  private final int recordSize;
+
+  /**
+   * Creates the format of a file of grids of the given dimension.
+   * @param n the dimension of the grids
+   * @param encoding  the encoding of the grids
+   * @throws IllegalArgumentException if the dimension isn't supported (see {@link GridGeometry}),
+   *                                  or is 1 for {@link Encoding#SOLUTIONS}
+   */
+  public PackedGridFormat(int n, Encoding encoding) {
+    if (!GridGeometry.isSupported(n)) {
+      throw new IllegalArgumentException("Unsupported grid dimension: " + n);
+    }
+    if (n == 1 && encoding == Encoding.SOLUTIONS) {
+      // The only 1x1 solution would take no bits, and couldn't be told apart from a missing one.
+      throw new IllegalArgumentException("Solutions of dimension 1 aren't supported");
+    }
+    this.n = n;
+    this.encoding = encoding;
+    this.bitsPerValue = 32 - Integer.numberOfLeadingZeros(n);
+    this.bitsPerPosition = new int[n];
+    int rowBits = 0;
+    for (int position = 0; position < n; position++) {
+      int remaining = n - position;
+      bitsPerPosition[position] = 32 - Integer.numberOfLeadingZeros(remaining - 1);
+      rowBits += bitsPerPosition[position];
+    }
+    long recordBits = encoding == Encoding.GIVENS ? (long) n * n * bitsPerValue : (long) (n - 1) * rowBits;
+    this.recordSize = (int) ((recordBits + 7) / 8);
+  }
+
+  public int getDimension() {
+    return n;
+  }
+
+  public Encoding getEncoding() {
+    return encoding;
+  }
+
+  /**
+   * Gets the size of each grid's record.
+   * @return  the number of bytes per grid
+   */
+  public int getRecordSize() {
+    return recordSize;
+  }
+
+  /**
+   * Writes the header of a file.
+   * @param buffer  the buffer that the file starts at
+   * @param count the number of grids in the file
+   */
+  void writeHeader(ByteBuffer buffer, long count) {
+    for (int k = 0; k < MAGIC.length; k++) {
+      buffer.put(k, MAGIC[k]);
+    }
+    buffer.put(4, (byte) VERSION);
+    buffer.put(5, (byte) n);
+    buffer.put(6, (byte) encoding.ordinal());
+    buffer.put(7, (byte) 0);
+    buffer.putLong(COUNT_OFFSET, count);
+  }
+
+  /**
+   * Reads the format from the header of a file.
+   * @param buffer  the buffer that the file starts at, with at least {@link #HEADER_SIZE} bytes
+   * @return  the format of the file's grids
+   * @throws IOException  if the header isn't a valid header
+   */
+  static PackedGridFormat readHeader(ByteBuffer buffer) throws IOException {
+    for (int k = 0; k < MAGIC.length; k++) {
+      if (buffer.get(k) != MAGIC[k]) {
+        throw new IOException("Not a packed grid file");
+      }
+    }
+    if (buffer.get(4) != VERSION) {
+      throw new IOException("Unsupported packed grid file version: " + buffer.get(4));
+    }
+    int encoding = buffer.get(6);
+    if (encoding < 0 || encoding >= Encoding.values().length) {
+      throw new IOException("Unknown encoding: " + encoding);
+    }
+    try {
+      return new PackedGridFormat(buffer.get(5), Encoding.values()[encoding]);
+    } catch (IllegalArgumentException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Reads the number of grids from the header of a file.
+   */
+  static long readCount(ByteBuffer buffer) {
+    return buffer.getLong(COUNT_OFFSET);
+  }
+
+  /**
+   * Encodes a grid into its record.
+   * @param values  the values of the grid in row-major order, 0 for an empty element
+   * @param buffer  the buffer to write to
+   * @param offset  the index in the buffer that the record starts at
+   * @throws IllegalArgumentException if a value is out of range, or for {@link Encoding#SOLUTIONS},
+   *                                  if the grid isn't solved
+   */
+  void encode(int[] values, ByteBuffer buffer, int offset) {
+    BitWriter writer = new BitWriter(buffer, offset);
+    if (encoding == Encoding.GIVENS) {
+      for (int cell = 0; cell < n * n; cell++) {
+        if (values[cell] < 0 || values[cell] > n) {
+          throw new IllegalArgumentException("Invalid value: " + values[cell]);
+        }
+      }
+      for (int cell = 0; cell < n * n; cell++) {
+        writer.write(values[cell], bitsPerValue);
+      }
+    } else {
+      // Check the whole grid first, so that a grid that can't be written leaves the record
+      // untouched. The last row isn't stored, so it would otherwise read back as the values
+      // missing from the columns.
+      checkSolved(values);
+      for (int r = 0; r < n - 1; r++) {
+        long remaining = ((1L << n) - 1) << 1;
+        for (int c = 0; c < n; c++) {
+          int value = values[r * n + c];
+          // The index of the value among the remaining ones is the number of smaller ones.
+          writer.write(Long.bitCount(remaining & ((1L << value) - 1)), bitsPerPosition[c]);
+          remaining &= ~(1L << value);
+        }
+      }
+    }
+    writer.flush();
+  }
+
+  /**
+   * Decodes a grid from its record.
+   * @param buffer  the buffer to read from
+   * @param offset  the index in the buffer that the record starts at
+   * @param values  receives the values of the grid in row-major order
+   * @return  false if the record marks a missing grid
+   */
+  boolean decode(ByteBuffer buffer, int offset, int[] values) {
+    BitReader reader = new BitReader(buffer, offset);
+    if (encoding == Encoding.GIVENS) {
+      for (int cell = 0; cell < n * n; cell++) {
+        values[cell] = reader.read(bitsPerValue);
+      }
+      return true;
+    }
+
+    if (isZero(buffer, offset)) {
+      return false;
+    }
+    long allValues = ((1L << n) - 1) << 1;
+    for (int r = 0; r < n - 1; r++) {
+      long remaining = allValues;
+      for (int c = 0; c < n; c++) {
+        // Find the remaining value with the given index.
+        long candidates = remaining;
+        for (int index = reader.read(bitsPerPosition[c]); index > 0; index--) {
+          candidates &= candidates - 1;
+        }
+        int value = Long.numberOfTrailingZeros(candidates);
+        values[r * n + c] = value;
+        remaining &= ~(1L << value);
+      }
+    }
+    for (int c = 0; c < n; c++) {
+      long missing = allValues;
+      for (int r = 0; r < n - 1; r++) {
+        missing &= ~(1L << values[r * n + c]);
+      }
+      values[(n - 1) * n + c] = missing == 0 ? 0 : Long.numberOfTrailingZeros(missing);
+    }
+    return true;
+  }
+
+  /**
+   * Checks that every row, column, and box has each value from 1 to N once.
+   * @throws IllegalArgumentException if the grid isn't solved
+   */
+  private void checkSolved(int[] values) {
+    int boxSize = GridGeometry.forDimension(n).getBoxSize();
+    long allValues = ((1L << n) - 1) << 1;
+    long[] rows = new long[n];
+    long[] columns = new long[n];
+    long[] boxes = new long[n];
+    for (int cell = 0; cell < n * n; cell++) {
+      int value = values[cell];
+      if (value < 1 || value > n) {
+        throw new IllegalArgumentException("Not a solution: element " + cell + " has value " + value);
+      }
+      int r = cell / n;
+      int c = cell % n;
+      rows[r] |= 1L << value;
+      columns[c] |= 1L << value;
+      boxes[(r / boxSize) * boxSize + c / boxSize] |= 1L << value;
+    }
+    for (int unit = 0; unit < n; unit++) {
+      if (rows[unit] != allValues || columns[unit] != allValues || boxes[unit] != allValues) {
+        throw new IllegalArgumentException("Not a solution: a value is repeated in row, column, or box " + unit);
+      }
+    }
+  }
+
+  private boolean isZero(ByteBuffer buffer, int offset) {
+    for (int k = 0; k < recordSize; k++) {
+      if (buffer.get(offset + k) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Writes bits from the lowest bit of each byte on, with absolute puts. */
+  private static final class BitWriter {
+    private final ByteBuffer buffer;
+    private int index;
+    private long bits;
+    private int bitCount;
+
+    BitWriter(ByteBuffer buffer, int offset) {
+      this.buffer = buffer;
+      this.index = offset;
+    }
+
+    void write(int value, int width) {
+      bits |= (long) value << bitCount;
+      bitCount += width;
+      while (bitCount >= 8) {
+        buffer.put(index++, (byte) bits);
+        bits >>>= 8;
+        bitCount -= 8;
+      }
+    }
+
+    void flush() {
+      if (bitCount > 0) {
+        buffer.put(index++, (byte) bits);
+        bits = 0;
+        bitCount = 0;
+      }
+    }
+  }
+
+  /** Reads bits written by {@link BitWriter}, with absolute gets. */
+  private static final class BitReader {
+    private final ByteBuffer buffer;
+    private int index;
+    private long bits;
+    private int bitCount;
+
+    BitReader(ByteBuffer buffer, int offset) {
+      this.buffer = buffer;
+      this.index = offset;
+    }
+
+    int read(int width) {
+      while (bitCount < width) {
+        bits |= (buffer.get(index++) & 0xFFL) << bitCount;
+        bitCount += 8;
+      }
+      int value = (int) (bits & ((1L << width) - 1));
+      bits >>>= width;
+      bitCount -= width;
+      return value;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package main.batch;
+
+import main.grid.model.BitboardSudokuGrid;
+import main.grid.model.CompactFormat;
+import main.grid.model.ISquareSudokuGrid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file of grids in the packed format (see {@link PackedGridFormat}) through read-only
+ * memory mappings of the file.
+ *
+ * <p>Any grid can be read by its index without reading the ones before it, and the records are
+ * decoded straight from the mapped pages, so the operating system's page cache is the only
+ * buffer. Reading from several threads is safe.</p>
+ */
+public class PackedGridReader implements Closeable {
+
+  private final PackedGridFormat format;
+
+  private final long count;
+
+  private final PackedGridSegments segments;
+
+  private PackedGridReader(PackedGridFormat format, long count, PackedGridSegments segments) {
+    this.format = format;
+    this.count = count;
+    this.segments = segments;
+  }
+
+  /**
+   * Opens a file of grids.
+   * @param path  the file
+   * @return  the reader
+   * @throws IOException  if the file can't be read or mapped, or isn't a packed grid file
+   */
+  public static PackedGridReader open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < PackedGridFormat.HEADER_SIZE) {
+        throw new IOException("Not a packed grid file");
+      }
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, PackedGridFormat.HEADER_SIZE);
+      PackedGridFormat format = PackedGridFormat.readHeader(header);
+      long count = PackedGridFormat.readCount(header);
+      if (count < 0 || count > (channel.size() - PackedGridFormat.HEADER_SIZE) / format.getRecordSize()) {
+        throw new IOException("Truncated packed grid file: " + count + " grids in " + channel.size() + " bytes");
+      }
+      PackedGridSegments segments =
+          PackedGridSegments.map(channel, FileChannel.MapMode.READ_ONLY, format.getRecordSize(), count);
+      return new PackedGridReader(format, count, segments);
+    }
+  }
+
+  /**
+   * Checks whether a file starts with a valid packed grid file header.
+   * @param path  the file
+   * @return  true if the file can be opened by {@link #open(Path)}
+   * @throws IOException  if the file can't be read
+   */
+  public static boolean isPacked(Path path) throws IOException {
+    if (Files.size(path) < PackedGridFormat.HEADER_SIZE) {
+      return false;
+    }
+    ByteBuffer header = ByteBuffer.allocate(PackedGridFormat.HEADER_SIZE);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        // Keep reading until the header is complete.
+      }
+    }
+    try {
+      PackedGridFormat.readHeader(header);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  public PackedGridFormat getFormat() {
+    return format;
+  }
+
+  public int getDimension() {
+    return format.getDimension();
+  }
+
+  public PackedGridFormat.Encoding getEncoding() {
+    return format.getEncoding();
+  }
+
+  /**
+   * Gets the number of grids in the file.
+   * @return  the number of records
+   */
+  public long size() {
+    return count;
+  }
+
+  /**
+   * Reads the values of the grid at an index into an array, which can be reused between calls.
+   * @param index the index of the grid
+   * @param values  receives the values of the grid in row-major order, 0 for an empty element
+   * @return  false if the grid is missing (only in files of solutions)
+   * @throws IndexOutOfBoundsException if the index isn't in the file
+   * @throws IllegalArgumentException if the array doesn't have N * N elements
+   */
+  public boolean readValues(long index, int[] values) {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("Grid " + index + " of " + count);
+    }
+    int n = format.getDimension();
+    if (values.length != n * n) {
+      throw new IllegalArgumentException("Expected " + n * n + " values, got " + values.length);
+    }
+    return format.decode(segments.bufferOf(index), segments.offsetOf(index), values);
+  }
+
+  /**
+   * Reads the grid at an index.
+   * @param index the index of the grid
+   * @return  the grid, with the candidates implied by its values, or null if it is missing
+   * @throws IndexOutOfBoundsException if the index isn't in the file
+   */
+  public ISquareSudokuGrid read(long index) {
+    int n = format.getDimension();
+    int[] values = new int[n * n];
+    if (!readValues(index, values)) {
+      return null;
+    }
+    ISquareSudokuGrid grid = new BitboardSudokuGrid(n);
+    for (int cell = 0; cell < values.length; cell++) {
+      if (values[cell] != 0) {
+        grid.setValue(cell / n, cell % n, values[cell]);
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * Reads the grid at an index in the compact format (see {@link CompactFormat}).
+   * @param index the index of the grid
+   * @return  the values of the grid, or null if it is missing
+   * @throws IndexOutOfBoundsException if the index isn't in the file
+   */
+  public String readCompactString(long index) {
+    int n = format.getDimension();
+    int[] values = new int[n * n];
+    if (!readValues(index, values)) {
+      return null;
+    }
+    char[] chars = new char[values.length];
+    for (int cell = 0; cell < values.length; cell++) {
+      chars[cell] = CompactFormat.toChar(values[cell]);
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Does nothing: the mappings are released when they are collected.
+   */
+  @Override
+  public void close() {
+  }
+}
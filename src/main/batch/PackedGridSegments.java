@@ -0,0 +1,63 @@
+package main.batch;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The records of a packed grid file, mapped in segments of at most 2 GB (the most that a single
+ * buffer can address). A segment holds a whole number of records, so no record straddles two.
+ */
+final class PackedGridSegments {
+
+  private final MappedByteBuffer[] buffers;
+
+  private final int recordSize;
+
+  private final long recordsPerSegment;
+
+  private PackedGridSegments(MappedByteBuffer[] buffers, int recordSize, long recordsPerSegment) {
+    this.buffers = buffers;
+    this.recordSize = recordSize;
+    this.recordsPerSegment = recordsPerSegment;
+  }
+
+  /**
+   * Maps the records that follow the header of a file.
+   * @param channel the file, which can be closed once it is mapped
+   * @param mode  the mapping mode
+   * @param recordSize  the number of bytes per record
+   * @param count the number of records
+   * @return  the mapped records
+   * @throws IOException  if the file can't be mapped
+   */
+  static PackedGridSegments map(FileChannel channel, FileChannel.MapMode mode, int recordSize, long count)
+      throws IOException {
+    long recordsPerSegment = Math.max(1, Integer.MAX_VALUE / recordSize);
+    int segmentCount = (int) ((count + recordsPerSegment - 1) / recordsPerSegment);
+    MappedByteBuffer[] buffers = new MappedByteBuffer[segmentCount];
+    for (int segment = 0; segment < segmentCount; segment++) {
+      long first = segment * recordsPerSegment;
+      long records = Math.min(recordsPerSegment, count - first);
+      buffers[segment] = channel.map(mode, PackedGridFormat.HEADER_SIZE + first * recordSize, records * recordSize);
+    }
+    return new PackedGridSegments(buffers, recordSize, recordsPerSegment);
+  }
+
+  /** Gets the buffer that holds a record. */
+  MappedByteBuffer bufferOf(long index) {
+    return buffers[(int) (index / recordsPerSegment)];
+  }
+
+  /** Gets the offset of a record within its buffer. */
+  int offsetOf(long index) {
+    return (int) (index % recordsPerSegment) * recordSize;
+  }
+
+  /** Writes the changes to every segment to the file. */
+  void force() {
+    for (MappedByteBuffer buffer : buffers) {
+      buffer.force();
+    }
+  }
+}
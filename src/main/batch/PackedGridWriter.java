@@ -0,0 +1,132 @@
+package main.batch;
+
+import main.grid.model.ISquareSudokuGrid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a file of grids in the packed format (see {@link PackedGridFormat}) through memory
+ * mappings of the file.
+ *
+ * <p>The number of grids is given up front, so the whole file is sized and mapped when it is
+ * created, and each grid is written to its own record by index. Writing distinct indices from
+ * several threads is safe. Records that aren't written stay zero: an empty grid for
+ * {@link PackedGridFormat.Encoding#GIVENS}, and a missing grid for
+ * {@link PackedGridFormat.Encoding#SOLUTIONS}.</p>
+ */
+public class PackedGridWriter implements Closeable {
+
+  private final PackedGridFormat format;
+
+  private final long count;
+
+  private final PackedGridSegments segments;
+
+  private PackedGridWriter(PackedGridFormat format, long count, PackedGridSegments segments) {
+    this.format = format;
+    this.count = count;
+    this.segments = segments;
+  }
+
+  /**
+   * Creates (or replaces) a file for the given number of grids and writes its header.
+   * @param path  the file
+   * @param n the dimension of the grids
+   * @param encoding  the encoding of the grids
+   * @param count the number of grids
+   * @return  the writer
+   * @throws IOException  if the file can't be created or mapped
+   * @throws IllegalArgumentException if the dimension isn't supported or the count is negative
+   */
+  public static PackedGridWriter create(Path path, int n, PackedGridFormat.Encoding encoding, long count)
+      throws IOException {
+    if (count < 0) {
+      throw new IllegalArgumentException("Negative grid count: " + count);
+    }
+    PackedGridFormat format = new PackedGridFormat(n, encoding);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      // Mapping past the end of the file grows it, and the new bytes are zero.
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, PackedGridFormat.HEADER_SIZE);
+      format.writeHeader(header, count);
+      PackedGridSegments segments =
+          PackedGridSegments.map(channel, FileChannel.MapMode.READ_WRITE, format.getRecordSize(), count);
+      header.force();
+      return new PackedGridWriter(format, count, segments);
+    }
+  }
+
+  public PackedGridFormat getFormat() {
+    return format;
+  }
+
+  /**
+   * Gets the number of grids in the file.
+   * @return  the number of records
+   */
+  public long size() {
+    return count;
+  }
+
+  /**
+   * Writes the grid at an index.
+   * @param index the index of the grid
+   * @param values  the values of the grid in row-major order, 0 for an empty element
+   * @throws IndexOutOfBoundsException if the index isn't in the file
+   * @throws IllegalArgumentException if the values can't be written in the file's encoding
+   */
+  public void write(long index, int[] values) {
+    checkIndex(index);
+    if (values.length != format.getDimension() * format.getDimension()) {
+      throw new IllegalArgumentException("Expected " + format.getDimension() * format.getDimension()
+          + " values, got " + values.length);
+    }
+    format.encode(values, segments.bufferOf(index), segments.offsetOf(index));
+  }
+
+  /**
+   * Writes the values of a grid at an index.
+   * @param index the index of the grid
+   * @param grid  the grid, whose candidates aren't written
+   * @throws IndexOutOfBoundsException if the index isn't in the file
+   * @throws IllegalArgumentException if the grid's dimension isn't the file's, or it can't be
+   *                                  written in the file's encoding
+   */
+  public void write(long index, ISquareSudokuGrid grid) {
+    int n = format.getDimension();
+    if (grid.getDimension() != n) {
+      throw new IllegalArgumentException("Expected a grid of dimension " + n + ", got " + grid.getDimension());
+    }
+    int[] values = new int[n * n];
+    for (int cell = 0; cell < values.length; cell++) {
+      values[cell] = grid.getValue(cell / n, cell % n);
+    }
+    write(index, values);
+  }
+
+  private void checkIndex(long index) {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("Grid " + index + " of " + count);
+    }
+  }
+
+  /**
+   * Writes the mapped records to the file.
+   */
+  public void force() {
+    segments.force();
+  }
+
+  /**
+   * Writes the mapped records to the file. The mappings are released when they are collected.
+   */
+  @Override
+  public void close() {
+    force();
+  }
+}
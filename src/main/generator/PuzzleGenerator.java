@@ -0,0 +1,231 @@
+package main.generator;
+
+import main.grid.model.BitboardSudokuGrid;
+import main.grid.model.GridGeometry;
+import main.grid.model.ISquareSudokuGrid;
+import main.solver.BitmaskBacktrackingSolver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Generates proper puzzles (puzzles with a unique solution) with a target number of clues and a
+ * given {@link Symmetry}.
+ *
+ * <p>Each puzzle starts from a random solution grid. The orbits of the symmetry are visited in a
+ * random order, and each orbit's clues are removed as long as the puzzle keeps a unique solution.
+ * An orbit that can't be removed never becomes removable later (removing more clues only adds
+ * solutions), so each orbit is tried once. The uniqueness check reuses a single
+ * {@link BitmaskBacktrackingSolver} on the puzzle as it changes, and stops at the second
+ * solution.</p>
+ *
+ * <p>If the clues can't be brought down to the target from one solution grid, another one is
+ * tried, up to a maximum number of attempts; the puzzle with the fewest clues is returned if the
+ * target is never reached.</p>
+ */
+public class PuzzleGenerator {
+
+  private static final int DEFAULT_MAX_ATTEMPTS = 100;
+
+  private final GridGeometry geometry;
+
+  private final Symmetry symmetry;
+
+  private final int targetClues;
+
+  private final int maxAttempts;
+
+  /**
+   * Creates a generator of puzzles with the given dimension, symmetry and number of clues.
+   * @param dimension the number of elements in each row, column, and box
+   * @param symmetry  the symmetry of the clues
+   * @param targetClues the number of clues to stop removing clues at
+   * @throws IllegalArgumentException if the dimension isn't supported (see {@link GridGeometry})
+   */
+  public PuzzleGenerator(int dimension, Symmetry symmetry, int targetClues) {
+    this(dimension, symmetry, targetClues, DEFAULT_MAX_ATTEMPTS);
+  }
+
+  /**
+   * Creates a generator of puzzles with the given dimension, symmetry and number of clues.
+   * @param dimension the number of elements in each row, column, and box
+   * @param symmetry  the symmetry of the clues
+   * @param targetClues the number of clues to stop removing clues at
+   * @param maxAttempts the number of solution grids to try for each puzzle before giving up on
+   *                    the target
+   * @throws IllegalArgumentException if the dimension isn't supported (see {@link GridGeometry})
+   */
+  public PuzzleGenerator(int dimension, Symmetry symmetry, int targetClues, int maxAttempts) {
+    this.geometry = GridGeometry.forDimension(dimension);
+    this.symmetry = symmetry;
+    this.targetClues = targetClues;
+    this.maxAttempts = maxAttempts;
+  }
+
+  /**
+   * Generates a single puzzle.
+   * @param random  the source of randomness
+   * @return  a proper puzzle with the target number of clues, or with as few clues as were
+   *          reached if the target couldn't be reached
+   */
+  public ISquareSudokuGrid generate(SplittableRandom random) {
+    ISquareSudokuGrid best = null;
+    int bestClues = Integer.MAX_VALUE;
+    for (int attempt = 0; attempt < maxAttempts && bestClues > targetClues; attempt++) {
+      ISquareSudokuGrid puzzle = removeClues(randomSolution(random), random);
+      int clues = countClues(puzzle);
+      if (clues < bestClues) {
+        best = puzzle;
+        bestClues = clues;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Generates puzzles in parallel, on the pool of the calling thread (the common pool, unless
+   * called from a task of another {@link ForkJoinPool}). The puzzles only depend on the seed, not
+   * on the number of threads.
+   * @param count the number of puzzles
+   * @param seed  the seed of the random number generator
+   * @return  the puzzles
+   */
+  public List<ISquareSudokuGrid> generate(int count, long seed) {
+    // Split the generators up front, so that each puzzle gets the same one however the puzzles
+    // are scheduled.
+    SplittableRandom root = new SplittableRandom(seed);
+    SplittableRandom[] randoms = new SplittableRandom[count];
+    for (int k = 0; k < count; k++) {
+      randoms[k] = root.split();
+    }
+    return IntStream.range(0, count).parallel().mapToObj(k -> generate(randoms[k])).toList();
+  }
+
+  /**
+   * Creates a random solution grid. The boxes on the diagonal don't share any rows or columns,
+   * so each of them is filled with a random permutation and the rest of the grid is solved.
+   * Since the solver tries small values first, the values of the solution are then relabeled
+   * with another random permutation.
+   */
+  private ISquareSudokuGrid randomSolution(SplittableRandom random) {
+    int n = geometry.getDimension();
+    int boxSize = geometry.getBoxSize();
+    BitboardSudokuGrid grid = new BitboardSudokuGrid(n);
+    for (int k = 0; k < boxSize; k++) {
+      int[] boxCells = geometry.getBox(k * (boxSize + 1));
+      int[] values = randomPermutation(n, random);
+      for (int m = 0; m < n; m++) {
+        grid.setValue(geometry.rowOf(boxCells[m]), geometry.columnOf(boxCells[m]), values[m] + 1);
+      }
+    }
+    ISquareSudokuGrid filled = new BitmaskBacktrackingSolver(grid).solve();
+
+    int[] relabeling = randomPermutation(n, random);
+    BitboardSudokuGrid solution = new BitboardSudokuGrid(n);
+    for (int r = 0; r < n; r++) {
+      for (int c = 0; c < n; c++) {
+        solution.setValue(r, c, relabeling[filled.getValue(r, c) - 1] + 1);
+      }
+    }
+    return solution;
+  }
+
+  /**
+   * Removes the clues of the solution grid orbit by orbit, in a random order, as long as the
+   * puzzle keeps a unique solution and has more clues than the target.
+   */
+  private ISquareSudokuGrid removeClues(ISquareSudokuGrid solution, SplittableRandom random) {
+    int n = geometry.getDimension();
+    ISquareSudokuGrid puzzle = solution.copy();
+    BitmaskBacktrackingSolver uniquenessChecker = new BitmaskBacktrackingSolver(puzzle);
+    int clues = geometry.getCellCount();
+    for (int cell : randomPermutation(geometry.getCellCount(), random)) {
+      if (clues <= targetClues) {
+        break;
+      }
+      int[] orbit = symmetry.getOrbit(cell, n);
+      if (!puzzle.isFixed(geometry.rowOf(orbit[0]), geometry.columnOf(orbit[0])) ||
+          clues - orbit.length < targetClues) {
+        continue;
+      }
+      int checkpoint = puzzle.checkpoint();
+      clearClues(puzzle, orbit);
+      if (uniquenessChecker.hasUniqueSolution()) {
+        clues -= orbit.length;
+      } else {
+        puzzle.rollback(checkpoint);
+      }
+    }
+    puzzle.clearCheckpoints();
+    return puzzle;
+  }
+
+  private void clearClues(ISquareSudokuGrid puzzle, int[] cells) {
+    for (int cell : cells) {
+      puzzle.clearValue(geometry.rowOf(cell), geometry.columnOf(cell));
+    }
+  }
+
+  private int countClues(ISquareSudokuGrid puzzle) {
+    int clues = 0;
+    for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+      if (puzzle.isFixed(geometry.rowOf(cell), geometry.columnOf(cell))) {
+        clues++;
+      }
+    }
+    return clues;
+  }
+
+  /**
+   * Returns the numbers 0 to count - 1 in a random order (a Fisher-Yates shuffle).
+   */
+  private static int[] randomPermutation(int count, SplittableRandom random) {
+    int[] permutation = new int[count];
+    Arrays.setAll(permutation, k -> k);
+    for (int k = count - 1; k > 0; k--) {
+      int other = random.nextInt(k + 1);
+      int swap = permutation[k];
+      permutation[k] = permutation[other];
+      permutation[other] = swap;
+    }
+    return permutation;
+  }
+
+  /**
+   * Generates puzzles from the command line, prints them in the compact format, and prints the
+   * throughput.
+   * @param args  the number of puzzles, the number of clues, and optionally the symmetry (none,
+   *              rotational, mirror, or diagonal), the number of worker threads, and the seed
+   * @throws InterruptedException if interrupted while generating
+   * @throws ExecutionException if generating a puzzle failed
+   */
+  public static void main(String[] args) throws InterruptedException, ExecutionException {
+    if (args.length < 2) {
+      System.out.println("Usage: PuzzleGenerator <count> <clues> [symmetry] [threads] [seed]");
+      return;
+    }
+    int count = Integer.parseInt(args[0]);
+    int clues = Integer.parseInt(args[1]);
+    Symmetry symmetry = args.length > 2 ? Symmetry.valueOf(args[2].toUpperCase()) : Symmetry.ROTATIONAL;
+    int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+    long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+    PuzzleGenerator generator = new PuzzleGenerator(9, symmetry, clues);
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      long start = System.nanoTime();
+      List<ISquareSudokuGrid> puzzles = pool.submit(() -> generator.generate(count, seed)).get();
+      double seconds = (System.nanoTime() - start) / 1e9;
+      for (ISquareSudokuGrid puzzle : puzzles) {
+        System.out.println(puzzle.compactString());
+      }
+      System.out.printf("Generated %d puzzles in %.3f s (%.0f puzzles/sec)%n", count, seconds, count / seconds);
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
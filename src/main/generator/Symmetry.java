@@ -0,0 +1,59 @@
+package main.generator;
+
+/**
+ * The symmetries that the clues of a generated puzzle can have. Each symmetry maps every element
+ * to an image element, and a puzzle has the symmetry if an element is a clue exactly when its
+ * image is. Every symmetry here is its own inverse, so an element and its image form an orbit
+ * of one or two elements.
+ */
+public enum Symmetry {
+  /** No constraint on the clues. */
+  NONE("none"),
+
+  /** The clues are unchanged by a half turn of the grid. */
+  ROTATIONAL("rotational"),
+
+  /** The clues are unchanged by reflecting the grid in its vertical axis. */
+  MIRROR("mirror"),
+
+  /** The clues are unchanged by reflecting the grid in its main diagonal. */
+  DIAGONAL("diagonal");
+
+  private final String displayName;
+
+  Symmetry(String displayName) {
+    this.displayName = displayName;
+  }
+
+  public String getDisplayName() {
+    return displayName;
+  }
+
+  /**
+   * Gets the image of an element under this symmetry.
+   * @param cell  the index of the element (row * n + column)
+   * @param n the dimension of the grid
+   * @return  the index of the image element
+   */
+  public int imageOf(int cell, int n) {
+    int r = cell / n;
+    int c = cell % n;
+    return switch (this) {
+      case NONE -> cell;
+      case ROTATIONAL -> (n - 1 - r) * n + (n - 1 - c);
+      case MIRROR -> r * n + (n - 1 - c);
+      case DIAGONAL -> c * n + r;
+    };
+  }
+
+  /**
+   * Gets the elements that have to be clues (or not) together with the given element.
+   * @param cell  the index of the element (row * n + column)
+   * @param n the dimension of the grid
+   * @return  the element, followed by its image if that is a different element
+   */
+  public int[] getOrbit(int cell, int n) {
+    int image = imageOf(cell, n);
+    return image == cell ? new int[] {cell} : new int[] {cell, image};
+  }
+}
@@ -6,9 +6,9 @@ import main.grid.model.IViewAdapter;
 import main.grid.model.StandardSudokuGrid;
 import main.grid.view.GridView;
 import main.grid.view.IModelAdapter;
+import main.solver.Deduction;
 
 import java.awt.*;
-import java.util.Set;
 
 /**
  * The MVC controller for the Sudoku grid.
@@ -45,18 +45,39 @@ public class GridController {
     view = new GridView(new IModelAdapter() {
       @Override
       public void updateGridValue(int i, int j, int newValue) {
-        model.getGrid().setValue(i, j, newValue);
+        model.setValue(i, j, newValue);
         model.getViewAdapter().updateDisplayGrid();
       }
 
       @Override
       public void updateGridCandidateValue(int i, int j, int candidateValue, boolean isCandidate) {
-        model.getGrid().setCandidate(i, j, candidateValue, isCandidate);
+        model.setCandidate(i, j, candidateValue, isCandidate);
       }
 
       @Override
-      public Set<Integer> getCandidateValues(int i, int j) {
-        return model.getGrid().getCandidateValues(i, j);
+      public long getCandidateMask(int i, int j) {
+        return model.getGrid().getCandidateMask(i, j);
+      }
+
+      @Override
+      public Deduction applyNextStep() {
+        Deduction deduction = model.step();
+        model.getViewAdapter().updateDisplayGrid();
+        return deduction;
+      }
+
+      @Override
+      public boolean undo() {
+        boolean undone = model.undo();
+        model.getViewAdapter().updateDisplayGrid();
+        return undone;
+      }
+
+      @Override
+      public boolean redo() {
+        boolean redone = model.redo();
+        model.getViewAdapter().updateDisplayGrid();
+        return redone;
       }
     });
   }
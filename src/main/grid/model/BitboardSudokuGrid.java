@@ -0,0 +1,483 @@
+package main.grid.model;
+
+import main.util.Pair;
+
+import java.util.*;
+
+/**
+ * Representation of a Sudoku grid (of any dimension that {@link GridGeometry} supports) that is
+ * backed by a single flat array of primitives instead of per-element objects.
+ *
+ * <p>The array holds, in order: the value of each of the N * N cells (0 if unassigned), the
+ * candidate bit string of each cell (the 2^value bit is set if value is a candidate, the same
+ * layout that {@link StandardSudokuGrid} uses), and one digit-occupancy bit string for each row,
+ * column, and box. The bit strings are longs, so that values up to 36 fit. Placing a value,
+ * checking a constraint and copying the grid therefore need no boxing and no allocation (apart
+ * from the single array allocated by {@link #copy()}).</p>
+ */
+public class BitboardSudokuGrid implements ISquareSudokuGrid {
+
+  private static final int DEFAULT_DIMENSION = 9;
+
+  // Offset of the first section of the flat state array; the others depend on the dimension.
+  private static final int VALUES = 0;
+
+  private final int n;
+
+  private final int boxSize;
+
+  private final int cellCount;
+
+  /** Bit string with the 2^1, ..., 2^N bits set, i.e. every value is a candidate. */
+  private final long allCandidates;
+
+  // Offsets of the other sections of the flat state array.
+  private final int candidatesOffset;
+  private final int rowMasksOffset;
+  private final int columnMasksOffset;
+  private final int boxMasksOffset;
+
+  private final GridGeometry geometry;
+
+  private final long[] state;
+
+  /** The writes to the state since the first checkpoint, or null if no checkpoint was taken. */
+  private MutationTrail trail;
+
+  /**
+   * Creates an empty, standard 9x9 Sudoku grid.
+   */
+  public BitboardSudokuGrid() {
+    this(DEFAULT_DIMENSION);
+  }
+
+  /**
+   * Creates an empty Sudoku grid of the given dimension.
+   * @param dimension the number of elements in each row, column, and box
+   * @throws IllegalArgumentException if the dimension isn't supported (see {@link GridGeometry})
+   */
+  public BitboardSudokuGrid(int dimension) {
+    this(GridGeometry.forDimension(dimension), null);
+    Arrays.fill(state, candidatesOffset, candidatesOffset + cellCount, allCandidates);
+  }
+
+  /**
+   * Creates a Sudoku grid with the given initial values. The dimension of the grid is implied by
+   * the length of the string (see {@link CompactFormat}); strings of any other length are read as
+   * a 9x9 grid.
+   * @param compactValues a String containing the initial values
+   */
+  public BitboardSudokuGrid(String compactValues) {
+    this(dimensionOf(compactValues));
+    int length = compactValues.length();
+    if (length != cellCount) {
+      System.out.println("Invalid string: length is not " + cellCount + "!");
+    }
+    for (int i = 0; i < length && i < cellCount; i++) {
+      char ch = compactValues.charAt(i);
+      int value = CompactFormat.parseValue(ch, n);
+      if (value > 0) {
+        setValue(i / n, i % n, value);
+      } else if (value < 0) {
+        System.out.println("Invalid string: invalid character: " + ch);
+      }
+    }
+  }
+
+  /**
+   * Constructs a Sudoku grid with the given initial values already
+   * assigned.
+   * @param initialValues a two-dimensional (N by N) array containing the initial values
+   */
+  public BitboardSudokuGrid(int[][] initialValues) {
+    this(initialValues.length);
+    for (int r = 0; r < n; r++) {
+      for (int c = 0; c < n; c++) {
+        if (initialValues[r][c] != 0) {
+          setValue(r, c, initialValues[r][c]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Constructs a Sudoku grid with the same values and candidate values as another grid.
+   * @param otherGrid the grid to convert
+   * @throws IllegalArgumentException if the other grid's dimension isn't supported
+   */
+  public BitboardSudokuGrid(ISquareSudokuGrid otherGrid) {
+    this(otherGrid.getDimension());
+    for (int r = 0; r < n; r++) {
+      for (int c = 0; c < n; c++) {
+        if (otherGrid.isFixed(r, c)) {
+          placeValue(r * n + c, otherGrid.getValue(r, c));
+        }
+      }
+    }
+    for (int r = 0; r < n; r++) {
+      for (int c = 0; c < n; c++) {
+        if (!otherGrid.isFixed(r, c)) {
+          write(candidatesOffset + r * n + c, otherGrid.getCandidateMask(r, c));
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a grid of the given geometry with the given state, or with a new, zeroed state if
+   * the state is null.
+   */
+  private BitboardSudokuGrid(GridGeometry geometry, long[] state) {
+    this.geometry = geometry;
+    this.n = geometry.getDimension();
+    this.boxSize = geometry.getBoxSize();
+    this.cellCount = geometry.getCellCount();
+    this.allCandidates = ((1L << n) - 1) << 1;
+    this.candidatesOffset = VALUES + cellCount;
+    this.rowMasksOffset = candidatesOffset + cellCount;
+    this.columnMasksOffset = rowMasksOffset + n;
+    this.boxMasksOffset = columnMasksOffset + n;
+    this.state = state != null ? state : new long[boxMasksOffset + n];
+  }
+
+  private static int dimensionOf(String compactValues) {
+    int dimension = CompactFormat.dimensionOf(compactValues.length());
+    return dimension > 0 ? dimension : DEFAULT_DIMENSION;
+  }
+
+  @Override
+  public BitboardSudokuGrid copy() {
+    return new BitboardSudokuGrid(geometry, state.clone());
+  }
+
+  @Override
+  public int getDimension() {
+    return n;
+  }
+
+  @Override
+  public GridGeometry getGeometry() {
+    return geometry;
+  }
+
+  @Override
+  public int getValue(int i, int j) {
+    return (int) state[VALUES + i * n + j];
+  }
+
+  @Override
+  public void setValue(int i, int j, int newValue) {
+    if (isFixed(i, j)) {
+      System.out.println("Attempted to update a fixed value! Aborting");
+      return;
+    }
+    placeValue(i * n + j, newValue);
+  }
+
+  /**
+   * Assigns the value to the cell, marks it as occupied in the cell's row, column, and box, and
+   * removes it as a candidate from the cell's peers.
+   */
+  private void placeValue(int cell, int value) {
+    long mask = 1L << value;
+    write(VALUES + cell, value);
+    write(candidatesOffset + cell, 0);
+    write(rowMasksOffset + cell / n, state[rowMasksOffset + cell / n] | mask);
+    write(columnMasksOffset + cell % n, state[columnMasksOffset + cell % n] | mask);
+    int boxSlot = boxMasksOffset + geometry.boxOf(cell);
+    write(boxSlot, state[boxSlot] | mask);
+    for (int peer : geometry.getPeers(cell)) {
+      long peerCandidates = state[candidatesOffset + peer];
+      if ((peerCandidates & mask) != 0) {
+        write(candidatesOffset + peer, peerCandidates & ~mask);
+      }
+    }
+  }
+
+  @Override
+  public void clearValue(int i, int j) {
+    if (!isFixed(i, j)) {
+      return;
+    }
+
+    int cell = i * n + j;
+    long valueMask = 1L << state[VALUES + cell];
+    write(VALUES + cell, 0);
+
+    // The same value may have been placed twice in a unit (the grid doesn't forbid it), so rebuild
+    // the occupancy of the cell's units from their values instead of just clearing the bit.
+    int box = geometry.boxOf(cell);
+    int[] rowCells = geometry.getRow(i);
+    int[] columnCells = geometry.getColumn(j);
+    int[] boxCells = geometry.getBox(box);
+    long rowMask = 0;
+    long columnMask = 0;
+    long boxMask = 0;
+    for (int k = 0; k < n; k++) {
+      rowMask |= 1L << state[VALUES + rowCells[k]];
+      columnMask |= 1L << state[VALUES + columnCells[k]];
+      boxMask |= 1L << state[VALUES + boxCells[k]];
+    }
+    // Unassigned cells contributed the 2^0 bit, which isn't a value.
+    write(rowMasksOffset + i, rowMask & allCandidates);
+    write(columnMasksOffset + j, columnMask & allCandidates);
+    write(boxMasksOffset + box, boxMask & allCandidates);
+
+    // Reset candidates for this element based on row, column, and box constraints
+    write(candidatesOffset + cell, allCandidates & ~(rowMask | columnMask | boxMask));
+
+    // Give the value back to the peers that it no longer conflicts with.
+    for (int peer : geometry.getPeers(cell)) {
+      long occupied = state[rowMasksOffset + peer / n] | state[columnMasksOffset + peer % n] |
+          state[boxMasksOffset + geometry.boxOf(peer)];
+      if (state[VALUES + peer] == 0 && (occupied & valueMask) == 0) {
+        write(candidatesOffset + peer, state[candidatesOffset + peer] | valueMask);
+      }
+    }
+  }
+
+  @Override
+  public Pair<Integer, Integer> getBoxCoordinates(int i, int j) {
+    return new Pair<>(i / boxSize, j / boxSize);
+  }
+
+  @Override
+  public List<Pair<Integer, Integer>> getRowElements(int i, int j) {
+    ArrayList<Pair<Integer, Integer>> elements = new ArrayList<>(n);
+    for (int c = 0; c < n; c++) {
+      elements.add(new Pair<>(i, c));
+    }
+    return elements;
+  }
+
+  @Override
+  public List<Pair<Integer, Integer>> getColumnElements(int i, int j) {
+    ArrayList<Pair<Integer, Integer>> elements = new ArrayList<>(n);
+    for (int r = 0; r < n; r++) {
+      elements.add(new Pair<>(r, j));
+    }
+    return elements;
+  }
+
+  @Override
+  public List<Pair<Integer, Integer>> getBoxElements(int i, int j) {
+    ArrayList<Pair<Integer, Integer>> elements = new ArrayList<>(n);
+    int boxRow = (i / boxSize) * boxSize;
+    int boxColumn = (j / boxSize) * boxSize;
+    for (int r = boxRow; r < boxRow + boxSize; r++) {
+      for (int c = boxColumn; c < boxColumn + boxSize; c++) {
+        elements.add(new Pair<>(r, c));
+      }
+    }
+    return elements;
+  }
+
+  @Override
+  public List<Pair<Integer, Integer>> getBoxElementsByCoordinates(Pair<Integer, Integer> boxCoordinates) {
+    return getBoxElements(boxCoordinates.first() * boxSize, boxCoordinates.second() * boxSize);
+  }
+
+  @Override
+  public boolean isACandidate(int i, int j, int value) {
+    // A fixed element should have only one candidate value: the element's value in the grid.
+    if (isFixed(i, j)) {
+      return value == getValue(i, j);
+    }
+    return (state[candidatesOffset + i * n + j] & (1L << value)) != 0;
+  }
+
+  @Override
+  public long getCandidateMask(int i, int j) {
+    // A fixed element should have only one candidate value: the element's value in the grid.
+    if (isFixed(i, j)) {
+      return 1L << getValue(i, j);
+    }
+    return state[candidatesOffset + i * n + j];
+  }
+
+  @Override
+  public void setCandidate(int i, int j, int value, boolean isCandidate) {
+    int cell = i * n + j;
+    if (isFixed(i, j)) {
+      write(candidatesOffset + cell, 0);
+    } else if (isCandidate) {
+      write(candidatesOffset + cell, state[candidatesOffset + cell] | (1L << value));
+    } else {
+      write(candidatesOffset + cell, state[candidatesOffset + cell] & ~(1L << value));
+    }
+  }
+
+  @Override
+  public boolean isFixed(int i, int j) {
+    return state[VALUES + i * n + j] != 0;
+  }
+
+  @Override
+  public boolean checkBasicConstraints() {
+    // The occupancy masks can't tell whether a value was placed twice, so check the values directly.
+    for (int k = 0; k < n; k++) {
+      long rowSeen = 0;
+      long columnSeen = 0;
+      long boxSeen = 0;
+      int boxRow = (k / boxSize) * boxSize;
+      int boxColumn = (k % boxSize) * boxSize;
+      for (int m = 0; m < n; m++) {
+        long rowValue = state[VALUES + k * n + m];
+        long columnValue = state[VALUES + m * n + k];
+        long boxValue = state[VALUES + (boxRow + m / boxSize) * n + boxColumn + m % boxSize];
+        if (rowValue != 0) {
+          if ((rowSeen & (1L << rowValue)) != 0) {
+            return false;
+          }
+          rowSeen |= 1L << rowValue;
+        }
+        if (columnValue != 0) {
+          if ((columnSeen & (1L << columnValue)) != 0) {
+            return false;
+          }
+          columnSeen |= 1L << columnValue;
+        }
+        if (boxValue != 0) {
+          if ((boxSeen & (1L << boxValue)) != 0) {
+            return false;
+          }
+          boxSeen |= 1L << boxValue;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean peekConstraintsOnPlace(int i, int j, int value) {
+    int cell = i * n + j;
+    if (state[VALUES + cell] != 0) {
+      return false;
+    }
+    long occupied = state[rowMasksOffset + i] | state[columnMasksOffset + j] | state[boxMasksOffset + geometry.boxOf(cell)];
+    return (occupied & (1L << value)) == 0;
+  }
+
+  @Override
+  public boolean isSolved() {
+    // Check that all elements are assigned a value.
+    for (int cell = 0; cell < cellCount; cell++) {
+      if (state[VALUES + cell] == 0) {
+        return false;
+      }
+    }
+
+    // With every element assigned, each group contains every number exactly once if and only if
+    // its occupancy mask is full (a repeated number would leave some other number missing).
+    for (int k = 0; k < n; k++) {
+      if (state[rowMasksOffset + k] != allCandidates || state[columnMasksOffset + k] != allCandidates ||
+          state[boxMasksOffset + k] != allCandidates) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String gridToString() {
+    StringBuilder output = new StringBuilder();
+    for (int r = 0; r < n; r++) {
+      for (int c = 0; c < n; c++) {
+        int value = getValue(r, c);
+        if (value == 0) {
+          output.append(' ');
+        } else {
+          output.append(CompactFormat.toChar(value));
+        }
+
+        if (c % boxSize == boxSize - 1 && c != n - 1) {
+          output.append('|');
+        }
+        if (c == n - 1) {
+          output.append('\n');
+        }
+      }
+      if (r % boxSize == boxSize - 1 && r != n - 1) {
+        for (int box = 0; box < boxSize; box++) {
+          output.append(box == 0 ? "" : "+").append("-".repeat(boxSize));
+        }
+        output.append('\n');
+      }
+    }
+    return output.toString();
+  }
+
+  @Override
+  public String compactString() {
+    char[] output = new char[cellCount];
+    for (int cell = 0; cell < cellCount; cell++) {
+      output[cell] = CompactFormat.toChar((int) state[VALUES + cell]);
+    }
+    return new String(output);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof BitboardSudokuGrid)) {
+      return false;
+    }
+    BitboardSudokuGrid otherGrid = (BitboardSudokuGrid) o;
+    return n == otherGrid.n && Arrays.equals(state, VALUES, candidatesOffset + cellCount,
+        otherGrid.state, VALUES, candidatesOffset + cellCount);
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 1;
+    for (int k = VALUES; k < candidatesOffset + cellCount; k++) {
+      hash = 31 * hash + Long.hashCode(state[k]);
+    }
+    return hash;
+  }
+
+  @Override
+  public boolean valuesEqual(ISquareSudokuGrid otherGrid) {
+    if (this.getDimension() != otherGrid.getDimension()) {
+      return false;
+    }
+    for (int r = 0; r < n; r++) {
+      for (int c = 0; c < n; c++) {
+        if (this.getValue(r, c) != otherGrid.getValue(r, c)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int checkpoint() {
+    if (trail == null) {
+      trail = new MutationTrail();
+    }
+    return trail.checkpoint();
+  }
+
+  @Override
+  public void rollback(int checkpoint) {
+    if (trail == null) {
+      throw new IllegalArgumentException("Invalid checkpoint: " + checkpoint);
+    }
+    trail.rollback(checkpoint, (slot, oldValue) -> state[slot] = oldValue);
+  }
+
+  @Override
+  public void clearCheckpoints() {
+    trail = null;
+  }
+
+  /**
+   * Writes a slot of the state, recording its old value if a checkpoint has been taken.
+   */
+  private void write(int slot, long value) {
+    if (trail != null && state[slot] != value) {
+      trail.record(slot, state[slot]);
+    }
+    state[slot] = value;
+  }
+}
@@ -0,0 +1,50 @@
+package main.grid.model;
+
+/**
+ * The compact, one-line string format of a grid: one character per element, in row-major order.
+ *
+ * <p>Empty elements are '.' (or '0'). Values 1 to 9 are written as the digits '1' to '9', and
+ * larger values continue with 'A' to 'Z' and then 'a', so that 16x16 grids use 1-9 and A-G,
+ * 25x25 grids use 1-9 and A-P, and 36x36 grids use 1-9, A-Z and a. The dimension of a grid is
+ * implied by the length of its string (81 characters for a 9x9 grid, 256 for 16x16, ...).</p>
+ */
+public final class CompactFormat {
+
+  private static final String ALPHABET = "123456789ABCDEFGHIJKLMNOPQRSTUVWXYZa";
+
+  private CompactFormat() {
+  }
+
+  /**
+   * Returns the dimension of the grid that a compact string of the given length describes.
+   * @param length  the length of the string
+   * @return  N such that N * N is the length, or 0 if there is no supported dimension
+   */
+  public static int dimensionOf(int length) {
+    int n = (int) Math.round(Math.sqrt(length));
+    return n * n == length && GridGeometry.isSupported(n) ? n : 0;
+  }
+
+  /**
+   * Returns the value written as the given character.
+   * @param ch  the character
+   * @param n the dimension of the grid
+   * @return  the value between 1 and N, 0 for an empty element, or -1 if the character is invalid
+   */
+  public static int parseValue(char ch, int n) {
+    if (ch == '.' || ch == '0') {
+      return 0;
+    }
+    int index = ALPHABET.indexOf(ch);
+    return index >= 0 && index < n ? index + 1 : -1;
+  }
+
+  /**
+   * Returns the character that the given value is written as.
+   * @param value the value between 1 and 36, or 0 for an empty element
+   * @return  the character
+   */
+  public static char toChar(int value) {
+    return value == 0 ? '.' : ALPHABET.charAt(value - 1);
+  }
+}
@@ -0,0 +1,218 @@
+package main.grid.model;
+
+/**
+ * Precomputed, immutable unit and peer tables for square Sudoku grids of a given dimension.
+ *
+ * <p>Cells are identified by their row-major index, i.e. the element at (i, j) has the index
+ * i * N + j. Units (the rows, columns, and boxes) are identified by a single index as well:
+ * rows are units 0, ..., N - 1, columns are units N, ..., 2N - 1 and boxes (in row-major order)
+ * are units 2N, ..., 3N - 1.</p>
+ *
+ * <p>The tables are built once per supported dimension and shared by every grid and solver, so
+ * the arrays returned by this class must never be modified.</p>
+ */
+public final class GridGeometry {
+
+  /** The dimensions for which tables are available (the perfect squares up to 36). */
+  private static final int[] SUPPORTED_DIMENSIONS = {1, 4, 9, 16, 25, 36};
+
+  private static final GridGeometry[] GEOMETRIES = new GridGeometry[37];
+
+  static {
+    for (int n : SUPPORTED_DIMENSIONS) {
+      GEOMETRIES[n] = new GridGeometry(n);
+    }
+  }
+
+  private final int n;
+
+  private final int boxSize;
+
+  private final int[] rowOf;
+
+  private final int[] columnOf;
+
+  private final int[] boxOf;
+
+  private final int[][] units;
+
+  private final int[][] peers;
+
+  private GridGeometry(int n) {
+    this.n = n;
+    this.boxSize = (int) Math.round(Math.sqrt(n));
+    int cellCount = n * n;
+
+    rowOf = new int[cellCount];
+    columnOf = new int[cellCount];
+    boxOf = new int[cellCount];
+    for (int cell = 0; cell < cellCount; cell++) {
+      rowOf[cell] = cell / n;
+      columnOf[cell] = cell % n;
+      boxOf[cell] = (rowOf[cell] / boxSize) * boxSize + columnOf[cell] / boxSize;
+    }
+
+    units = new int[3 * n][n];
+    for (int k = 0; k < n; k++) {
+      int boxRow = (k / boxSize) * boxSize;
+      int boxColumn = (k % boxSize) * boxSize;
+      for (int m = 0; m < n; m++) {
+        units[k][m] = k * n + m;
+        units[n + k][m] = m * n + k;
+        units[2 * n + k][m] = (boxRow + m / boxSize) * n + boxColumn + m % boxSize;
+      }
+    }
+
+    // Each cell sees N - 1 other cells in its row and column, and the cells of its box that
+    // aren't already in its row or column.
+    int peerCount = 2 * (n - 1) + (boxSize - 1) * (boxSize - 1);
+    peers = new int[cellCount][peerCount];
+    for (int cell = 0; cell < cellCount; cell++) {
+      int count = 0;
+      for (int other = 0; other < cellCount; other++) {
+        if (other != cell && (rowOf[other] == rowOf[cell] || columnOf[other] == columnOf[cell] ||
+            boxOf[other] == boxOf[cell])) {
+          peers[cell][count++] = other;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns whether tables are available for grids of the given dimension.
+   * @param n the dimension of the grid
+   * @return  true if the dimension is a perfect square between 1 and 36
+   */
+  public static boolean isSupported(int n) {
+    return n >= 0 && n < GEOMETRIES.length && GEOMETRIES[n] != null;
+  }
+
+  /**
+   * Returns the tables for grids of the given dimension.
+   * @param n the dimension of the grid
+   * @return  the shared tables for that dimension
+   * @throws IllegalArgumentException if the dimension isn't supported
+   */
+  public static GridGeometry forDimension(int n) {
+    if (!isSupported(n)) {
+      throw new IllegalArgumentException("Unsupported grid dimension: " + n);
+    }
+    return GEOMETRIES[n];
+  }
+
+  /**
+   * Returns the dimension N of the grid.
+   * @return  the number of elements in each row, column, and box
+   */
+  public int getDimension() {
+    return n;
+  }
+
+  /**
+   * Returns the number of rows (and columns) in each box, i.e. sqrt(N).
+   * @return  the box size
+   */
+  public int getBoxSize() {
+    return boxSize;
+  }
+
+  /**
+   * Returns the number of cells in the grid, i.e. N * N.
+   * @return  the number of cells
+   */
+  public int getCellCount() {
+    return n * n;
+  }
+
+  /**
+   * Returns the number of units (rows, columns, and boxes) in the grid, i.e. 3N.
+   * @return  the number of units
+   */
+  public int getUnitCount() {
+    return 3 * n;
+  }
+
+  /**
+   * Returns the row-major index of the element at (i, j).
+   * @param i the row coordinate of the element in the grid
+   * @param j the column coordinate of the element in the grid
+   * @return  the index of the cell
+   */
+  public int cellIndex(int i, int j) {
+    return i * n + j;
+  }
+
+  /**
+   * Returns the row coordinate of the given cell.
+   * @param cell  the index of the cell
+   * @return  the row that contains the cell
+   */
+  public int rowOf(int cell) {
+    return rowOf[cell];
+  }
+
+  /**
+   * Returns the column coordinate of the given cell.
+   * @param cell  the index of the cell
+   * @return  the column that contains the cell
+   */
+  public int columnOf(int cell) {
+    return columnOf[cell];
+  }
+
+  /**
+   * Returns the row-major index of the box that contains the given cell.
+   * @param cell  the index of the cell
+   * @return  the box (between 0 and N - 1 inclusive) that contains the cell
+   */
+  public int boxOf(int cell) {
+    return boxOf[cell];
+  }
+
+  /**
+   * Returns the indices of the N cells in the given row, in order of increasing column.
+   * @param i the row coordinate
+   * @return  the cells in the row (shared, must not be modified)
+   */
+  public int[] getRow(int i) {
+    return units[i];
+  }
+
+  /**
+   * Returns the indices of the N cells in the given column, in order of increasing row.
+   * @param j the column coordinate
+   * @return  the cells in the column (shared, must not be modified)
+   */
+  public int[] getColumn(int j) {
+    return units[n + j];
+  }
+
+  /**
+   * Returns the indices of the N cells in the given box, in row-major order.
+   * @param box the row-major index of the box
+   * @return  the cells in the box (shared, must not be modified)
+   */
+  public int[] getBox(int box) {
+    return units[2 * n + box];
+  }
+
+  /**
+   * Returns the indices of the N cells in the given unit (see the class description for how
+   * units are numbered).
+   * @param unit  the index of the unit
+   * @return  the cells in the unit (shared, must not be modified)
+   */
+  public int[] getUnit(int unit) {
+    return units[unit];
+  }
+
+  /**
+   * Returns the indices of the cells that share a row, column, or box with the given cell
+   * (excluding the cell itself).
+   * @param cell  the index of the cell
+   * @return  the peers of the cell (shared, must not be modified)
+   */
+  public int[] getPeers(int cell) {
+    return peers[cell];
+  }
+}
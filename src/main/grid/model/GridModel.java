@@ -1,5 +1,13 @@
 package main.grid.model;
 
+import main.solver.ConstraintBasedSolver;
+import main.solver.Deduction;
+import main.solver.ISquareSudokuSolver;
+import main.solver.SolverEvent;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 /**
  * The MVC model for the Sudoku grid.
  */
@@ -8,6 +16,16 @@ public class GridModel {
 
   private IViewAdapter view;
 
+  /** The solver that steps through the grid, or null if the next step has to start over. */
+  private ISquareSudokuSolver stepSolver;
+
+  // The edits that can be undone, newest first, each with the grid checkpoint taken before it.
+  // Undoing rolls the grid back to the checkpoint, so only the changes made by the edit are
+  // undone; the edit itself is kept so that it can be redone.
+  private final Deque<Runnable> undoEdits = new ArrayDeque<>();
+  private final Deque<Integer> undoCheckpoints = new ArrayDeque<>();
+  private final Deque<Runnable> redoEdits = new ArrayDeque<>();
+
   public GridModel(ISquareSudokuGrid grid, IViewAdapter viewAdpt) {
     this.grid = grid;
     this.view = viewAdpt;
@@ -24,4 +42,97 @@ public class GridModel {
   public IViewAdapter getViewAdapter() {
     return view;
   }
+
+  /**
+   * Sets the value of an element, as an edit that can be undone.
+   * @param i the row coordinate of the element in the grid
+   * @param j the column coordinate of the element in the grid
+   * @param value the new value
+   */
+  public void setValue(int i, int j, int value) {
+    edit(() -> grid.setValue(i, j, value));
+  }
+
+  /**
+   * Sets whether a value is a candidate of an element, as an edit that can be undone.
+   * @param i the row coordinate of the element in the grid
+   * @param j the column coordinate of the element in the grid
+   * @param value the candidate value
+   * @param isCandidate the new candidacy
+   */
+  public void setCandidate(int i, int j, int value, boolean isCandidate) {
+    edit(() -> grid.setCandidate(i, j, value, isCandidate));
+  }
+
+  /**
+   * Applies the next deduction to the grid, as an edit that can be undone. The solver is kept
+   * between steps, so each step only looks at what changed since the previous one.
+   * @return  the deduction, or null if no deduction could be made
+   */
+  public Deduction step() {
+    if (stepSolver == null) {
+      stepSolver = new ConstraintBasedSolver(grid);
+    }
+    int checkpoint = grid.checkpoint();
+    stepSolver.step();
+    Deduction deduction = stepSolver.getLastDeduction();
+    if (deduction != null) {
+      undoEdits.push(() -> replay(deduction));
+      undoCheckpoints.push(checkpoint);
+      redoEdits.clear();
+    }
+    return deduction;
+  }
+
+  /**
+   * Undoes the most recent edit or step.
+   * @return  false if there was nothing to undo
+   */
+  public boolean undo() {
+    if (undoEdits.isEmpty()) {
+      return false;
+    }
+    grid.rollback(undoCheckpoints.pop());
+    redoEdits.push(undoEdits.pop());
+    stepSolver = null;
+    return true;
+  }
+
+  /**
+   * Redoes the most recently undone edit or step.
+   * @return  false if there was nothing to redo
+   */
+  public boolean redo() {
+    if (redoEdits.isEmpty()) {
+      return false;
+    }
+    Runnable redoEdit = redoEdits.pop();
+    undoCheckpoints.push(grid.checkpoint());
+    undoEdits.push(redoEdit);
+    redoEdit.run();
+    stepSolver = null;
+    return true;
+  }
+
+  private void edit(Runnable change) {
+    undoCheckpoints.push(grid.checkpoint());
+    undoEdits.push(change);
+    change.run();
+    redoEdits.clear();
+    // The stepping solver doesn't know about the change, so the next step starts over.
+    stepSolver = null;
+  }
+
+  /**
+   * Makes the same changes to the grid as a deduction made before.
+   */
+  private void replay(Deduction deduction) {
+    for (SolverEvent event : deduction.getEvents()) {
+      if (event.getType() == SolverEvent.Type.PLACEMENT) {
+        grid.setValue(event.getRow(), event.getColumn(), event.getValue());
+      } else if (event.getType() == SolverEvent.Type.ELIMINATION) {
+        grid.setCandidate(event.getRow(), event.getColumn(), event.getValue(), false);
+      }
+    }
+  }
 }
@@ -4,6 +4,7 @@ import main.util.Pair;
 
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Interface for grids of square Sudoku variants.
@@ -47,7 +48,10 @@ public interface ISquareSudokuGrid {
 
   /**
    * Updates the grid at (i, j) to remove the fixed value. Also updates the candidates
-   * of that element based on basic row, column, and box constraints.
+   * of that element based on basic row, column, and box constraints, and makes the value a
+   * candidate again of each empty peer that it no longer conflicts with (as if the value had
+   * never been placed; other candidates removed from the peers stay removed). Does nothing if
+   * the element has no value.
    * @param i the row coordinate of the element in the grid
    * @param j the column coordinate of the element in the grid
    */
@@ -98,6 +102,60 @@ public interface ISquareSudokuGrid {
    */
   List<Pair<Integer, Integer>> getBoxElementsByCoordinates(Pair<Integer, Integer> boxCoordinates);
 
+  /**
+   * Returns the precomputed unit and peer tables for grids of this grid's dimension. Cells are
+   * identified by their row-major index, i.e. the element at (i, j) has the index i * N + j.
+   * @return  the shared tables for this grid's dimension
+   */
+  default GridGeometry getGeometry() {
+    return GridGeometry.forDimension(getDimension());
+  }
+
+  /**
+   * Returns the row-major indices of the N elements in row i of the grid. Unlike
+   * {@link #getRowElements(int, int)}, this doesn't allocate: the returned array is shared and
+   * must not be modified.
+   * @param i the row coordinate
+   * @return  the indices of all elements in the row
+   */
+  default int[] getRowCells(int i) {
+    return getGeometry().getRow(i);
+  }
+
+  /**
+   * Returns the row-major indices of the N elements in column j of the grid. The returned array
+   * is shared and must not be modified.
+   * @param j the column coordinate
+   * @return  the indices of all elements in the column
+   */
+  default int[] getColumnCells(int j) {
+    return getGeometry().getColumn(j);
+  }
+
+  /**
+   * Returns the row-major indices of the N elements in the same box as the element at (i, j).
+   * The returned array is shared and must not be modified.
+   * @param i the row coordinate of the element in the grid
+   * @param j the column coordinate of the element in the grid
+   * @return  the indices of all elements in the same box as the given element
+   */
+  default int[] getBoxCells(int i, int j) {
+    GridGeometry geometry = getGeometry();
+    return geometry.getBox(geometry.boxOf(geometry.cellIndex(i, j)));
+  }
+
+  /**
+   * Returns the row-major indices of the elements in the same row, column, or box as the element
+   * at (i, j), excluding the element itself. The returned array is shared and must not be modified.
+   * @param i the row coordinate of the element in the grid
+   * @param j the column coordinate of the element in the grid
+   * @return  the indices of the peers of the given element
+   */
+  default int[] getPeerCells(int i, int j) {
+    GridGeometry geometry = getGeometry();
+    return geometry.getPeers(geometry.cellIndex(i, j));
+  }
+
   /**
    * Returns whether the value is marked as a candidate for the element at (i, j). value must
    * be between 1 and N inclusive.
@@ -109,12 +167,53 @@ public interface ISquareSudokuGrid {
   boolean isACandidate(int i, int j, int value);
 
   /**
-   * Returns a set of candidate values for the element at (i, j) in the grid.
+   * Returns the candidate values for the element at (i, j) as a bit string, where the 2^value bit
+   * is set if value is a candidate. A fixed element's only candidate is its value. Unlike
+   * {@link #getCandidateValues(int, int)}, this doesn't allocate, so solvers should prefer it.
+   * @param i the row coordinate of the element in the grid
+   * @param j the column coordinate of the element in the grid
+   * @return  the candidate values of the given element, as a bit string
+   */
+  long getCandidateMask(int i, int j);
+
+  /**
+   * Returns the number of candidate values for the element at (i, j) in the grid.
+   * @param i the row coordinate of the element in the grid
+   * @param j the column coordinate of the element in the grid
+   * @return  the number of candidate values of the given element
+   */
+  default int getCandidateCount(int i, int j) {
+    return Long.bitCount(getCandidateMask(i, j));
+  }
+
+  /**
+   * Returns the smallest candidate value for the element at (i, j) that is greater than after,
+   * so that the candidates can be iterated over without allocating:
+   * <pre>for (int v = grid.nextCandidate(i, j, 0); v != 0; v = grid.nextCandidate(i, j, v))</pre>
+   * @param i the row coordinate of the element in the grid
+   * @param j the column coordinate of the element in the grid
+   * @param after the value to start after, between 0 and N inclusive
+   * @return  the next candidate value of the given element, or 0 if there is none
+   */
+  default int nextCandidate(int i, int j, int after) {
+    long remaining = getCandidateMask(i, j) & (-1L << (after + 1));
+    return remaining == 0 ? 0 : Long.numberOfTrailingZeros(remaining);
+  }
+
+  /**
+   * Returns a set of candidate values for the element at (i, j) in the grid. This allocates a new
+   * set for each call; see {@link #getCandidateMask(int, int)}.
    * @param i the row coordinate of the element in the grid
    * @param j the column coordinate of the element in the grid
    * @return  a set containing all candidate values for the given element
    */
-  Set<Integer> getCandidateValues(int i, int j);
+  default Set<Integer> getCandidateValues(int i, int j) {
+    Set<Integer> candidateValues = new TreeSet<>();
+    for (long remaining = getCandidateMask(i, j); remaining != 0; remaining &= remaining - 1) {
+      candidateValues.add(Long.numberOfTrailingZeros(remaining));
+    }
+    return candidateValues;
+  }
 
   /**
    * Updates the grid with the element at (i, j) set to either have value as a candidate
@@ -173,4 +272,26 @@ public interface ISquareSudokuGrid {
    * @return  whether the other grid has the same values as the current grid
    */
   boolean valuesEqual(ISquareSudokuGrid otherGrid);
+
+  /**
+   * Returns a checkpoint that {@link #rollback(int)} can return the grid to. From the first
+   * checkpoint on, every change made by {@link #setValue}, {@link #clearValue} and
+   * {@link #setCandidate} is recorded, until {@link #clearCheckpoints()} is called. Copies of the
+   * grid don't share the record.
+   * @return  the checkpoint
+   */
+  int checkpoint();
+
+  /**
+   * Undoes every change made since the checkpoint, in time proportional to the number of changes.
+   * Checkpoints taken after this one can't be used anymore; this one (and earlier ones) can.
+   * @param checkpoint  a checkpoint returned by {@link #checkpoint()}
+   * @throws IllegalArgumentException if the grid has already been rolled back past the checkpoint
+   */
+  void rollback(int checkpoint);
+
+  /**
+   * Forgets the recorded changes and stops recording. Earlier checkpoints can't be used anymore.
+   */
+  void clearCheckpoints();
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package main.grid.model;
+
+import java.util.Arrays;
+
+/**
+ * The writes made to a grid's state since its first checkpoint: for each write, the index of the
+ * slot that was written and the value that it held before. Rolling back to a checkpoint restores
+ * the slots in reverse order, so it takes time proportional to the number of writes undone.
+ *
+ * <p>What a slot index means is up to the grid (e.g. an index into its state array).</p>
+ */
+final class MutationTrail {
+
+  /** Restores a slot of the grid's state to an earlier value. */
+  interface SlotRestorer {
+    void restore(int slot, long oldValue);
+  }
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private int[] slots = new int[INITIAL_CAPACITY];
+  private long[] oldValues = new long[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Gets a checkpoint for the current state: the number of writes recorded so far.
+   */
+  int checkpoint() {
+    return size;
+  }
+
+  void record(int slot, long oldValue) {
+    if (size == slots.length) {
+      slots = Arrays.copyOf(slots, 2 * size);
+      oldValues = Arrays.copyOf(oldValues, 2 * size);
+    }
+    slots[size] = slot;
+    oldValues[size] = oldValue;
+    size++;
+  }
+
+  /**
+   * Undoes the writes recorded after the checkpoint, newest first.
+   * @throws IllegalArgumentException if the checkpoint has already been rolled back past
+   */
+  void rollback(int checkpoint, SlotRestorer restorer) {
+    if (checkpoint < 0 || checkpoint > size) {
+      throw new IllegalArgumentException("Invalid checkpoint: " + checkpoint);
+    }
+    while (size > checkpoint) {
+      size--;
+      restorer.restore(slots[size], oldValues[size]);
+    }
+  }
+}
@@ -5,46 +5,82 @@ import main.util.Pair;
 import java.util.*;
 
 /**
- * Representation of a standard, 9x9 Sudoku grid.
+ * Representation of a Sudoku grid of any supported dimension (the standard 9x9 grid by default,
+ * or 16x16, 25x25, and 36x36 variants).
+ *
+ * <p>The candidates of each element are kept as a bit string, where the 2^value bit is set if
+ * value is a candidate, in a long so that values up to 36 fit.</p>
  */
 public class StandardSudokuGrid implements ISquareSudokuGrid {
 
-  private static final int N = 9;
+  private static final int DEFAULT_DIMENSION = 9;
 
-  private int[][] values = new int[N][N];
+  private final int n;
 
-  private int[][] candidateSets = new int[N][N];
+  private final int boxSize;
+
+  private final GridGeometry geometry;
+
+  private int[][] values;
+
+  private long[][] candidateSets;
+
+  /**
+   * The number of times each value is placed in each unit, at index unit * (N + 1) + value (rows
+   * are units 0 to N - 1, columns N to 2N - 1, and boxes 2N to 3N - 1). A count can exceed one,
+   * since the grid doesn't forbid placing a value twice in a unit.
+   */
+  private int[] unitCounts;
 
   /**
-   * Creates an empty Sudoku grid.
+   * The changes since the first checkpoint, or null if no checkpoint was taken. The slots of the
+   * trail are the element indices (i * N + j) for values, N * N more for candidates, and 2 * N * N
+   * more for the unit counts.
+   */
+  private MutationTrail trail;
+
+  /**
+   * Creates an empty, standard 9x9 Sudoku grid.
    */
   public StandardSudokuGrid() {
-    for (int r = 0; r < N; r++) {
-      for (int c = 0; c < N; c++) {
-        values[r][c] = 0;
-        for (int value = 1; value <= N; value++) {
-          setCandidate(r, c, value, true);
-        }
-      }
+    this(DEFAULT_DIMENSION);
+  }
+
+  /**
+   * Creates an empty Sudoku grid of the given dimension.
+   * @param dimension the number of elements in each row, column, and box
+   * @throws IllegalArgumentException if the dimension isn't supported (see {@link GridGeometry})
+   */
+  public StandardSudokuGrid(int dimension) {
+    this.geometry = GridGeometry.forDimension(dimension);
+    this.n = dimension;
+    this.boxSize = geometry.getBoxSize();
+    this.values = new int[n][n];
+    this.candidateSets = new long[n][n];
+    this.unitCounts = new int[3 * n * (n + 1)];
+    long allCandidates = ((1L << n) - 1) << 1;
+    for (int r = 0; r < n; r++) {
+      Arrays.fill(candidateSets[r], allCandidates);
     }
   }
 
   /**
-   * Creates a Sudoku grid with the given initial values.
+   * Creates a Sudoku grid with the given initial values. The dimension of the grid is implied by
+   * the length of the string (see {@link CompactFormat}); strings of any other length are read as
+   * a 9x9 grid.
    * @param compactValues a String containing the initial values
    */
   public StandardSudokuGrid(String compactValues) {
-    this();
+    this(dimensionOf(compactValues));
     int length = compactValues.length();
-    if (length != 81) {
-      System.out.println("Invalid string: length is not 81!");
-    }
-    for (int i = 0; i < length; i++) {
-      if (compactValues.charAt(i) == '.') {
-        values[i / N][i % N] = 0;
-      } else if (compactValues.charAt(i) >= '1' && compactValues.charAt(i) <= '9') {
-        setValue(i / N, i % N, Character.getNumericValue(compactValues.charAt(i)));
-      } else {
+    if (length != n * n) {
+      System.out.println("Invalid string: length is not " + n * n + "!");
+    }
+    for (int i = 0; i < length && i < n * n; i++) {
+      int value = CompactFormat.parseValue(compactValues.charAt(i), n);
+      if (value > 0) {
+        setValue(i / n, i % n, value);
+      } else if (value < 0) {
         System.out.println("Invalid string: invalid character: " + compactValues.charAt(i));
       }
     }
@@ -56,9 +92,9 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
    * @param initialValues a two-dimensional (N by N) array containing the initial values
    */
   public StandardSudokuGrid(int[][] initialValues) {
-    this();
-    for (int r = 0; r < N; r++) {
-      for (int c = 0; c < N; c++) {
+    this(initialValues.length);
+    for (int r = 0; r < n; r++) {
+      for (int c = 0; c < n; c++) {
         if (initialValues[r][c] != 0) {
           setValue(r, c, initialValues[r][c]);
         }
@@ -74,27 +110,70 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
    *                      that store which values are candidates
    */
   public StandardSudokuGrid(int[][] initialValues, int[][] candidateSets) {
-    this.values = getGridCopy(initialValues);
-    this.candidateSets = getGridCopy(candidateSets);
+    this(initialValues, toLongs(candidateSets), null);
+  }
+
+  /**
+   * @param unitCounts  the counts of each value in each unit to copy, or null to count them
+   */
+  private StandardSudokuGrid(int[][] initialValues, long[][] candidateSets, int[] unitCounts) {
+    this.n = initialValues.length;
+    this.geometry = GridGeometry.forDimension(n);
+    this.boxSize = geometry.getBoxSize();
+    this.values = new int[n][];
+    this.candidateSets = new long[n][];
+    // Copy each row to keep the arrays separate in memory.
+    for (int i = 0; i < n; i++) {
+      this.values[i] = initialValues[i].clone();
+      this.candidateSets[i] = candidateSets[i].clone();
+    }
+    if (unitCounts != null) {
+      this.unitCounts = unitCounts.clone();
+      return;
+    }
+    this.unitCounts = new int[3 * n * (n + 1)];
+    int stride = n + 1;
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        int value = values[i][j];
+        if (value != 0) {
+          this.unitCounts[i * stride + value]++;
+          this.unitCounts[(n + j) * stride + value]++;
+          this.unitCounts[(2 * n + geometry.boxOf(i * n + j)) * stride + value]++;
+        }
+      }
+    }
   }
 
   @Override
   public StandardSudokuGrid copy() {
-    return new StandardSudokuGrid(values, candidateSets);
+    return new StandardSudokuGrid(values, candidateSets, unitCounts);
+  }
+
+  private static int dimensionOf(String compactValues) {
+    int dimension = CompactFormat.dimensionOf(compactValues.length());
+    return dimension > 0 ? dimension : DEFAULT_DIMENSION;
   }
 
-  private int[][] getGridCopy(int[][] grid) {
-    int[][] copy = new int[grid.length][grid[0].length];
-    // Manual array copy required to keep the arrays separate in memory.
-    for (int i = 0; i < N; i++) {
-      System.arraycopy(grid[i], 0, copy[i], 0, N);
+  private static long[][] toLongs(int[][] grid) {
+    long[][] copy = new long[grid.length][];
+    for (int i = 0; i < grid.length; i++) {
+      copy[i] = new long[grid[i].length];
+      for (int j = 0; j < grid[i].length; j++) {
+        copy[i][j] = grid[i][j];
+      }
     }
     return copy;
   }
 
   @Override
   public int getDimension() {
-    return N;
+    return n;
+  }
+
+  @Override
+  public GridGeometry getGeometry() {
+    return geometry;
   }
 
   @Override
@@ -109,19 +188,21 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
       return;
     }
 
-    values[i][j] = newValue;
+    writeValue(i, j, newValue);
+    writeCandidates(i, j, 0);
+    int box = 2 * n + geometry.boxOf(i * n + j);
+    writeCount(i, newValue, unitCounts[i * (n + 1) + newValue] + 1);
+    writeCount(n + j, newValue, unitCounts[(n + j) * (n + 1) + newValue] + 1);
+    writeCount(box, newValue, unitCounts[box * (n + 1) + newValue] + 1);
 
     // Update constraints for elements in the same row, column, and box.
-    for (Pair<Integer, Integer> sameRowCoord : getRowElements(i, j)) {
-      setCandidate(sameRowCoord.first(), sameRowCoord.second(), newValue, false);
-    }
-
-    for (Pair<Integer, Integer> sameColCoord : getColumnElements(i, j)) {
-      setCandidate(sameColCoord.first(), sameColCoord.second(), newValue, false);
-    }
-
-    for (Pair<Integer, Integer> sameBoxCoord : getBoxElements(i, j)) {
-      setCandidate(sameBoxCoord.first(), sameBoxCoord.second(), newValue, false);
+    long mask = 1L << newValue;
+    for (int peer : geometry.getPeers(i * n + j)) {
+      int r = peer / n;
+      int c = peer % n;
+      if (!isFixed(r, c) && (candidateSets[r][c] & mask) != 0) {
+        writeCandidates(r, c, candidateSets[r][c] & ~mask);
+      }
     }
   }
 
@@ -131,26 +212,42 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
       return;
     }
 
-    values[i][j] = 0;
+    int oldValue = values[i][j];
+    writeValue(i, j, 0);
+    int box = 2 * n + geometry.boxOf(i * n + j);
+    writeCount(i, oldValue, unitCounts[i * (n + 1) + oldValue] - 1);
+    writeCount(n + j, oldValue, unitCounts[(n + j) * (n + 1) + oldValue] - 1);
+    writeCount(box, oldValue, unitCounts[box * (n + 1) + oldValue] - 1);
 
-    // Reset candidates for this element based on  row, column, and box constraints
-    for (int candidate = 1; candidate <= 9; candidate++) {
-      setCandidate(i, j, candidate, false);
+    // Reset candidates for this element based on row, column, and box constraints
+    long candidates = 0;
+    for (int candidate = 1; candidate <= n; candidate++) {
       if (peekConstraintsOnPlace(i, j, candidate)) {
-        setCandidate(i, j, candidate, true);;
+        candidates |= 1L << candidate;
+      }
+    }
+    writeCandidates(i, j, candidates);
+
+    // Give the value back to the peers that it no longer conflicts with.
+    long mask = 1L << oldValue;
+    for (int peer : geometry.getPeers(i * n + j)) {
+      int r = peer / n;
+      int c = peer % n;
+      if (peekConstraintsOnPlace(r, c, oldValue)) {
+        writeCandidates(r, c, candidateSets[r][c] | mask);
       }
     }
   }
 
   @Override
   public Pair<Integer, Integer> getBoxCoordinates(int i, int j) {
-    return new Pair<>(i / 3, j / 3); // should depend on N
+    return new Pair<>(i / boxSize, j / boxSize);
   }
 
   @Override
   public List<Pair<Integer, Integer>> getRowElements(int i, int j) {
-    ArrayList<Pair<Integer, Integer>> elements = new ArrayList<>(9);
-    for (int c = 0; c < N; c++) {
+    ArrayList<Pair<Integer, Integer>> elements = new ArrayList<>(n);
+    for (int c = 0; c < n; c++) {
       elements.add(new Pair<>(i, c));
     }
     return elements;
@@ -158,8 +255,8 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
 
   @Override
   public List<Pair<Integer, Integer>> getColumnElements(int i, int j) {
-    ArrayList<Pair<Integer, Integer>> elements = new ArrayList<>(9);
-    for (int r = 0; r < N; r++) {
+    ArrayList<Pair<Integer, Integer>> elements = new ArrayList<>(n);
+    for (int r = 0; r < n; r++) {
       elements.add(new Pair<>(r, j));
     }
     return elements;
@@ -167,11 +264,11 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
 
   @Override
   public List<Pair<Integer, Integer>> getBoxElements(int i, int j) {
-    ArrayList<Pair<Integer, Integer>> elements = new ArrayList<>(9);
+    ArrayList<Pair<Integer, Integer>> elements = new ArrayList<>(n);
     Pair<Integer, Integer> boxCoordinates = getBoxCoordinates(i, j);
-    for (int r = 0; r < 3; r++) { // should depend on N
-      for (int c = 0; c < 3; c++) {
-        elements.add(new Pair<>(boxCoordinates.first() * 3 + r, boxCoordinates.second() * 3 + c)); // should depend on N
+    for (int r = 0; r < boxSize; r++) {
+      for (int c = 0; c < boxSize; c++) {
+        elements.add(new Pair<>(boxCoordinates.first() * boxSize + r, boxCoordinates.second() * boxSize + c));
       }
     }
     return elements;
@@ -179,7 +276,7 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
 
   @Override
   public List<Pair<Integer, Integer>> getBoxElementsByCoordinates(Pair<Integer, Integer> boxCoordinates) {
-    return getBoxElements(boxCoordinates.first() * 3, boxCoordinates.second() * 3); // should depend on N
+    return getBoxElements(boxCoordinates.first() * boxSize, boxCoordinates.second() * boxSize);
   }
 
   @Override
@@ -189,36 +286,29 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
       return value == getValue(i, j);
     }
 
-    int mask = 0x0001 << value; // the 2^value bit is set to 1, all other bits are set to 0.
+    long mask = 1L << value; // the 2^value bit is set to 1, all other bits are set to 0.
     return (candidateSets[i][j] & mask) != 0;
   }
 
   @Override
-  public Set<Integer> getCandidateValues(int i, int j) {
+  public long getCandidateMask(int i, int j) {
     // A fixed element should have only one candidate value: the element's value in the grid.
     if (isFixed(i, j)) {
-      return new TreeSet<>(Collections.singleton(getValue(i, j)));
-    }
-
-    Set<Integer> candidateValues = new TreeSet<>();
-    for (int value = 1; value <= 9; value++) { // TODO should depend on dimension
-      if (isACandidate(i, j, value)) {
-        candidateValues.add(value);
-      }
+      return 1L << getValue(i, j);
     }
-    return candidateValues;
+    return candidateSets[i][j];
   }
 
   @Override
   public void setCandidate(int i, int j, int value, boolean isCandidate) {
     if (isFixed(i, j)) {
-      candidateSets[i][j] = 0;
+      writeCandidates(i, j, 0);
     } else {
-      int mask = 0x0001 << value; // the 2^value bit is set to 1, all other bits are set to 0.
+      long mask = 1L << value; // the 2^value bit is set to 1, all other bits are set to 0.
       if (isCandidate) {
-        candidateSets[i][j] = candidateSets[i][j] | mask;
+        writeCandidates(i, j, candidateSets[i][j] | mask);
       } else {
-        candidateSets[i][j] = candidateSets[i][j] & ~mask;
+        writeCandidates(i, j, candidateSets[i][j] & ~mask);
       }
     }
   }
@@ -231,7 +321,7 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
   @Override
   public boolean checkBasicConstraints() {
     // check that each row has no repeated values
-    for (int r = 0; r < 9; r++) {
+    for (int r = 0; r < n; r++) {
       List<Pair<Integer, Integer>> rowElements = getRowElements(r, 0);
       Set<Integer> rowValues = new HashSet<>();
       for (Pair<Integer, Integer> coord : rowElements) {
@@ -246,7 +336,7 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
     }
 
     // check that each column has no repeated values
-    for (int c = 0; c < 9; c++) {
+    for (int c = 0; c < n; c++) {
       List<Pair<Integer, Integer>> columnElements = getColumnElements(0, c);
       Set<Integer> columnValues = new HashSet<>();
       for (Pair<Integer, Integer> coord : columnElements) {
@@ -261,8 +351,8 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
     }
 
     // check that each box has no repeated values
-    for (int r = 0; r < 9; r += 3) {
-      for (int c = 0; c < 9; c += 3) {
+    for (int r = 0; r < n; r += boxSize) {
+      for (int c = 0; c < n; c += boxSize) {
         List<Pair<Integer, Integer>> boxElements = getBoxElements(r, c);
         Set<Integer> boxValues = new HashSet<>();
         for (Pair<Integer, Integer> coord : boxElements) {
@@ -287,106 +377,59 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
       return false;
     }
 
-    // check that the value is not already in the row
-    List<Pair<Integer, Integer>> rowElementCoords = getRowElements(i, j);
-    for (Pair<Integer, Integer> coords : rowElementCoords) {
-      if (getValue(coords.first(), coords.second()) == value) {
-        return false;
-      }
-    }
-
-    // check that the value is not already in the column
-    List<Pair<Integer, Integer>> columnElementCoords = getColumnElements(i, j);
-    for (Pair<Integer, Integer> coords : columnElementCoords) {
-      if (getValue(coords.first(), coords.second()) == value) {
-        return false;
-      }
-    }
-
-    // check that the value is not already in the box
-    List<Pair<Integer, Integer>> boxElementCoords = getBoxElements(i, j);
-    for (Pair<Integer, Integer> coords : boxElementCoords) {
-      if (getValue(coords.first(), coords.second()) == value) {
-        return false;
-      }
-    }
-
-    return true;
+    // check that the value is not already in the row, column, or box
+    int stride = n + 1;
+    return unitCounts[i * stride + value] == 0 && unitCounts[(n + j) * stride + value] == 0 &&
+        unitCounts[(2 * n + geometry.boxOf(i * n + j)) * stride + value] == 0;
   }
 
   @Override
   public boolean isSolved() {
     // Check that all elements are assigned a value.
-    for (int r = 0; r < this.getDimension(); r++) {
-      for (int c = 0; c < this.getDimension(); c++) {
-        if (!this.isFixed(r, c)) {
+    for (int r = 0; r < n; r++) {
+      for (int c = 0; c < n; c++) {
+        if (!isFixed(r, c)) {
           return false;
         }
       }
     }
 
-    // Check each row, column, and box (every number must appear exactly once).
-    for (int r = 0; r < this.getDimension(); r++) {
-      Set<Integer> values = new TreeSet<>();
-      List<Pair<Integer, Integer>> elements = this.getRowElements(r, 0);
-      for (Pair<Integer, Integer> coords : elements) {
-        if (values.contains(this.getValue(coords.first(), coords.second()))) {
-          return false; // Same number appears twice in the row
-        } else {
-          values.add(this.getValue(coords.first(), coords.second()));
-        }
-      }
-    }
-
-    for (int c = 0; c < this.getDimension(); c++) {
-      Set<Integer> values = new TreeSet<>();
-      List<Pair<Integer, Integer>> elements = this.getColumnElements(0, c);
-      for (Pair<Integer, Integer> coords : elements) {
-        if (values.contains(this.getValue(coords.first(), coords.second()))) {
-          return false; // Same number appears twice in the column
-        } else {
-          values.add(this.getValue(coords.first(), coords.second()));
-        }
-      }
-    }
-
-    for (int r = 0; r < this.getDimension(); r += Math.sqrt(this.getDimension())) {
-      for (int c = 0; c < this.getDimension(); c += Math.sqrt(this.getDimension())) {
-        Set<Integer> values = new TreeSet<>();
-        List<Pair<Integer, Integer>> elements = this.getBoxElements(r, c);
-        for (Pair<Integer, Integer> coords : elements) {
-          if (values.contains(this.getValue(coords.first(), coords.second()))) {
-            return false; // Same number appears twice in the box
-          } else {
-            values.add(this.getValue(coords.first(), coords.second()));
-          }
+    // Check each row, column, and box with the counts of its values (every number must appear
+    // exactly once), which are kept up to date as values are placed and cleared.
+    int stride = n + 1;
+    for (int unit = 0; unit < 3 * n; unit++) {
+      for (int value = 1; value <= n; value++) {
+        if (unitCounts[unit * stride + value] != 1) {
+          return false;
         }
       }
     }
-
     return true;
   }
 
   @Override
   public String gridToString() {
     StringBuilder output = new StringBuilder();
-    for (int r = 0; r < 9; r++) {
-      for (int c = 0; c < 9; c++) {
+    for (int r = 0; r < n; r++) {
+      for (int c = 0; c < n; c++) {
         if (values[r][c] == 0) {
           output.append(' ');
         } else {
-          output.append(values[r][c]);
+          output.append(CompactFormat.toChar(values[r][c]));
         }
 
-        if (c == 2 || c == 5) {
+        if (c % boxSize == boxSize - 1 && c != n - 1) {
           output.append('|');
         }
-        if (c == 8) {
+        if (c == n - 1) {
           output.append('\n');
         }
       }
-      if (r == 2 || r == 5) {
-        output.append("---+---+---\n");
+      if (r % boxSize == boxSize - 1 && r != n - 1) {
+        for (int box = 0; box < boxSize; box++) {
+          output.append(box == 0 ? "" : "+").append("-".repeat(boxSize));
+        }
+        output.append('\n');
       }
     }
     return output.toString();
@@ -394,14 +437,10 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
 
   @Override
   public String compactString() {
-    StringBuilder output = new StringBuilder();
-    for (int r = 0; r < 9; r++) {
-      for (int c = 0; c < 9; c++) {
-        if (values[r][c] == 0) {
-          output.append('.');
-        } else {
-          output.append(values[r][c]);
-        }
+    StringBuilder output = new StringBuilder(n * n);
+    for (int r = 0; r < n; r++) {
+      for (int c = 0; c < n; c++) {
+        output.append(CompactFormat.toChar(values[r][c]));
       }
     }
     return output.toString();
@@ -419,7 +458,7 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
     for (int r = 0; r < this.getDimension(); r++) {
       for (int c = 0; c < this.getDimension(); c++) {
         if (this.getValue(r, c) != otherGrid.getValue(r, c) &&
-            !this.getCandidateValues(r, c).equals(otherGrid.getCandidateValues(r, c))) {
+            this.getCandidateMask(r, c) != otherGrid.getCandidateMask(r, c)) {
           return false;
         }
       }
@@ -442,4 +481,55 @@ public class StandardSudokuGrid implements ISquareSudokuGrid {
     return true;
   }
 
+  @Override
+  public int checkpoint() {
+    if (trail == null) {
+      trail = new MutationTrail();
+    }
+    return trail.checkpoint();
+  }
+
+  @Override
+  public void rollback(int checkpoint) {
+    if (trail == null) {
+      throw new IllegalArgumentException("Invalid checkpoint: " + checkpoint);
+    }
+    int cellCount = n * n;
+    trail.rollback(checkpoint, (slot, oldValue) -> {
+      if (slot < cellCount) {
+        values[slot / n][slot % n] = (int) oldValue;
+      } else if (slot < 2 * cellCount) {
+        candidateSets[(slot - cellCount) / n][(slot - cellCount) % n] = oldValue;
+      } else {
+        unitCounts[slot - 2 * cellCount] = (int) oldValue;
+      }
+    });
+  }
+
+  @Override
+  public void clearCheckpoints() {
+    trail = null;
+  }
+
+  private void writeValue(int i, int j, int value) {
+    if (trail != null && values[i][j] != value) {
+      trail.record(i * n + j, values[i][j]);
+    }
+    values[i][j] = value;
+  }
+
+  private void writeCandidates(int i, int j, long candidates) {
+    if (trail != null && candidateSets[i][j] != candidates) {
+      trail.record(n * n + i * n + j, candidateSets[i][j]);
+    }
+    candidateSets[i][j] = candidates;
+  }
+
+  private void writeCount(int unit, int value, int count) {
+    int index = unit * (n + 1) + value;
+    if (trail != null) {
+      trail.record(2 * n * n + index, unitCounts[index]);
+    }
+    unitCounts[index] = count;
+  }
 }
@@ -1,10 +1,10 @@
 package main.grid.view;
 
+import main.solver.Deduction;
 import main.util.DisplayStrings;
 
 import javax.swing.*;
 import java.util.Scanner;
-import java.util.Set;
 
 /**
  * The view (GUI) for the Sudoku grid.
@@ -37,6 +37,9 @@ public class GridView extends JFrame {
       System.out.println("1. Update a value");
       System.out.println("2. Update a candidate value");
       System.out.println("3. View candidate values for an element");
+      System.out.println("4. Apply the next deduction");
+      System.out.println("5. Undo");
+      System.out.println("6. Redo");
       System.out.println("0. Quit");
       int option = Integer.parseInt(inputReader.nextLine());
       if (option == 1) {
@@ -57,9 +60,20 @@ public class GridView extends JFrame {
         String[] tokens = line.split("\\s*,\\s*");
         int i = Integer.parseInt(tokens[0]);
         int j = Integer.parseInt(tokens[1]);
-        Set<Integer> candidates = model.getCandidateValues(i, j);
+        long candidates = model.getCandidateMask(i, j);
         System.out.print("Candidate values for (" + i + ", " + j + "): ");
-        System.out.println(DisplayStrings.setToString(candidates));
+        System.out.println(DisplayStrings.bitsToString(candidates));
+      } else if (option == 4) {
+        Deduction deduction = model.applyNextStep();
+        System.out.println(deduction == null ? "No further deductions can be made" : deduction);
+      } else if (option == 5) {
+        if (!model.undo()) {
+          System.out.println("Nothing to undo");
+        }
+      } else if (option == 6) {
+        if (!model.redo()) {
+          System.out.println("Nothing to redo");
+        }
       } else if (option == 0) {
         break;
       }
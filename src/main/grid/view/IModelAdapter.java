@@ -1,6 +1,6 @@
 package main.grid.view;
 
-import java.util.Set;
+import main.solver.Deduction;
 
 /**
  * The adapter that allows the view to talk to the model.
@@ -28,6 +28,26 @@ public interface IModelAdapter {
    * Tells the model to return the candidate values for the given grid element.
    * @param i the row coordinate of the element in the grid
    * @param j the column coordinate of the element in the grid
+   * @return  the candidate values, as a bit string where the 2^value bit is set if value is a
+   *          candidate
    */
-  Set<Integer> getCandidateValues(int i, int j);
+  long getCandidateMask(int i, int j);
+
+  /**
+   * Tells the model to apply the next deduction to the grid.
+   * @return  the deduction, or null if no deduction could be made
+   */
+  Deduction applyNextStep();
+
+  /**
+   * Tells the model to undo the most recent change to the grid.
+   * @return  false if there was nothing to undo
+   */
+  boolean undo();
+
+  /**
+   * Tells the model to redo the most recently undone change to the grid.
+   * @return  false if there was nothing to redo
+   */
+  boolean redo();
 }
@@ -0,0 +1,341 @@
+package main.solver;
+
+import main.grid.model.GridGeometry;
+import main.grid.model.ISquareSudokuGrid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A backtracking solver that keeps the candidates of each element as a bit string and always
+ * branches on the empty element with the fewest candidates (the "minimum remaining values"
+ * heuristic).
+ *
+ * <p>After each placement, the solver propagates naked singles (elements with a single candidate
+ * left) and hidden singles (values with a single possible element left in a row, column, or box)
+ * until neither applies. Every change to the search state is recorded on a trail, so backtracking
+ * undoes exactly the changes made since the branch point instead of copying the grid.</p>
+ *
+ * <p>The search state is allocated once per solver and reloaded from the grid at the start of
+ * every run, so a single solver can check the same grid repeatedly while it is being changed,
+ * e.g. by {@link #hasUniqueSolution()} after each clue is removed.</p>
+ */
+public class BitmaskBacktrackingSolver implements ISquareSudokuSolver {
+
+  private ISquareSudokuGrid grid;
+
+  private SolverListener listener = SolverListener.NONE;
+
+  private final SolverStatistics statistics = new SolverStatistics();
+
+  private final GridGeometry geometry;
+
+  private final int n;
+
+  private final int cellCount;
+
+  /** Bit string with the 2^1, ..., 2^N bits set, i.e. every value is a candidate. */
+  private final long allCandidates;
+
+  /** The value of each element, or 0 if the search hasn't assigned one yet. */
+  private final int[] values;
+
+  /** The candidates of each element (the 2^value bit is set if value is a candidate). */
+  private final long[] candidates;
+
+  /** The number of elements that have been assigned a value. */
+  private int filledCount;
+
+  // The trail: each entry is either a candidate change (the cell and its previous candidates) or
+  // a value assignment (the cell plus cellCount, so that it can be told apart).
+  private final int[] trailEntries;
+  private final long[] trailMasks;
+  private int trailSize;
+
+  /** Elements that have been narrowed down to a single candidate but not assigned yet. */
+  private final int[] singlesQueue;
+  private int singlesCount;
+
+  private long solutionCount;
+
+  private long solutionLimit;
+
+  /** Receives a copy of each solution that is found, or null if solutions are only counted. */
+  private List<ISquareSudokuGrid> solutions;
+
+  public BitmaskBacktrackingSolver(ISquareSudokuGrid grid) {
+    this.grid = grid;
+    this.geometry = grid.getGeometry();
+    this.n = grid.getDimension();
+    this.cellCount = geometry.getCellCount();
+    this.allCandidates = ((1L << n) - 1) << 1;
+    this.values = new int[cellCount];
+    this.candidates = new long[cellCount];
+    this.trailEntries = new int[cellCount * (n + 2)];
+    this.trailMasks = new long[trailEntries.length];
+    this.singlesQueue = new int[cellCount];
+  }
+
+  @Override
+  public ISquareSudokuGrid getGrid() {
+    return grid;
+  }
+
+  /**
+   * Doesn't step: the search runs in a single call, so there is no single deduction to make.
+   * @return  the grid, unchanged
+   */
+  @Override
+  public ISquareSudokuGrid step() {
+    return grid;
+  }
+
+  @Override
+  public void setListener(SolverListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public SolverStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Finds the first solution. The grid is left untouched.
+   * @return  a new solved grid, or an unsolved copy of the grid if there is no solution
+   */
+  @Override
+  public ISquareSudokuGrid solve() {
+    List<ISquareSudokuGrid> found = new ArrayList<>(1);
+    search(1, found);
+    return found.isEmpty() ? grid.copy() : found.get(0);
+  }
+
+  @Override
+  public List<ISquareSudokuGrid> findAllSolutions() {
+    List<ISquareSudokuGrid> found = new ArrayList<>();
+    search(Long.MAX_VALUE, found);
+    return found;
+  }
+
+  @Override
+  public long countSolutions(long limit) {
+    search(limit, null);
+    return solutionCount;
+  }
+
+  private void search(long limit, List<ISquareSudokuGrid> found) {
+    long start = System.nanoTime();
+    statistics.reset();
+    solutionCount = 0;
+    solutionLimit = limit;
+    solutions = found;
+    if (limit > 0 && load()) {
+      search(0);
+    }
+    solutions = null;
+    statistics.setElapsedNanos(System.nanoTime() - start);
+  }
+
+  /**
+   * Loads the values and candidates of the grid into the search state and assigns the fixed
+   * elements.
+   * @return  false if the fixed elements already violate a constraint
+   */
+  private boolean load() {
+    trailSize = 0;
+    singlesCount = 0;
+    filledCount = 0;
+    for (int cell = 0; cell < cellCount; cell++) {
+      int r = geometry.rowOf(cell);
+      int c = geometry.columnOf(cell);
+      values[cell] = 0;
+      candidates[cell] = grid.getCandidateMask(r, c);
+    }
+    for (int cell = 0; cell < cellCount; cell++) {
+      int r = geometry.rowOf(cell);
+      int c = geometry.columnOf(cell);
+      if (grid.isFixed(r, c) && !assign(cell, grid.getValue(r, c))) {
+        return false;
+      }
+    }
+    // The trail up to here is never undone.
+    trailSize = 0;
+    return true;
+  }
+
+  /**
+   * Propagates singles, then branches on the element with the fewest candidates.
+   * @param depth the number of branches taken to reach this node
+   * @return  whether the search should stop (the solution limit has been reached)
+   */
+  private boolean search(int depth) {
+    statistics.recordNode(depth);
+    if (!propagate()) {
+      return false;
+    }
+
+    if (filledCount == cellCount) {
+      solutionCount++;
+      if (solutions != null) {
+        solutions.add(buildSolution());
+      }
+      return solutionCount >= solutionLimit;
+    }
+
+    // Minimum remaining values: branch on the empty element with the fewest candidates.
+    int branchCell = -1;
+    int fewestCandidates = Integer.MAX_VALUE;
+    for (int cell = 0; cell < cellCount; cell++) {
+      if (values[cell] == 0) {
+        int count = Long.bitCount(candidates[cell]);
+        if (count < fewestCandidates) {
+          fewestCandidates = count;
+          branchCell = cell;
+          if (count == 2) {
+            break; // Singles have been propagated, so two candidates is the best possible.
+          }
+        }
+      }
+    }
+
+    int mark = trailSize;
+    int branchRow = geometry.rowOf(branchCell);
+    int branchColumn = geometry.columnOf(branchCell);
+    for (long remaining = candidates[branchCell]; remaining != 0; remaining &= remaining - 1) {
+      int value = Long.numberOfTrailingZeros(remaining);
+      listener.onPlacement(branchRow, branchColumn, value);
+      if (assign(branchCell, value) && search(depth + 1)) {
+        return true;
+      }
+      undo(mark);
+      statistics.recordBacktrack();
+      listener.onBacktrack(branchRow, branchColumn);
+    }
+    return false;
+  }
+
+  /**
+   * Assigns pending naked singles and searches every row, column, and box for hidden singles,
+   * until neither is left.
+   * @return  false if a contradiction was found
+   */
+  private boolean propagate() {
+    while (true) {
+      while (singlesCount > 0) {
+        int cell = singlesQueue[--singlesCount];
+        if (values[cell] == 0 && !assign(cell, Long.numberOfTrailingZeros(candidates[cell]))) {
+          return false;
+        }
+      }
+
+      boolean assigned = false;
+      for (int unit = 0; unit < geometry.getUnitCount(); unit++) {
+        int[] unitCells = geometry.getUnit(unit);
+        long placed = 0;
+        long once = 0;
+        long twice = 0;
+        for (int cell : unitCells) {
+          if (values[cell] != 0) {
+            placed |= 1L << values[cell];
+          } else {
+            twice |= once & candidates[cell];
+            once |= candidates[cell];
+          }
+        }
+        if ((placed | once) != allCandidates) {
+          return false; // Some value has nowhere to go in this unit.
+        }
+        long hiddenSingles = once & ~twice & ~placed;
+        for (; hiddenSingles != 0; hiddenSingles &= hiddenSingles - 1) {
+          int value = Long.numberOfTrailingZeros(hiddenSingles);
+          for (int cell : unitCells) {
+            if (values[cell] == 0 && (candidates[cell] & (1L << value)) != 0) {
+              if (!assign(cell, value)) {
+                return false;
+              }
+              assigned = true;
+              break;
+            }
+          }
+        }
+      }
+      if (!assigned && singlesCount == 0) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Assigns the value to the element and removes it as a candidate from the element's peers,
+   * queueing any peer that is left with a single candidate.
+   * @return  false if the value isn't a candidate or a peer is left without candidates
+   */
+  private boolean assign(int cell, int value) {
+    long mask = 1L << value;
+    if ((candidates[cell] & mask) == 0) {
+      singlesCount = 0;
+      return false;
+    }
+    setCandidates(cell, mask);
+    trailEntries[trailSize] = cellCount + cell;
+    trailSize++;
+    values[cell] = value;
+    filledCount++;
+
+    for (int peer : geometry.getPeers(cell)) {
+      long peerCandidates = candidates[peer];
+      if ((peerCandidates & mask) != 0) {
+        long remaining = peerCandidates & ~mask;
+        setCandidates(peer, remaining);
+        if (remaining == 0) {
+          singlesCount = 0;
+          return false;
+        }
+        if ((remaining & (remaining - 1)) == 0) {
+          singlesQueue[singlesCount++] = peer;
+        }
+      }
+    }
+    return true;
+  }
+
+  private void setCandidates(int cell, long mask) {
+    trailEntries[trailSize] = cell;
+    trailMasks[trailSize] = candidates[cell];
+    trailSize++;
+    candidates[cell] = mask;
+  }
+
+  /**
+   * Undoes every change recorded on the trail after the given mark.
+   */
+  private void undo(int mark) {
+    while (trailSize > mark) {
+      trailSize--;
+      int entry = trailEntries[trailSize];
+      if (entry >= cellCount) {
+        values[entry - cellCount] = 0;
+        filledCount--;
+      } else {
+        candidates[entry] = trailMasks[trailSize];
+      }
+    }
+    singlesCount = 0;
+  }
+
+  /**
+   * Copies the grid and assigns the values found by the search.
+   */
+  private ISquareSudokuGrid buildSolution() {
+    ISquareSudokuGrid solution = grid.copy();
+    for (int cell = 0; cell < cellCount; cell++) {
+      int r = geometry.rowOf(cell);
+      int c = geometry.columnOf(cell);
+      if (!solution.isFixed(r, c)) {
+        solution.setValue(r, c, values[cell]);
+      }
+    }
+    return solution;
+  }
+}
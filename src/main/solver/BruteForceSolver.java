@@ -17,6 +17,25 @@ public class BruteForceSolver implements ISquareSudokuSolver {
 
   private ISquareSudokuGrid grid;
 
+  private SolverListener listener = SolverListener.NONE;
+
+  private final SolverStatistics statistics = new SolverStatistics();
+
+  // The state of the iterative search, which is kept between calls to step().
+  private ISquareSudokuGrid searchGrid;
+  private int searchRow;
+  private int searchColumn;
+  private int searchDepth;
+  private boolean searchExhausted;
+
+  // The last move of the iterative search: a placement, or a backtrack to the element if the
+  // value is 0.
+  private int lastMoveRow;
+  private int lastMoveColumn;
+  private int lastMoveValue;
+
+  private Deduction lastDeduction;
+
   public BruteForceSolver(ISquareSudokuGrid grid) {
     this.grid = grid;
   }
@@ -27,12 +46,37 @@ public class BruteForceSolver implements ISquareSudokuSolver {
   }
 
   @Override
-  public ISquareSudokuGrid step() {
-    return null;
+  public void setListener(SolverListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public SolverStatistics getStatistics() {
+    return statistics;
   }
 
   @Override
   public ISquareSudokuGrid solve() {
+    long start = System.nanoTime();
+    statistics.reset();
+    ISquareSudokuGrid gridCopy = grid.copy();
+    gridCopy.checkpoint();
+    ISquareSudokuGrid solution = solve(gridCopy, 0);
+    gridCopy.clearCheckpoints();
+    statistics.setElapsedNanos(System.nanoTime() - start);
+    return solution != null ? solution : grid.copy();
+  }
+
+  /**
+   * Tries each candidate of the first empty element of the grid, rolling the grid back to a
+   * checkpoint after each candidate that doesn't lead to a solution.
+   * @param grid  the grid to solve, which must be recording its changes (see
+   *              {@link ISquareSudokuGrid#checkpoint()})
+   * @param depth the number of values placed in the original grid to reach this one
+   * @return  the solution, or null if there is none
+   */
+  private ISquareSudokuGrid solve(ISquareSudokuGrid grid, int depth) {
+    statistics.recordNode(depth);
     if (grid.isSolved()) {
       return grid;
     }
@@ -40,21 +84,22 @@ public class BruteForceSolver implements ISquareSudokuSolver {
     for (int r = 0; r < grid.getDimension(); r++) {
       for (int c = 0; c < grid.getDimension(); c++) {
         if (!grid.isFixed(r, c)) {
-          Set<Integer> candidates = grid.getCandidateValues(r, c);
-          if (candidates.size() == 0) {
+          if (grid.getCandidateCount(r, c) == 0) {
             return null; // No candidates left, no solutions.
           }
-          for (int candidate : candidates) {
+          for (int candidate = grid.nextCandidate(r, c, 0); candidate != 0;
+               candidate = grid.nextCandidate(r, c, candidate)) {
             // Try placing each candidate value.
-            ISquareSudokuGrid gridCopy = grid.copy();
-            System.out.printf("Setting element (%d, %d) to %d%n", r, c, candidate);
-            gridCopy.setValue(r, c, candidate);
-//            System.out.println(gridCopy.gridToString());
-            ISquareSudokuSolver newSolver = new BruteForceSolver(gridCopy);
-            ISquareSudokuGrid solution = newSolver.solve();
+            int checkpoint = grid.checkpoint();
+            grid.setValue(r, c, candidate);
+            listener.onPlacement(r, c, candidate);
+            ISquareSudokuGrid solution = solve(grid, depth + 1);
             if (solution != null && solution.isSolved()) {
               return solution;
             }
+            grid.rollback(checkpoint);
+            statistics.recordBacktrack();
+            listener.onBacktrack(r, c);
 
             // TODO try removing the candidate and seeing if that advances the puzzle
           }
@@ -63,96 +108,221 @@ public class BruteForceSolver implements ISquareSudokuSolver {
         }
       }
     }
-    System.out.println("Reached the end!");
+    // Reached the end without finding an empty element.
     return null;
   }
 
+  @Override
+  public long countSolutions(long limit) {
+    long start = System.nanoTime();
+    statistics.reset();
+    long count = 0;
+    if (limit > 0 && grid.checkBasicConstraints()) {
+      ISquareSudokuGrid gridCopy = grid.copy();
+      gridCopy.checkpoint();
+      count = countSolutions(gridCopy, 0, 0, limit);
+    }
+    statistics.setElapsedNanos(System.nanoTime() - start);
+    return count;
+  }
+
+  /**
+   * Counts the solutions by trying each value in each empty element, starting at the given
+   * element. Values are placed on a single copy of the grid and rolled back afterwards, instead
+   * of copying the grid for each placement.
+   * @param gridCopy  the copy of the grid to place values in, which must be recording its changes
+   * @param cell  the index of the first element that may still be empty
+   * @param depth the number of values placed in the copy to reach this point
+   * @param limit the maximum number of solutions to count
+   * @return  the number of solutions, or the limit if there are at least that many
+   */
+  private long countSolutions(ISquareSudokuGrid gridCopy, int cell, int depth, long limit) {
+    statistics.recordNode(depth);
+    int n = gridCopy.getDimension();
+    while (cell < n * n && gridCopy.isFixed(cell / n, cell % n)) {
+      cell++;
+    }
+    if (cell == n * n) {
+      return 1;
+    }
+
+    int r = cell / n;
+    int c = cell % n;
+    long count = 0;
+    for (int value = 1; value <= n && count < limit; value++) {
+      if (gridCopy.peekConstraintsOnPlace(r, c, value)) {
+        int checkpoint = gridCopy.checkpoint();
+        gridCopy.setValue(r, c, value);
+        listener.onPlacement(r, c, value);
+        count += countSolutions(gridCopy, cell + 1, depth + 1, limit - count);
+        gridCopy.rollback(checkpoint);
+        statistics.recordBacktrack();
+        listener.onBacktrack(r, c);
+      }
+    }
+    return count;
+  }
+
   public ISquareSudokuGrid solveIterative() {
+    long start = System.nanoTime();
+    statistics.reset();
+    ISquareSudokuGrid solution = searchIteratively();
+    statistics.setElapsedNanos(System.nanoTime() - start);
+    return solution;
+  }
+
+  private ISquareSudokuGrid searchIteratively() {
     if (grid.isSolved()) {
       return grid;
     }
 
-    ISquareSudokuGrid gridCopy = grid.copy();
-    int r = 0;
-    int c = 0;
-    while (r < 9 && c < 9) {
-      // Ignore the given clues in the original grid
-      if (grid.isFixed(r, c)) {
-        int c_new = (c + 1) % 9;
-        if (c_new == 0) {
-          r++;
-        }
-        c = c_new;
-        continue;
-      }
+    startSearch();
+    while (advanceSearch()) {
+      // Keep placing values and backtracking until every element is filled or nothing is left.
+    }
 
-      // Start trying candidate values
-      int nextCandidate = 0;
-      if (gridCopy.isFixed(r, c)) {
-        nextCandidate = gridCopy.getValue(r, c);
-      }
+    if (!searchExhausted && searchGrid.isSolved()) {
+      return searchGrid;
+    } else {
+      // The search has backtracked past the first element, so the grid copy is not a solution.
+      return grid.copy();
+    }
+  }
 
-      boolean placed = false;
-      for (int candidate = nextCandidate + 1; candidate <= 9; candidate++) {
-        // clear the cell value
-        gridCopy.clearValue(r, c);
+  /**
+   * Makes a single move of the iterative search: places the next value that fits in the current
+   * element, or backtracks to the previous element if no value fits. The search is resumed where
+   * the previous step stopped.
+   * @return  the copy of the grid that the search fills in, which is unchanged if the search is
+   *          over (every element is filled, or every value has been tried)
+   */
+  @Override
+  public ISquareSudokuGrid step() {
+    if (searchGrid == null) {
+      statistics.reset();
+      startSearch();
+    }
+    lastDeduction = null;
+    if (advanceSearch()) {
+      lastDeduction = new Deduction(null, List.of(lastMoveValue == 0 ?
+          SolverEvent.backtrack(lastMoveRow, lastMoveColumn) :
+          SolverEvent.placement(lastMoveRow, lastMoveColumn, lastMoveValue)));
+    }
+    return searchGrid;
+  }
 
-        // can the candidate value be placed in gridCopy without violating constraints?
-        if (gridCopy.peekConstraintsOnPlace(r, c, candidate)) {
-          gridCopy.setValue(r, c, candidate);
-          System.out.printf("Trying candidate %d at (%d, %d)%n", candidate, r, c);
-          placed = true;
-          break;
-        }
+  @Override
+  public Deduction getLastDeduction() {
+    return lastDeduction;
+  }
+
+  /**
+   * Starts the iterative search at the first element, on a new copy of the grid.
+   */
+  private void startSearch() {
+    searchGrid = grid.copy();
+    searchRow = 0;
+    searchColumn = 0;
+    searchDepth = 0;
+    searchExhausted = false;
+  }
+
+  /**
+   * Makes a single move of the iterative search, and records it as the last move.
+   * @return  false if the search is over instead: every element is filled, or every value has
+   *          been tried
+   */
+  private boolean advanceSearch() {
+    int n = grid.getDimension();
+    // Ignore the given clues in the original grid
+    while (searchRow < n && grid.isFixed(searchRow, searchColumn)) {
+      moveToNextElement();
+    }
+    if (searchRow == n || searchExhausted) {
+      return false;
+    }
+
+    // Start trying candidate values
+    int r = searchRow;
+    int c = searchColumn;
+    int nextCandidate = 0;
+    if (searchGrid.isFixed(r, c)) {
+      nextCandidate = searchGrid.getValue(r, c);
+    }
+
+    for (int candidate = nextCandidate + 1; candidate <= n; candidate++) {
+      // clear the cell value
+      searchGrid.clearValue(r, c);
+
+      // can the candidate value be placed in the grid copy without violating constraints?
+      if (searchGrid.peekConstraintsOnPlace(r, c, candidate)) {
+        searchGrid.setValue(r, c, candidate);
+        listener.onPlacement(r, c, candidate);
+        statistics.recordNode(++searchDepth);
+        recordMove(r, c, candidate);
+        moveToNextElement();
+        return true;
       }
-      if (placed) {
-        int c_new = (c + 1) % 9;
-        if (c_new == 0) {
-          r++;
-        }
-        c = c_new;
-        continue;
+    }
+
+    // no more candidates can be tried, clear this cell and go back to the previous
+    // non-given cell and try the next value
+    searchGrid.clearValue(r, c);
+    do {
+      if (c > 0) {
+        c -= 1;
+      } else if (r > 0) {
+        c = n - 1;
+        r -= 1;
+      } else {
+        // We've failed to find a solution!
+        searchExhausted = true;
+        return false;
       }
+    } while (grid.isFixed(r, c));
+    searchRow = r;
+    searchColumn = c;
+    searchDepth--;
+    statistics.recordBacktrack();
+    listener.onBacktrack(r, c);
+    recordMove(r, c, 0);
+    return true;
+  }
 
-      // no more candidates can be tried, clear this cell and go back to the previous
-      // non-given cell and try the next value
-      gridCopy.clearValue(r, c);
-      do {
-        if (c > 0) {
-          c -= 1;
-        } else if (r > 0) {
-          c = 8;
-          r -= 1;
-        } else {
-          // We've failed to find a solution!
-          System.out.println("backtracked to the end with no solution!!");
-          return null;
-        }
-      } while (grid.isFixed(r, c));
-      System.out.printf("Exhausted candidates, backtracking to cell (%d, %d)%n", r, c);
+  private void moveToNextElement() {
+    searchColumn = (searchColumn + 1) % grid.getDimension();
+    if (searchColumn == 0) {
+      searchRow++;
     }
+  }
 
-    if (gridCopy.isSolved()) {
-      return gridCopy;
-    } else {
-      System.out.println("grid copy is not a solution!");
-      return null;
-    }
+  private void recordMove(int r, int c, int value) {
+    lastMoveRow = r;
+    lastMoveColumn = c;
+    lastMoveValue = value;
   }
 
   @Override
   public List<ISquareSudokuGrid> findAllSolutions() {
-    List<ISquareSudokuGrid> solutions = new ArrayList<>();
+    long start = System.nanoTime();
+    statistics.reset();
+    List<ISquareSudokuGrid> solutions = searchAllIteratively(new ArrayList<>());
+    statistics.setElapsedNanos(System.nanoTime() - start);
+    return solutions;
+  }
+
+  private List<ISquareSudokuGrid> searchAllIteratively(List<ISquareSudokuGrid> solutions) {
     if (grid.isSolved()) {
       solutions.add(grid);
       return solutions;
     }
 
-    int[][] nextCandidates = new int[9][9];
-    for (int r = 0; r < 9; r++) {
-      for (int c = 0; c < 9; c++) {
+    int n = grid.getDimension();
+    int[][] nextCandidates = new int[n][n];
+    for (int r = 0; r < n; r++) {
+      for (int c = 0; c < n; c++) {
         if (grid.isFixed(r, c)) {
-          nextCandidates[r][c] = 10;
+          nextCandidates[r][c] = n + 1;
         } else {
           nextCandidates[r][c] = 1;
         }
@@ -162,6 +332,7 @@ public class BruteForceSolver implements ISquareSudokuSolver {
     ISquareSudokuGrid gridCopy = grid.copy();
     int r = 0;
     int c = 0;
+    int depth = 0;
     while (true) {
       if (gridCopy.isSolved()) {
         ISquareSudokuGrid solution = gridCopy.copy();
@@ -169,9 +340,9 @@ public class BruteForceSolver implements ISquareSudokuSolver {
       }
 
       boolean exhaustedAllCandidates = true;
-      for (int i = 0; i < 9; i++) {
-        for (int j = 0; j < 9; j++) {
-          if (nextCandidates[i][j] <= 9) {
+      for (int i = 0; i < n; i++) {
+        for (int j = 0; j < n; j++) {
+          if (nextCandidates[i][j] <= n) {
             exhaustedAllCandidates = false;
             break;
           }
@@ -183,8 +354,8 @@ public class BruteForceSolver implements ISquareSudokuSolver {
 
       // Ignore the given clues in the original grid
       if (grid.isFixed(r, c)) {
-        if (r != 8 || c != 8) {
-          int c_new = (c + 1) % 9;
+        if (r != n - 1 || c != n - 1) {
+          int c_new = (c + 1) % n;
           if (c_new == 0) {
             r++;
           }
@@ -197,7 +368,7 @@ public class BruteForceSolver implements ISquareSudokuSolver {
       int nextCandidate = nextCandidates[r][c];
 
       boolean placed = false;
-      for (int candidate = nextCandidate; candidate <= 9; candidate++) {
+      for (int candidate = nextCandidate; candidate <= n; candidate++) {
         // clear the cell value
         gridCopy.clearValue(r, c);
 
@@ -207,14 +378,15 @@ public class BruteForceSolver implements ISquareSudokuSolver {
         // can the candidate value be placed in gridCopy without violating constraints?
         if (gridCopy.peekConstraintsOnPlace(r, c, candidate)) {
           gridCopy.setValue(r, c, candidate);
-          System.out.printf("Trying candidate %d at (%d, %d)%n", candidate, r, c);
+          listener.onPlacement(r, c, candidate);
+          statistics.recordNode(++depth);
           placed = true;
           break;
         }
       }
       if (placed) {
-        if (r != 8 || c != 8) {
-          int c_new = (c + 1) % 9;
+        if (r != n - 1 || c != n - 1) {
+          int c_new = (c + 1) % n;
           if (c_new == 0) {
             r++;
           }
@@ -231,14 +403,16 @@ public class BruteForceSolver implements ISquareSudokuSolver {
         if (c > 0) {
           c -= 1;
         } else if (r > 0) {
-          c = 8;
+          c = n - 1;
           r -= 1;
         } else {
-          System.out.println("backtracked to the end");
+          // Backtracked to the end.
           return solutions;
         }
       } while (grid.isFixed(r, c));
-      System.out.printf("Exhausted candidates, backtracking to cell (%d, %d)%n", r, c);
+      depth--;
+      statistics.recordBacktrack();
+      listener.onBacktrack(r, c);
     }
 
     return solutions;
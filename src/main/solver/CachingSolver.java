@@ -0,0 +1,138 @@
+package main.solver;
+
+import main.grid.model.CompactFormat;
+import main.grid.model.ISquareSudokuGrid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A solver that answers from a {@link SolutionCache} when it can, and otherwise runs another
+ * solver and records the solutions that it finds.
+ *
+ * <p>{@link #solve()} hits on any known solution of the puzzle (a puzzle without solutions
+ * always runs the other solver, whose unsolved grid is returned), {@link #findAllSolutions()} only
+ * once all of them are known (i.e. after a previous call to it for an equivalent puzzle), and
+ * {@link #countSolutions(long)} when enough of them are known. On a hit, the other solver isn't
+ * run, so its grid and listener see nothing, and the statistics only have the elapsed time.
+ * Stepping is passed through to the other solver.</p>
+ */
+public class CachingSolver implements ISquareSudokuSolver {
+
+  private final ISquareSudokuSolver solver;
+
+  private final SolutionCache cache;
+
+  /** The statistics of the last run if it was a hit, or null if the other solver ran. */
+  private SolverStatistics hitStatistics;
+
+  /**
+   * Creates a solver in front of another one.
+   * @param solver  the solver to run on a miss, which also owns the grid
+   * @param cache the cache, which can be shared with other solvers
+   */
+  public CachingSolver(ISquareSudokuSolver solver, SolutionCache cache) {
+    this.solver = solver;
+    this.cache = cache;
+  }
+
+  @Override
+  public ISquareSudokuGrid getGrid() {
+    return solver.getGrid();
+  }
+
+  @Override
+  public ISquareSudokuGrid step() {
+    return solver.step();
+  }
+
+  @Override
+  public Deduction getLastDeduction() {
+    return solver.getLastDeduction();
+  }
+
+  @Override
+  public ISquareSudokuGrid solve() {
+    long start = System.nanoTime();
+    ISquareSudokuGrid puzzle = solver.getGrid();
+    SolutionCache.Key key = cache.keyOf(puzzle);
+    // A puzzle known to have no solution is still passed to the other solver, so that the
+    // unsolved grid is the same as on a miss.
+    SolutionCache.Entry entry = cache.getSolved(key);
+    if (entry != null) {
+      recordHit(start);
+      return fill(puzzle, key.fromStored(entry.getSolutions()[0]));
+    }
+
+    hitStatistics = null;
+    ISquareSudokuGrid solution = solver.solve();
+    if (solution.isSolved()) {
+      cache.putSolution(key, solution);
+    }
+    return solution;
+  }
+
+  @Override
+  public List<ISquareSudokuGrid> findAllSolutions() {
+    long start = System.nanoTime();
+    ISquareSudokuGrid puzzle = solver.getGrid();
+    SolutionCache.Key key = cache.keyOf(puzzle);
+    SolutionCache.Entry entry = cache.get(key, Long.MAX_VALUE);
+    if (entry != null) {
+      List<ISquareSudokuGrid> solutions = new ArrayList<>(entry.getSolutions().length);
+      for (String solution : entry.getSolutions()) {
+        solutions.add(fill(puzzle, key.fromStored(solution)));
+      }
+      recordHit(start);
+      return solutions;
+    }
+
+    hitStatistics = null;
+    List<ISquareSudokuGrid> solutions = solver.findAllSolutions();
+    cache.putAllSolutions(key, solutions);
+    return solutions;
+  }
+
+  @Override
+  public long countSolutions(long limit) {
+    long start = System.nanoTime();
+    SolutionCache.Key key = cache.keyOf(solver.getGrid());
+    SolutionCache.Entry entry = cache.get(key, limit);
+    if (entry != null) {
+      recordHit(start);
+      return Math.min(entry.getSolutions().length, limit);
+    }
+    hitStatistics = null;
+    return solver.countSolutions(limit);
+  }
+
+  @Override
+  public void setListener(SolverListener listener) {
+    solver.setListener(listener);
+  }
+
+  @Override
+  public SolverStatistics getStatistics() {
+    return hitStatistics != null ? hitStatistics : solver.getStatistics();
+  }
+
+  private void recordHit(long start) {
+    hitStatistics = new SolverStatistics();
+    hitStatistics.setElapsedNanos(System.nanoTime() - start);
+  }
+
+  /**
+   * Fills the empty elements of a copy of the puzzle from a solution, so that the solution has the
+   * same kind of grid as the puzzle.
+   */
+  private static ISquareSudokuGrid fill(ISquareSudokuGrid puzzle, String solution) {
+    ISquareSudokuGrid filled = puzzle.copy();
+    int n = filled.getDimension();
+    for (int cell = 0; cell < n * n; cell++) {
+      if (filled.getValue(cell / n, cell % n) == 0) {
+        filled.setValue(cell / n, cell % n, CompactFormat.parseValue(solution.charAt(cell), n));
+      }
+    }
+    return filled;
+  }
+}
@@ -0,0 +1,317 @@
+package main.solver;
+
+import main.grid.model.GridGeometry;
+
+/**
+ * Finds coloring and chain deductions on a {@link LinkGraph}: simple coloring, X-chains,
+ * XY-chains (including XY-wings), and alternating inference chains (AICs).
+ *
+ * <p>A chain is a series of candidates where strong and weak links alternate, starting and ending
+ * with a strong link. If the first candidate is false, the strong link makes the second one true,
+ * the weak link makes the third one false, and so on, so the last candidate is true: at least one
+ * of the two ends of the chain is true, and any candidate that is weakly linked to both ends is
+ * false. The search starts from each candidate in turn, assumes it is false, and follows the links
+ * breadth first, so the shortest chains are found first. The kinds of links that are followed
+ * decide the technique:</p>
+ * <ul>
+ *   <li>X-chains only use conjugate pairs and weak links for a single value,</li>
+ *   <li>XY-chains only use bivalue elements and weak links between the same values,</li>
+ *   <li>AICs use every kind of link.</li>
+ * </ul>
+ *
+ * <p>Each method looks for a single deduction, and if it finds one, keeps the candidates that can
+ * be eliminated (see {@link #getEliminationCount()}) without eliminating them. The graph must be
+ * refreshed before each search.</p>
+ */
+final class ChainFinder {
+
+  private final LinkGraph graph;
+
+  private final GridGeometry geometry;
+
+  private final int n;
+
+  private final int[] eliminations;
+  private int eliminationCount;
+
+  /** The number of strong links in the chain of the last deduction. */
+  private int chainLength;
+
+  // The state of a search, marked with the current stamp instead of being cleared each time.
+  private int stamp;
+  private final int[] offStamps;
+  private final int[] onStamps;
+  private final int[] seesStartStamps;
+  private final int[] chainLengths;
+  private final int[] queue;
+  private final int[] colors;
+
+  // Buffers for the weak links of a node: one for following links, one for finding eliminations.
+  private final int[] links;
+  private final int[] targetLinks;
+
+  ChainFinder(LinkGraph graph) {
+    this.graph = graph;
+    this.geometry = graph.getGeometry();
+    this.n = graph.getDimension();
+    int nodeCount = graph.nodeCount();
+    eliminations = new int[nodeCount];
+    offStamps = new int[nodeCount];
+    onStamps = new int[nodeCount];
+    seesStartStamps = new int[nodeCount];
+    chainLengths = new int[nodeCount];
+    queue = new int[2 * nodeCount];
+    colors = new int[nodeCount];
+    int maxWeakLinks = geometry.getPeers(0).length + n;
+    links = new int[maxWeakLinks];
+    targetLinks = new int[maxWeakLinks];
+  }
+
+  LinkGraph getGraph() {
+    return graph;
+  }
+
+  int getEliminationCount() {
+    return eliminationCount;
+  }
+
+  /**
+   * Gets a candidate that the last deduction eliminates.
+   * @return  the node of the candidate (see {@link LinkGraph})
+   */
+  int getElimination(int k) {
+    return eliminations[k];
+  }
+
+  int getChainLength() {
+    return chainLength;
+  }
+
+  /**
+   * Looks for simple coloring deductions for the value. The conjugate pairs of the value form
+   * clusters, whose candidates can be colored with two colors so that the candidates of one color
+   * are all true and the others all false. If two candidates of the same color see each other,
+   * that color is false (a color wrap). Otherwise, a candidate outside of the cluster that sees
+   * both colors is false (a color trap).
+   */
+  boolean findSimpleColoring(int value) {
+    eliminationCount = 0;
+    // Candidates that have been colored are marked with coloredStamp, and the candidates of the
+    // current cluster with clusterStamp.
+    int coloredStamp = ++stamp;
+    for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+      int start = LinkGraph.node(n, cell, value);
+      if (!graph.isCandidate(start) || offStamps[start] == coloredStamp || !hasStrongLink(start, true, false)) {
+        continue;
+      }
+
+      // Color the cluster of the candidate, keeping its nodes in the queue.
+      int clusterStamp = ++stamp;
+      int size = 0;
+      offStamps[start] = coloredStamp;
+      onStamps[start] = clusterStamp;
+      colors[start] = 0;
+      queue[size++] = start;
+      for (int head = 0; head < size; head++) {
+        int node = queue[head];
+        for (int k = 0; k < 3; k++) {
+          int linked = graph.getStrongLink(node, k);
+          if (linked >= 0 && onStamps[linked] != clusterStamp) {
+            offStamps[linked] = coloredStamp;
+            onStamps[linked] = clusterStamp;
+            colors[linked] = 1 - colors[node];
+            queue[size++] = linked;
+          }
+        }
+      }
+
+      // Color wrap: two candidates of the same color see each other.
+      for (int k = 0; k < size; k++) {
+        int node = queue[k];
+        int linkCount = weakLinks(node, true, false, links);
+        for (int m = 0; m < linkCount; m++) {
+          if (onStamps[links[m]] == clusterStamp && colors[links[m]] == colors[node]) {
+            for (int j = 0; j < size; j++) {
+              if (colors[queue[j]] == colors[node]) {
+                eliminations[eliminationCount++] = queue[j];
+              }
+            }
+            chainLength = 0;
+            return true;
+          }
+        }
+      }
+
+      // Color trap: a candidate outside of the cluster sees both colors.
+      for (int other = 0; other < geometry.getCellCount(); other++) {
+        int node = LinkGraph.node(n, other, value);
+        if (!graph.isCandidate(node) || onStamps[node] == clusterStamp) {
+          continue;
+        }
+        int seenColors = 0;
+        int linkCount = weakLinks(node, true, false, links);
+        for (int m = 0; m < linkCount; m++) {
+          if (onStamps[links[m]] == clusterStamp) {
+            seenColors |= 1 << colors[links[m]];
+          }
+        }
+        if (seenColors == 3) {
+          eliminations[eliminationCount++] = node;
+        }
+      }
+      if (eliminationCount > 0) {
+        chainLength = 0;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Looks for an X-chain: a chain of conjugate pairs of the value.
+   */
+  boolean findXChain(int value) {
+    return findChain(value, true, false);
+  }
+
+  /**
+   * Looks for an XY-chain: a chain of bivalue elements, where consecutive elements see each other
+   * and share a value. An XY-wing is an XY-chain of three elements.
+   */
+  boolean findXYChain() {
+    return findChain(0, false, true);
+  }
+
+  /**
+   * Looks for an alternating inference chain, with every kind of strong and weak link.
+   */
+  boolean findAlternatingInferenceChain() {
+    return findChain(0, true, true);
+  }
+
+  /**
+   * Looks for a chain that makes progress.
+   * @param value     the value of every candidate in the chain, or 0 for any values
+   * @param unitLinks whether to follow conjugate pairs
+   * @param cellLinks whether to follow bivalue elements (and, together with conjugate pairs, the
+   *                  weak links between the values of an element)
+   */
+  private boolean findChain(int value, boolean unitLinks, boolean cellLinks) {
+    eliminationCount = 0;
+    boolean cellWeakLinks = unitLinks && cellLinks;
+    for (int start = 0; start < graph.nodeCount(); start++) {
+      if (!graph.isCandidate(start) || (value != 0 && graph.valueOf(start) != value) ||
+          !hasStrongLink(start, unitLinks, cellLinks)) {
+        continue;
+      }
+
+      stamp++;
+      int linkCount = weakLinks(start, true, true, links);
+      for (int m = 0; m < linkCount; m++) {
+        seesStartStamps[links[m]] = stamp;
+      }
+
+      // Each queue entry is a node and whether it is true (1) or false (0).
+      int head = 0;
+      int tail = 0;
+      offStamps[start] = stamp;
+      chainLengths[start] = 0;
+      queue[tail++] = start << 1;
+      while (head < tail) {
+        int node = queue[head] >> 1;
+        boolean isTrue = (queue[head] & 1) != 0;
+        head++;
+        if (!isTrue) {
+          // The node is false, so the other end of each of its strong links is true.
+          for (int k = unitLinks ? 0 : 3; k < (cellLinks ? 4 : 3); k++) {
+            int linked = graph.getStrongLink(node, k);
+            if (linked < 0 || onStamps[linked] == stamp) {
+              continue;
+            }
+            onStamps[linked] = stamp;
+            if (findEliminations(start, linked)) {
+              chainLength = chainLengths[node] + 1;
+              return true;
+            }
+            chainLengths[linked] = chainLengths[node] + 1;
+            queue[tail++] = linked << 1 | 1;
+          }
+        } else {
+          // The node is true, so the other end of each of its weak links is false.
+          linkCount = weakLinks(node, true, cellWeakLinks, links);
+          for (int m = 0; m < linkCount; m++) {
+            int linked = links[m];
+            if (offStamps[linked] != stamp) {
+              offStamps[linked] = stamp;
+              chainLengths[linked] = chainLengths[node];
+              queue[tail++] = linked << 1;
+            }
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Finds the candidates eliminated by a chain from start (false) to end (true), i.e. by knowing
+   * that at least one of them is true.
+   */
+  private boolean findEliminations(int start, int end) {
+    if (end == start) {
+      // If the start is false, it is true: it must be true, so the other values of its element
+      // are false.
+      int cell = graph.cellOf(start);
+      long others = graph.getCandidates(cell) & ~(1L << graph.valueOf(start));
+      for (; others != 0; others &= others - 1) {
+        eliminations[eliminationCount++] = LinkGraph.node(n, cell, Long.numberOfTrailingZeros(others));
+      }
+      return eliminationCount > 0;
+    }
+
+    int linkCount = weakLinks(end, true, true, targetLinks);
+    for (int m = 0; m < linkCount; m++) {
+      if (seesStartStamps[targetLinks[m]] == stamp && targetLinks[m] != start) {
+        eliminations[eliminationCount++] = targetLinks[m];
+      }
+    }
+    return eliminationCount > 0;
+  }
+
+  private boolean hasStrongLink(int node, boolean unitLinks, boolean cellLinks) {
+    for (int k = unitLinks ? 0 : 3; k < (cellLinks ? 4 : 3); k++) {
+      if (graph.getStrongLink(node, k) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the candidates that are weakly linked to the node.
+   * @param sameValue whether to include the same value in the peers of the node's element
+   * @param sameCell  whether to include the other values of the node's element
+   * @param buffer    receives the linked nodes
+   * @return  the number of linked nodes
+   */
+  private int weakLinks(int node, boolean sameValue, boolean sameCell, int[] buffer) {
+    int count = 0;
+    int cell = graph.cellOf(node);
+    int value = graph.valueOf(node);
+    if (sameValue) {
+      long valueMask = 1L << value;
+      for (int peer : geometry.getPeers(cell)) {
+        if ((graph.getCandidates(peer) & valueMask) != 0) {
+          buffer[count++] = LinkGraph.node(n, peer, value);
+        }
+      }
+    }
+    if (sameCell) {
+      long others = graph.getCandidates(cell) & ~(1L << value);
+      for (; others != 0; others &= others - 1) {
+        buffer[count++] = LinkGraph.node(n, cell, Long.numberOfTrailingZeros(others));
+      }
+    }
+    return count;
+  }
+}
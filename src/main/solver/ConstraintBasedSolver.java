@@ -1,7 +1,7 @@
 package main.solver;
 
+import main.grid.model.GridGeometry;
 import main.grid.model.ISquareSudokuGrid;
-import main.util.DisplayStrings;
 import main.util.Pair;
 import main.util.SubsetHelper;
 
@@ -11,13 +11,76 @@ import java.util.*;
  * A constraint-based solver that attempts to narrow down the candidate values
  * for each empty square based on the constraints of the Sudoku grid. The solver
  * uses logical inferences to determine when candidate values would violate constraints.
+ *
+ * <p>Groups (rows, columns, and boxes) are iterated through the precomputed cell index tables
+ * of {@link GridGeometry}, so scanning a group doesn't allocate.</p>
+ *
+ * <p>Solving runs to a fixpoint in a loop rather than by recursion: every candidate removal
+ * queues the affected element, its groups, and the removed value, and each technique only
+ * re-examines what has been queued for it since it last ran.</p>
  */
 public class ConstraintBasedSolver implements ISquareSudokuSolver {
 
   private ISquareSudokuGrid grid;
 
+  private SolverListener listener = SolverListener.NONE;
+
+  private final SolverStatistics statistics = new SolverStatistics();
+
+  /** Whether {@link #solve()} falls back to brute force when the techniques get stuck. */
+  private boolean bruteForceFallback = true;
+
+  /** Whether the puzzle is known to have a unique solution, which enables the uniqueness techniques. */
+  private boolean assumeUniqueSolution;
+
+  /** Whether the worklists hold the work left over by the previous call to {@link #step()}. */
+  private boolean stepping;
+
+  /** Collects the changes made by the current step, or null if the solver isn't stepping. */
+  private List<SolverEvent> stepEvents;
+
+  /** The technique applied by the current step. */
+  private SolvingTechnique stepTechnique;
+
+  private Deduction lastDeduction;
+
+  /** The candidates eliminated since a technique was last applied. */
+  private int pendingEliminations;
+
+  // The work left for each technique: the elements, groups, or values that changed since the
+  // technique last examined them.
+  private final Worklist pendingCells;
+  private final Worklist pendingHiddenSingleUnits;
+  private final Worklist pendingLockedCandidateBoxes;
+  private final Worklist pendingBoxLockingLines;
+  private final Worklist pendingHiddenSetUnits;
+  private final Worklist pendingNakedSetUnits;
+  private final Worklist pendingFishValues;
+  private final Worklist pendingFinnedFishValues;
+
+  /** The strong links of the grid's candidates and the chain search over them, or null if not built yet. */
+  private ChainFinder chainFinder;
+
+  /** Whether any candidate was eliminated since the chains were last searched. */
+  private boolean pendingChains;
+
+  /** Whether any candidate was eliminated since the uniqueness techniques were last tried. */
+  private boolean pendingUniquenessChecks;
+
+  /** Counts the solutions of the grid, or null if none have been counted yet. */
+  private BitmaskBacktrackingSolver solutionCounter;
+
   public ConstraintBasedSolver(ISquareSudokuGrid grid) {
     this.grid = grid;
+    GridGeometry geometry = grid.getGeometry();
+    pendingCells = new Worklist(geometry.getCellCount());
+    pendingHiddenSingleUnits = new Worklist(geometry.getUnitCount());
+    pendingLockedCandidateBoxes = new Worklist(geometry.getUnitCount());
+    pendingBoxLockingLines = new Worklist(geometry.getUnitCount());
+    pendingHiddenSetUnits = new Worklist(geometry.getUnitCount());
+    pendingNakedSetUnits = new Worklist(geometry.getUnitCount());
+    pendingFishValues = new Worklist(grid.getDimension() + 1);
+    pendingFinnedFishValues = new Worklist(grid.getDimension() + 1);
   }
 
   @Override
@@ -25,192 +88,462 @@ public class ConstraintBasedSolver implements ISquareSudokuSolver {
     return grid;
   }
 
+  /**
+   * Applies the cheapest technique that makes progress, i.e. a single deduction. The worklists
+   * are kept between calls, so each step only re-examines what the previous steps changed. If the
+   * grid is changed by anything other than this solver, use a new solver to step through it.
+   * @return  the grid, which is unchanged if no technique could make progress
+   */
   @Override
   public ISquareSudokuGrid step() {
-    return null; //TODO
+    if (!stepping) {
+      statistics.reset();
+      pendingEliminations = 0;
+      resetWorklists();
+      stepping = true;
+    }
+    stepEvents = new ArrayList<>();
+    stepTechnique = null;
+    lastDeduction = applyNextTechnique() ? new Deduction(stepTechnique, stepEvents) : null;
+    stepEvents = null;
+    return grid;
+  }
+
+  @Override
+  public Deduction getLastDeduction() {
+    return lastDeduction;
+  }
+
+  @Override
+  public void setListener(SolverListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public SolverStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Sets whether {@link #solve()} finishes the grid by brute force when none of the techniques
+   * can make progress. If disabled, solve() returns the grid as far as the techniques got, and
+   * the statistics only count technique applications.
+   * @param bruteForceFallback  whether to fall back to brute force (the default is true)
+   */
+  public void setBruteForceFallback(boolean bruteForceFallback) {
+    this.bruteForceFallback = bruteForceFallback;
+  }
+
+  /**
+   * Sets whether the puzzle is known to have a unique solution. If so, the solver also applies the
+   * uniqueness techniques ({@link SolvingTechnique#UNIQUE_RECTANGLE} and
+   * {@link SolvingTechnique#BUG_PLUS_ONE}), which remove the candidates that would leave the
+   * puzzle with more than one solution. On a puzzle with several solutions, they can remove all
+   * of them. {@link #countSolutions(long)} never applies them, so it can check the assumption.
+   * @param assumeUniqueSolution  whether the puzzle has a unique solution (the default is false)
+   */
+  public void setAssumeUniqueSolution(boolean assumeUniqueSolution) {
+    this.assumeUniqueSolution = assumeUniqueSolution;
   }
 
   @Override
   public ISquareSudokuGrid solve() {
-    // Check for elements with only one candidate value (naked single). These elements should have
-    // their value set to the single candidate value.
-    boolean updated = false;
-    for (int r = 0; r < grid.getDimension(); r++) {
-      for (int c = 0; c < grid.getDimension(); c++) {
-        if (grid.getCandidateValues(r, c).size() == 1 && !grid.isFixed(r, c)) {
-          int nakedSingle = (Integer) (grid.getCandidateValues(r, c).toArray()[0]);
-          System.out.println("Found naked single in element (" + r + ", " + c + "): " + nakedSingle);
-          grid.setValue(r, c, nakedSingle);
-//          System.out.println(grid.gridToString());
-          updated = true;
-        }
-      }
+    long start = System.nanoTime();
+    statistics.reset();
+    applyTechniques();
+
+    // TODO is the idea to make the Sudoku grid functional by having the solver return a grid??
+    ISquareSudokuGrid solution = grid;
+    if (bruteForceFallback && !grid.isSolved()) {
+      BruteForceSolver bruteForceSolver = new BruteForceSolver(grid);
+      bruteForceSolver.setListener(listener);
+      solution = bruteForceSolver.solveIterative();
+      statistics.merge(bruteForceSolver.getStatistics());
     }
-    if (updated) {
-      System.out.println("Restarting scan...");
-      return solve(); // Restart to scan from the beginning
+    statistics.setElapsedNanos(System.nanoTime() - start);
+    return solution;
+  }
+
+  /**
+   * Counts the solutions with a {@link BitmaskBacktrackingSolver}, which is kept between calls so
+   * that its search state is only allocated once. The grid (and the stepping state) is left as it
+   * was, and none of the techniques are applied: the search only propagates singles, which is
+   * cheaper than the techniques for the many counts made by the generator and the minimality
+   * checks, and never applies the uniqueness techniques, which can remove real solutions.
+   */
+  @Override
+  public long countSolutions(long limit) {
+    if (solutionCounter == null) {
+      solutionCounter = new BitmaskBacktrackingSolver(grid);
+    }
+    solutionCounter.setListener(listener);
+    long count = solutionCounter.countSolutions(limit);
+    statistics.reset();
+    statistics.merge(solutionCounter.getStatistics());
+    return count;
+  }
+
+  /**
+   * Applies the techniques in order of increasing cost. Whenever a technique makes progress, go
+   * back to the cheapest one. Each technique only re-examines the elements, groups, or values
+   * that changed since it last looked at them, and the loop ends once none of them are left
+   * with any progress to make (a fixpoint).
+   */
+  private void applyTechniques() {
+    stepping = false;
+    pendingEliminations = 0;
+    resetWorklists();
+    while (applyNextTechnique()) {
+      // Restart the scan with the cheapest technique.
     }
+  }
 
-    // Check for elements which are the only element in the group (row, column, or box)
-    // that contain a certain value as a candidate (hidden single).
-    updated = false;
-    for (int r = 0; r < grid.getDimension(); r++) {
-      for (int c = 0; c < grid.getDimension(); c++) {
-        if (!grid.isFixed(r, c)) {
-          // TODO use enum to distinguish between "failed, no constraint violated", "failed, constraint violated" and "success"
-          // Check against the row, column, and box (stop as soon as one of them returns true).
-          boolean elementUpdated = checkForHiddenSingle(grid, r, c, grid.getRowElements(r, c)) ||
-              checkForHiddenSingle(grid, r, c, grid.getColumnElements(r, c)) ||
-              checkForHiddenSingle(grid, r, c, grid.getBoxElements(r, c));
+  /**
+   * Applies the cheapest technique that makes progress on the pending work.
+   * @return  whether any technique made progress
+   */
+  private boolean applyNextTechnique() {
+    return applyNakedSingles() || applyHiddenSingles() || applyLockedCandidates() ||
+        applyBoxLockingCandidates() || applyHiddenSets() || applyNakedSets() || applyBasicFish() ||
+        applyFinnedFish() || applyUniquenessTechniques() || applyChains();
+  }
 
-          updated = updated || elementUpdated;
+  /**
+   * Check for elements with only one candidate value (naked single). These elements should have
+   * their value set to the single candidate value.
+   */
+  private boolean applyNakedSingles() {
+    GridGeometry geometry = grid.getGeometry();
+    while (!pendingCells.isEmpty()) {
+      int cell = pendingCells.poll();
+      int r = geometry.rowOf(cell);
+      int c = geometry.columnOf(cell);
+      if (!grid.isFixed(r, c)) {
+        long candidates = grid.getCandidateMask(r, c);
+        if (Long.bitCount(candidates) == 1) {
+          int nakedSingle = Long.numberOfTrailingZeros(candidates);
+          placeValue(grid, r, c, nakedSingle);
+          techniqueApplied(SolvingTechnique.NAKED_SINGLE);
+          return true;
         }
       }
     }
-    if (updated) {
-      System.out.println("Restarting scan...");
-      return solve(); // Restart
-    }
-
-    // Check if the candidates for a value in a box are restricted to a specific column or row.
-    // If so, that value can't be a candidate anywhere else in that column or row.
-    updated = false;
-    for (int r = 0; r < grid.getDimension(); r += Math.sqrt(grid.getDimension())) {
-      for (int c = 0; c < grid.getDimension(); c += Math.sqrt(grid.getDimension())) {
-        for (int value = 1; value <= grid.getDimension(); value++) {
-          // Separate the checks to avoid the short-circuit caused by using the || operator.
-          if (checkForRowLockedCandidate(grid, value, grid.getBoxElements(r, c))) {
-            updated = true;
-          }
+    return false;
+  }
 
-          if (checkForColumnLockedCandidate(grid, value, grid.getBoxElements(r, c))) {
-            updated = true;
-          }
+  /**
+   * Check for elements which are the only element in the group (row, column, or box)
+   * that contain a certain value as a candidate (hidden single).
+   */
+  private boolean applyHiddenSingles() {
+    GridGeometry geometry = grid.getGeometry();
+    while (!pendingHiddenSingleUnits.isEmpty()) {
+      int[] unitCells = geometry.getUnit(pendingHiddenSingleUnits.poll());
+      for (int cell : unitCells) {
+        int r = geometry.rowOf(cell);
+        int c = geometry.columnOf(cell);
+        // TODO use enum to distinguish between "failed, no constraint violated", "failed, constraint violated" and "success"
+        if (!grid.isFixed(r, c) && checkForHiddenSingle(grid, r, c, unitCells)) {
+          return true;
         }
       }
     }
-    if (updated) {
-      System.out.println("Restarting scan...");
-      return solve(); // Restart
-    }
+    return false;
+  }
 
-    // Check if the candidates for a value in a column or row are restricted to a single box.
-    // If so, that value can't be a candidate anywhere else in that box.
-    updated = false;
-    for (int r = 0; r < grid.getDimension(); r++) {
-      for (int value = 1; value <= grid.getDimension(); value++) {
-        if (checkForBoxLockingCandidate(grid, value, grid.getRowElements(r, 0))) {
+  /**
+   * Check if the candidates for a value in a box are restricted to a specific column or row.
+   * If so, that value can't be a candidate anywhere else in that column or row.
+   */
+  private boolean applyLockedCandidates() {
+    GridGeometry geometry = grid.getGeometry();
+    while (!pendingLockedCandidateBoxes.isEmpty()) {
+      int box = pendingLockedCandidateBoxes.poll();
+      int[] boxCells = geometry.getUnit(box);
+      boolean updated = false;
+      for (int value = 1; value <= grid.getDimension() && !(stepping && updated); value++) {
+        // Separate the checks to avoid the short-circuit caused by using the || operator.
+        if (checkForRowLockedCandidate(grid, value, boxCells)) {
           updated = true;
         }
+        if (!(stepping && updated) && checkForColumnLockedCandidate(grid, value, boxCells)) {
+          updated = true;
+        }
+      }
+      if (updated) {
+        if (stepping) {
+          // A step makes a single deduction, so the next step goes on with the rest of the box.
+          pendingLockedCandidateBoxes.add(box);
+        }
+        return true;
       }
     }
-    for (int c = 0; c < grid.getDimension(); c++) {
-      for (int value = 1; value <= grid.getDimension(); value++) {
-        if (checkForBoxLockingCandidate(grid, value, grid.getColumnElements(0, c))) {
+    return false;
+  }
+
+  /**
+   * Check if the candidates for a value in a column or row are restricted to a single box.
+   * If so, that value can't be a candidate anywhere else in that box.
+   */
+  private boolean applyBoxLockingCandidates() {
+    GridGeometry geometry = grid.getGeometry();
+    while (!pendingBoxLockingLines.isEmpty()) {
+      int line = pendingBoxLockingLines.poll();
+      int[] lineCells = geometry.getUnit(line);
+      boolean updated = false;
+      for (int value = 1; value <= grid.getDimension() && !(stepping && updated); value++) {
+        if (checkForBoxLockingCandidate(grid, value, lineCells)) {
           updated = true;
         }
       }
+      if (updated) {
+        if (stepping) {
+          pendingBoxLockingLines.add(line);
+        }
+        return true;
+      }
     }
-    if (updated) {
-      System.out.println("Restarting scan...");
-      return solve(); // Restart
-    }
+    return false;
+  }
 
-    // Check for a set of m elements in a group that are the only m elements in the group
-    // that contain a set of m values as candidates. In those elements, any value that
-    // isn't one of the m shared values is not a candidate (as then there would be at most m-1
-    // elements that remain to store the m shared values).
-    updated = false;
-    for (int r = 0; r < grid.getDimension(); r++) {
-      if (checkForHiddenSet(grid, grid.getRowElements(r, 0))) {
-        updated = true;
+  /**
+   * Check for a set of m elements in a group that are the only m elements in the group
+   * that contain a set of m values as candidates. In those elements, any value that
+   * isn't one of the m shared values is not a candidate (as then there would be at most m-1
+   * elements that remain to store the m shared values).
+   */
+  private boolean applyHiddenSets() {
+    GridGeometry geometry = grid.getGeometry();
+    while (!pendingHiddenSetUnits.isEmpty()) {
+      if (checkForHiddenSet(grid, geometry.getUnit(pendingHiddenSetUnits.poll()))) {
+        return true;
       }
     }
-    for (int c = 0; c < grid.getDimension(); c++) {
-      if (checkForHiddenSet(grid, grid.getColumnElements(0, c))) {
-        updated = true;
+    return false;
+  }
+
+  /**
+   * Check for a set of m elements in a group that contain only m candidates (each element must contain at least
+   * 2 candidates, but does not necessarily need to contain all m candidates). In that group, those m candidate
+   * values are only candidates in those m elements.
+   */
+  private boolean applyNakedSets() {
+    GridGeometry geometry = grid.getGeometry();
+    while (!pendingNakedSetUnits.isEmpty()) {
+      if (checkForNakedSet(grid, geometry.getUnit(pendingNakedSetUnits.poll()))) {
+        return true;
       }
     }
-    for (int r = 0; r < grid.getDimension(); r += Math.sqrt(grid.getDimension())) {
-      for (int c = 0; c < grid.getDimension(); c += Math.sqrt(grid.getDimension())) {
-        if (checkForHiddenSet(grid, grid.getBoxElements(r, c))) {
+    return false;
+  }
+
+  /**
+   * Check for two rows/columns (base sets) such that a given digit only appears in those rows/columns
+   * in two columns/rows (cover sets). Then, in those cover sets, the digit must be placed
+   * into the base sets (i.e. can be eliminated from other cells)
+   */
+  private boolean applyBasicFish() {
+    while (!pendingFishValues.isEmpty()) {
+      int value = pendingFishValues.poll();
+      boolean updated = false;
+      for (int fishSize = 2; fishSize <= maxFishSize(grid.getDimension()) && !(stepping && updated); fishSize++) {
+        if (checkForBasicFishInRows(grid, value, fishSize)) {
+          updated = true;
+        }
+        if (!(stepping && updated) && checkForBasicFishInColumns(grid, value, fishSize)) {
           updated = true;
         }
       }
+      if (updated) {
+        if (stepping) {
+          pendingFishValues.add(value);
+        }
+        return true;
+      }
     }
-    if (updated) {
-      System.out.println("Restarting scan...");
-      return solve(); // Restart
-    }
+    return false;
+  }
 
-    // Check for a set of m elements in a group that contain only m candidates (each element must contain at least
-    // 2 candidates, but does not necessarily need to contain all m candidates). In that group, those m candidate
-    // values are only candidates in those m elements.
-    updated = false;
-    for (int r = 0; r < grid.getDimension(); r++) {
-      if (checkForNakedSet(grid, grid.getRowElements(r, 0))) {
-        updated = true;
+  /**
+   * Check for a fish (as above) whose base sets have extra candidates (fins) in a single box.
+   * Either one of the fins is the value, or the fish is, so the value can be eliminated from the
+   * cover sets in the box of the fins.
+   */
+  private boolean applyFinnedFish() {
+    while (!pendingFinnedFishValues.isEmpty()) {
+      int value = pendingFinnedFishValues.poll();
+      for (int fishSize = 2; fishSize <= maxFishSize(grid.getDimension()); fishSize++) {
+        if (checkForFinnedFishInRows(grid, value, fishSize) || checkForFinnedFishInColumns(grid, value, fishSize)) {
+          return true;
+        }
       }
     }
-    for (int c = 0; c < grid.getDimension(); c++) {
-      if (checkForNakedSet(grid, grid.getColumnElements(0, c))) {
-        updated = true;
+    return false;
+  }
+
+  /**
+   * If the puzzle has a unique solution, check for patterns that would leave it with two
+   * solutions (deadly patterns). The candidates that complete such a pattern can be removed.
+   */
+  private boolean applyUniquenessTechniques() {
+    if (!assumeUniqueSolution || !pendingUniquenessChecks) {
+      return false;
+    }
+    if (checkForUniqueRectangle(grid) || checkForBugPlusOne(grid)) {
+      return true;
+    }
+    pendingUniquenessChecks = false;
+    return false;
+  }
+
+  /**
+   * Check for coloring and chains of strong and weak links between candidates (see
+   * {@link ChainFinder}), from the simplest kind of chain to the most general.
+   */
+  private boolean applyChains() {
+    if (!pendingChains) {
+      return false;
+    }
+    for (int value = 1; value <= grid.getDimension(); value++) {
+      if (checkForSimpleColoring(grid, value)) {
+        return true;
       }
     }
-    for (int r = 0; r < grid.getDimension(); r += Math.sqrt(grid.getDimension())) {
-      for (int c = 0; c < grid.getDimension(); c += Math.sqrt(grid.getDimension())) {
-        if (checkForNakedSet(grid, grid.getBoxElements(r, c))) {
-          updated = true;
-        }
+    for (int value = 1; value <= grid.getDimension(); value++) {
+      if (checkForXChain(grid, value)) {
+        return true;
       }
     }
-    if (updated) {
-      System.out.println("Restarting scan...");
-      return solve(); // Restart
+    if (checkForXYChain(grid) || checkForAlternatingInferenceChain(grid)) {
+      return true;
     }
+    pendingChains = false;
+    return false;
+  }
 
-    // Check for two rows/columns (base sets) such that a given digit only appears in those rows/columns
-    // in two columns/rows (cover sets). Then, in those cover sets, the digit must be placed
-    // into the base sets (i.e. can be eliminated from other cells)
-    updated = false;
-    for (int fishSize = 2; fishSize <= 4; fishSize++) {
-      for (int value = 1; value <= grid.getDimension(); value++) {
-        if (checkForBasicFishInRows(grid, value, fishSize)) {
-          updated = true;
-        }
-        if (checkForBasicFishInColumns(grid, value, fishSize)) {
-          updated = true;
-        }
+  /**
+   * Gets the largest fish to look for. A fish of size m in the rows is also a fish in the
+   * columns of size (number of unsolved rows) - m, so sizes up to N / 2 find every basic fish;
+   * the larger grids stop at jellyfish to keep the number of base set combinations down.
+   */
+  private static int maxFishSize(int n) {
+    return n <= 16 ? n / 2 : 4;
+  }
+
+  /**
+   * Marks every element, group, and value as needing to be examined by every technique.
+   */
+  private void resetWorklists() {
+    GridGeometry geometry = grid.getGeometry();
+    int n = grid.getDimension();
+    for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+      pendingCells.add(cell);
+    }
+    for (int unit = 0; unit < geometry.getUnitCount(); unit++) {
+      pendingHiddenSingleUnits.add(unit);
+      pendingHiddenSetUnits.add(unit);
+      pendingNakedSetUnits.add(unit);
+      if (unit < 2 * n) {
+        pendingBoxLockingLines.add(unit);
+      } else {
+        pendingLockedCandidateBoxes.add(unit);
       }
     }
-    if (updated) {
-      System.out.println("Restarting scan...");
-      return solve(); // Restart
+    chainFinder = null;
+    pendingChains = true;
+    pendingUniquenessChecks = true;
+    for (int value = 1; value <= n; value++) {
+      pendingFishValues.add(value);
+      pendingFinnedFishValues.add(value);
     }
+  }
 
-    // TODO is the idea to make the Sudoku grid functional by having the solver return a grid??
-    // TODO And then this solve method could be recursive?
-    System.out.println("Finished!");
-    System.out.println(grid.gridToString());
-    System.out.println("Elements and their candidate values:");
-    for (int r = 0; r < grid.getDimension(); r++) {
-      for (int c = 0; c < grid.getDimension(); c++) {
-        if (!grid.isFixed(r, c)) {
-          System.out.println("Candidates for element (" + r + ", " + c + "): " +
-                  DisplayStrings.setToString(grid.getCandidateValues(r, c)));
-        }
-      }
+  /**
+   * Records that a technique made progress, crediting it with the eliminations made since the
+   * last technique was applied.
+   */
+  private void techniqueApplied(SolvingTechnique technique) {
+    statistics.recordTechnique(technique, pendingEliminations);
+    pendingEliminations = 0;
+    stepTechnique = technique;
+    listener.onTechniqueApplied(technique);
+  }
+
+  /**
+   * Records that the given values were removed as candidates from the element, so that every
+   * technique re-examines the element's groups and the affected values.
+   */
+  private void cellChanged(ISquareSudokuGrid grid, int cell, long removedValues) {
+    GridGeometry geometry = grid.getGeometry();
+    int n = grid.getDimension();
+    int rowUnit = geometry.rowOf(cell);
+    int columnUnit = n + geometry.columnOf(cell);
+    int boxUnit = 2 * n + geometry.boxOf(cell);
+
+    pendingCells.add(cell);
+    if (chainFinder != null && chainFinder.getGraph().getGrid() == grid) {
+      chainFinder.getGraph().candidatesRemoved(cell, removedValues);
     }
+    pendingChains = true;
+    pendingUniquenessChecks = true;
+    pendingHiddenSingleUnits.add(rowUnit);
+    pendingHiddenSingleUnits.add(columnUnit);
+    pendingHiddenSingleUnits.add(boxUnit);
+    pendingLockedCandidateBoxes.add(boxUnit);
+    pendingBoxLockingLines.add(rowUnit);
+    pendingBoxLockingLines.add(columnUnit);
+    pendingHiddenSetUnits.add(rowUnit);
+    pendingHiddenSetUnits.add(columnUnit);
+    pendingHiddenSetUnits.add(boxUnit);
+    pendingNakedSetUnits.add(rowUnit);
+    pendingNakedSetUnits.add(columnUnit);
+    pendingNakedSetUnits.add(boxUnit);
+    for (long values = removedValues; values != 0; values &= values - 1) {
+      pendingFishValues.add(Long.numberOfTrailingZeros(values));
+      pendingFinnedFishValues.add(Long.numberOfTrailingZeros(values));
+    }
+  }
 
-    if (!grid.isSolved()) {
-      BruteForceSolver bruteForceSolver = new BruteForceSolver(grid);
-      return bruteForceSolver.solveIterative();
+  /**
+   * Removes the value as a candidate from the element at (r, c) and records the change.
+   */
+  private void removeCandidate(ISquareSudokuGrid grid, int r, int c, int value) {
+    grid.setCandidate(r, c, value, false);
+    pendingEliminations++;
+    listener.onElimination(r, c, value);
+    if (stepEvents != null) {
+      stepEvents.add(SolverEvent.elimination(r, c, value));
     }
-    return grid;
+    cellChanged(grid, grid.getGeometry().cellIndex(r, c), 1L << value);
+  }
+
+  /**
+   * Assigns the value to the element at (r, c) and records the change to the element and to
+   * every peer that loses the value as a candidate.
+   */
+  private void placeValue(ISquareSudokuGrid grid, int r, int c, int value) {
+    GridGeometry geometry = grid.getGeometry();
+    int cell = geometry.cellIndex(r, c);
+    long removedValues = grid.getCandidateMask(r, c);
+    for (int peer : geometry.getPeers(cell)) {
+      int peerRow = geometry.rowOf(peer);
+      int peerColumn = geometry.columnOf(peer);
+      if (!grid.isFixed(peerRow, peerColumn) && grid.isACandidate(peerRow, peerColumn, value)) {
+        pendingEliminations++;
+        cellChanged(grid, peer, 1L << value);
+      }
+    }
+    grid.setValue(r, c, value);
+    listener.onPlacement(r, c, value);
+    if (stepEvents != null) {
+      stepEvents.add(SolverEvent.placement(r, c, value));
+    }
+    cellChanged(grid, cell, removedValues);
   }
 
   @Override
   public List<ISquareSudokuGrid> findAllSolutions() {
+    long start = System.nanoTime();
     ISquareSudokuGrid firstAttempt = this.solve();
 
     if (firstAttempt.isSolved()) {
@@ -220,36 +553,59 @@ public class ConstraintBasedSolver implements ISquareSudokuSolver {
     }
 
     BruteForceSolver bruteForceSolver = new BruteForceSolver(firstAttempt);
-    return bruteForceSolver.findAllSolutions();
+    bruteForceSolver.setListener(listener);
+    List<ISquareSudokuGrid> solutions = bruteForceSolver.findAllSolutions();
+    statistics.merge(bruteForceSolver.getStatistics());
+    statistics.setElapsedNanos(System.nanoTime() - start);
+    return solutions;
+  }
+
+  /**
+   * Converts a list of element coordinates into row-major cell indices.
+   */
+  private static int[] toCells(ISquareSudokuGrid grid, List<Pair<Integer, Integer>> coordinates) {
+    int[] cells = new int[coordinates.size()];
+    for (int k = 0; k < cells.length; k++) {
+      cells[k] = grid.getGeometry().cellIndex(coordinates.get(k).first(), coordinates.get(k).second());
+    }
+    return cells;
+  }
+
+  private static boolean contains(int[] cells, int cell) {
+    for (int other : cells) {
+      if (other == cell) {
+        return true;
+      }
+    }
+    return false;
   }
 
   public boolean checkForHiddenSingle(ISquareSudokuGrid grid, int r, int c, List<Pair<Integer, Integer>> groupCoordinates) {
-    Set<Integer> candidates = grid.getCandidateValues(r, c);
-    for (Pair<Integer, Integer> coords : groupCoordinates) {
+    return checkForHiddenSingle(grid, r, c, toCells(grid, groupCoordinates));
+  }
+
+  public boolean checkForHiddenSingle(ISquareSudokuGrid grid, int r, int c, int[] groupCells) {
+    GridGeometry geometry = grid.getGeometry();
+    int self = geometry.cellIndex(r, c);
+    long candidates = grid.getCandidateMask(r, c);
+    for (int cell : groupCells) {
       // Don't compare with self.
-      if (!(coords.first() == r && coords.second() == c)) {
-        candidates.removeAll(grid.getCandidateValues(coords.first(), coords.second()));
+      if (cell != self) {
+        candidates &= ~grid.getCandidateMask(geometry.rowOf(cell), geometry.columnOf(cell));
       }
 
       // Early exit: each of this element's candidate values can be found in some other element in the group
-      if (candidates.isEmpty()) {
+      if (candidates == 0) {
         return false;
       }
     }
-    if (candidates.size() > 1) {
-      System.out.println("Constraint violated! These values appear only once in element (" + r + ", " + c + "): " +
-          DisplayStrings.setToString(candidates));
+    if (Long.bitCount(candidates) > 1) {
+      // Constraint violated: more than one value appears only in this element.
       return false;
-    } else if (candidates.size() == 1) {
-      int hiddenSingle = (Integer) (candidates.toArray()[0]);
-      System.out.println("Found hidden single in element (" + r + ", " + c + "): " + hiddenSingle);
-//      System.out.println("Group elements and their candidate values:");
-//      for (Pair<Integer, Integer> coords : groupCoordinates) {
-//        System.out.println("Candidates for element (" + coords.first() + ", " + coords.second() + "): " +
-//            DisplayStrings.setToString(grid.getCandidateValues(coords.first(), coords.second())));
-//      }
-      grid.setValue(r, c, hiddenSingle);
-//      System.out.println(grid.gridToString());
+    } else if (candidates != 0) {
+      int hiddenSingle = Long.numberOfTrailingZeros(candidates);
+      placeValue(grid, r, c, hiddenSingle);
+      techniqueApplied(SolvingTechnique.HIDDEN_SINGLE);
       return true;
     } else {
       return false;
@@ -259,25 +615,32 @@ public class ConstraintBasedSolver implements ISquareSudokuSolver {
   public boolean checkForRowLockedCandidate(ISquareSudokuGrid grid,
                                              int value,
                                              List<Pair<Integer, Integer>> boxElements) {
+    return checkForRowLockedCandidate(grid, value, toCells(grid, boxElements));
+  }
+
+  public boolean checkForRowLockedCandidate(ISquareSudokuGrid grid, int value, int[] boxCells) {
+    GridGeometry geometry = grid.getGeometry();
     boolean inARow = false;
     int lockedRow = -1;
-    Pair<Integer, Integer> boxCoordinates = new Pair<>(-1, -1);
-    for (Pair<Integer, Integer> coord : boxElements) {
+    int box = -1;
+    for (int cell : boxCells) {
+      int r = geometry.rowOf(cell);
+      int c = geometry.columnOf(cell);
       // If this value is already fixed in this box, this check is invalid.
-      if (grid.isFixed(coord.first(), coord.second()) && grid.getValue(coord.first(), coord.second()) == value) {
+      if (grid.isFixed(r, c) && grid.getValue(r, c) == value) {
         return false;
       }
 
       // Check if the value is a candidate in this row (ignoring multiple occurrences in the same row).
-      if (grid.isACandidate(coord.first(), coord.second(), value) && lockedRow != coord.first()) {
+      if (grid.isACandidate(r, c, value) && lockedRow != r) {
         if (!inARow) {
           inARow = true;
-          lockedRow = coord.first();
+          lockedRow = r;
         } else {
           return false; // Found in more than one row.
         }
       }
-      boxCoordinates = grid.getBoxCoordinates(coord.first(), coord.second());
+      box = geometry.boxOf(cell);
     }
 
     if (lockedRow < 0) {
@@ -288,185 +651,199 @@ public class ConstraintBasedSolver implements ISquareSudokuSolver {
     }
 
     // If control reaches here, means that this value is restricted to a single row in this box.
-    System.out.println("Found locked candidate in box (" + boxCoordinates.first() + ", " + boxCoordinates.second() +
-        "), row = " + lockedRow + ": " + value);
-//    System.out.println("Box elements and their candidate values:");
-//    for (Pair<Integer, Integer> coords : boxElements) {
-//      System.out.println("Candidates for element (" + coords.first() + ", " + coords.second() + "): " +
-//          DisplayStrings.setToString(grid.getCandidateValues(coords.first(), coords.second())));
-//    }
     boolean updated = false;
-    for (int c = 0; c < grid.getDimension(); c++) {
+    for (int cell : geometry.getRow(lockedRow)) {
       // Don't constrain the elements in the same box.
-      if (!grid.getBoxCoordinates(lockedRow, c).equals(boxCoordinates)) {
+      if (geometry.boxOf(cell) != box) {
+        int c = geometry.columnOf(cell);
         if (grid.isACandidate(lockedRow, c, value)) {
-          grid.setCandidate(lockedRow, c, value, false);
+          removeCandidate(grid, lockedRow, c, value);
           updated = true;
-          System.out.println("Removed " + value + " as a candidate from element (" + lockedRow + ", " + c + ")");
         }
       }
     }
+    if (updated) {
+      techniqueApplied(SolvingTechnique.LOCKED_CANDIDATE);
+    }
     return updated;
   }
 
   public boolean checkForColumnLockedCandidate(ISquareSudokuGrid grid,
                                                 int value,
                                                 List<Pair<Integer, Integer>> boxElements) {
+    return checkForColumnLockedCandidate(grid, value, toCells(grid, boxElements));
+  }
+
+  public boolean checkForColumnLockedCandidate(ISquareSudokuGrid grid, int value, int[] boxCells) {
+    GridGeometry geometry = grid.getGeometry();
     boolean inAColumn = false;
     int lockedColumn = -1;
-    Pair<Integer, Integer> boxCoordinates = new Pair<>(-1, -1);
-    for (Pair<Integer, Integer> coord : boxElements) {
+    int box = -1;
+    for (int cell : boxCells) {
+      int r = geometry.rowOf(cell);
+      int c = geometry.columnOf(cell);
       // If this value is already fixed in this box, this check is invalid.
-      if (grid.isFixed(coord.first(), coord.second()) && grid.getValue(coord.first(), coord.second()) == value) {
+      if (grid.isFixed(r, c) && grid.getValue(r, c) == value) {
         return false;
       }
 
-      // Check if the value is a candidate in this row (ignoring multiple occurrences in the same row).
-      if (grid.isACandidate(coord.first(), coord.second(), value) && lockedColumn != coord.second()) {
+      // Check if the value is a candidate in this column (ignoring multiple occurrences in the same column).
+      if (grid.isACandidate(r, c, value) && lockedColumn != c) {
         if (!inAColumn) {
           inAColumn = true;
-          lockedColumn = coord.second();
+          lockedColumn = c;
         } else {
           return false; // Found in more than one column.
         }
       }
-      boxCoordinates = grid.getBoxCoordinates(coord.first(), coord.second());
+      box = geometry.boxOf(cell);
     }
 
-    // If control reaches here, means that this value is restricted to a single row in this box.
-    System.out.println("Found locked candidate in box (" + boxCoordinates.first() + ", " + boxCoordinates.second() +
-        "), column = " + lockedColumn + ": " + value);
-//    System.out.println("Box elements and their candidate values:");
-//    for (Pair<Integer, Integer> coords : boxElements) {
-//      System.out.println("Candidates for element (" + coords.first() + ", " + coords.second() + "): " +
-//          DisplayStrings.setToString(grid.getCandidateValues(coords.first(), coords.second())));
-//    }
+    if (lockedColumn < 0) {
+      // Same as for rows: the digit is neither fixed nor a candidate in the box.
+      return false;
+    }
+
+    // If control reaches here, means that this value is restricted to a single column in this box.
 
     // But did we make any progress (i.e. removing a candidate value)?
     boolean updated = false;
-    for (int r = 0; r < grid.getDimension(); r++) {
+    for (int cell : geometry.getColumn(lockedColumn)) {
       // Don't constrain the elements in the same box.
-      if (!grid.getBoxCoordinates(r, lockedColumn).equals(boxCoordinates)) {
+      if (geometry.boxOf(cell) != box) {
+        int r = geometry.rowOf(cell);
         if (grid.isACandidate(r, lockedColumn, value)) {
-          grid.setCandidate(r, lockedColumn, value, false);
+          removeCandidate(grid, r, lockedColumn, value);
           updated = true;
-          System.out.println("Removed " + value + " as a candidate from element (" + r + ", " + lockedColumn + ")");
         }
       }
     }
+    if (updated) {
+      techniqueApplied(SolvingTechnique.LOCKED_CANDIDATE);
+    }
     return updated;
   }
 
   public boolean checkForBoxLockingCandidate(ISquareSudokuGrid grid, int value, List<Pair<Integer, Integer>> groupElements) {
-    boolean foundInBox = false;
-    Pair<Integer, Integer> boxCoordinates = new Pair<>(-1, -1);
-    for (Pair<Integer, Integer> coord : groupElements) {
+    return checkForBoxLockingCandidate(grid, value, toCells(grid, groupElements));
+  }
+
+  public boolean checkForBoxLockingCandidate(ISquareSudokuGrid grid, int value, int[] groupCells) {
+    GridGeometry geometry = grid.getGeometry();
+    int box = -1;
+    for (int cell : groupCells) {
+      int r = geometry.rowOf(cell);
+      int c = geometry.columnOf(cell);
       // If grid has already assigned an element to this value (i.e. the value isn't a candidate), no need to check.
-      if (grid.getValue(coord.first(), coord.second()) == value) {
+      if (grid.getValue(r, c) == value) {
         return false;
       }
 
-      if (grid.isACandidate(coord.first(), coord.second(), value)) {
-        if (!foundInBox) {
-          foundInBox = true;
-          boxCoordinates = grid.getBoxCoordinates(coord.first(), coord.second());
-        } else if (!grid.getBoxCoordinates(coord.first(), coord.second()).equals(boxCoordinates)) {
+      if (grid.isACandidate(r, c, value)) {
+        if (box < 0) {
+          box = geometry.boxOf(cell);
+        } else if (geometry.boxOf(cell) != box) {
           return false;
         }
       }
     }
+    if (box < 0) {
+      // The digit is neither fixed nor a candidate in the group.
+      return false;
+    }
+
     // If control reaches here, means that this value is restricted to a single box in this row or column.
-    System.out.println("Found box-locking candidate in box (" + boxCoordinates.first() + ", " + boxCoordinates.second() +
-        "): " + value);
-//    System.out.println("Group elements and their candidate values:");
-//    for (Pair<Integer, Integer> coords : groupElements) {
-//      System.out.println("Candidates for element (" + coords.first() + ", " + coords.second() + "): " +
-//          DisplayStrings.setToString(grid.getCandidateValues(coords.first(), coords.second())));
-//    }
 
     // But did we make any progress (i.e. removing a candidate value)?
     boolean updated = false;
-    for (Pair<Integer, Integer> coord : grid.getBoxElementsByCoordinates(boxCoordinates)) {
+    for (int cell : geometry.getBox(box)) {
       // Don't constrain the elements in the same row or column.
-      if (!groupElements.contains(coord)) {
-        if (grid.isACandidate(coord.first(), coord.second(), value)) {
-          grid.setCandidate(coord.first(), coord.second(), value, false);
+      if (!contains(groupCells, cell)) {
+        int r = geometry.rowOf(cell);
+        int c = geometry.columnOf(cell);
+        if (grid.isACandidate(r, c, value)) {
+          removeCandidate(grid, r, c, value);
           updated = true;
-          System.out.println("Removed " + value + " as a candidate from element (" + coord.first() + ", " + coord.second() + ")");
         }
       }
     }
+    if (updated) {
+      techniqueApplied(SolvingTechnique.BOX_LOCKING_CANDIDATE);
+    }
     return updated;
   }
 
   public boolean checkForHiddenSet(ISquareSudokuGrid grid, List<Pair<Integer, Integer>> groupElements) {
+    return checkForHiddenSet(grid, toCells(grid, groupElements));
+  }
+
+  public boolean checkForHiddenSet(ISquareSudokuGrid grid, int[] groupCells) {
+    GridGeometry geometry = grid.getGeometry();
+    int n = grid.getDimension();
+
     // how many cells/values in the group are not fixed?
     int groupCandidateCount = 0;
 
-    // Count the occurrences of each candidate in the group.
-    Map<Integer, List<Pair<Integer, Integer>>> candidateCoords = new TreeMap<>();
-    for (Pair<Integer, Integer> coord : groupElements) {
-      if (!grid.isFixed(coord.first(), coord.second())) {
+    // For each candidate, the positions (within the group) of the elements that contain it.
+    long[] candidatePositions = new long[n + 1];
+    for (int k = 0; k < groupCells.length; k++) {
+      int r = geometry.rowOf(groupCells[k]);
+      int c = geometry.columnOf(groupCells[k]);
+      if (!grid.isFixed(r, c)) {
         groupCandidateCount++;
-        for (int candidate : grid.getCandidateValues(coord.first(), coord.second())) {
-          if (!candidateCoords.containsKey(candidate)) {
-            candidateCoords.put(candidate, new ArrayList<>());
+        for (int candidate = 1; candidate <= n; candidate++) {
+          if (grid.isACandidate(r, c, candidate)) {
+            candidatePositions[candidate] |= 1L << k;
           }
-          candidateCoords.get(candidate).add(coord);
         }
       }
     }
 
+    int[] eligibleValues = new int[n];
     for (int numCandidates = 2; numCandidates < groupCandidateCount; numCandidates++) {
       // Search for a hidden n-subset where n is the number of candidates in the hidden subset.
-      List<Integer> eligibleValues = new ArrayList<>();
-      for (Integer value : candidateCoords.keySet()) {
+      int eligibleCount = 0;
+      for (int value = 1; value <= n; value++) {
         // Values that are candidates in more than n cells can't be used to form a hidden n-subset.
         // Note that values that are fixed (i.e. are not candidates in any cells) cannot form a hidden subset either.
-        if (candidateCoords.get(value).size() <= numCandidates && candidateCoords.get(value).size() > 0) {
-          eligibleValues.add(value);
+        int positionCount = Long.bitCount(candidatePositions[value]);
+        if (positionCount <= numCandidates && positionCount > 0) {
+          eligibleValues[eligibleCount++] = value;
         }
       }
 
-      // Try all possible subsets of size n.
-      List<List<Integer>> valueSubsets = SubsetHelper.listAllSubsetsOfSize(eligibleValues, numCandidates);
-
-      for (List<Integer> hiddenSubsetValues : valueSubsets) {
-        List<Pair<Integer, Integer>> hiddenSubsetCoords = new ArrayList<>();
-        for (Integer value : hiddenSubsetValues) {
-          for (Pair<Integer, Integer> candidateCoord : candidateCoords.get(value)) {
-            if (!hiddenSubsetCoords.contains(candidateCoord)) {
-              hiddenSubsetCoords.add(candidateCoord);
-            }
-          }
+      // Try all possible subsets of size n, as bit strings over the eligible values.
+      for (long subset = SubsetHelper.firstCombination(numCandidates); subset < 1L << eligibleCount;
+           subset = SubsetHelper.nextCombination(subset)) {
+        long hiddenSubsetPositions = 0;
+        long hiddenSubsetMask = 0;
+        for (long members = subset; members != 0; members &= members - 1) {
+          int value = eligibleValues[Long.numberOfTrailingZeros(members)];
+          hiddenSubsetPositions |= candidatePositions[value];
+          hiddenSubsetMask |= 1L << value;
         }
 
-        if (hiddenSubsetCoords.size() == numCandidates) {
+        if (Long.bitCount(hiddenSubsetPositions) == numCandidates) {
           // Found a hidden n-subset.
-          System.out.println("Found a hidden subset! Candidate values: " + hiddenSubsetValues);
-//          System.out.println("Element coordinates: " + hiddenSubsetCoords);
-//          System.out.println("Group elements and their candidate values:");
-//          for (Pair<Integer, Integer> coords : groupElements) {
-//            System.out.println("Candidates for element (" + coords.first() + ", " + coords.second() + "): " +
-//                DisplayStrings.setToString(grid.getCandidateValues(coords.first(), coords.second())));
-//          }
 
           // But did we make any progress (i.e. removing a candidate value)?
           boolean updated = false;
-          for (Pair<Integer, Integer> coord : hiddenSubsetCoords) {
-            Set<Integer> cellCandidates = grid.getCandidateValues(coord.first(), coord.second());
+          for (long positions = hiddenSubsetPositions; positions != 0; positions &= positions - 1) {
+            int cell = groupCells[Long.numberOfTrailingZeros(positions)];
+            int r = geometry.rowOf(cell);
+            int c = geometry.columnOf(cell);
 
             // for cells within the hidden subset, remove any candidates are not in the set of values
-            for (int cellCandidate : cellCandidates) {
-              if (!hiddenSubsetValues.contains(cellCandidate)) {
-                grid.setCandidate(coord.first(), coord.second(), cellCandidate, false);
-                updated = true;
-                System.out.printf("Removed %d as a candidate from element (%d, %d)%n",
-                        cellCandidate, coord.first(), coord.second());
-              }
+            long extraCandidates = grid.getCandidateMask(r, c) & ~hiddenSubsetMask;
+            while (extraCandidates != 0) {
+              int cellCandidate = Long.numberOfTrailingZeros(extraCandidates);
+              extraCandidates &= extraCandidates - 1;
+              removeCandidate(grid, r, c, cellCandidate);
+              updated = true;
             }
           }
           if (updated) {
+            techniqueApplied(SolvingTechnique.HIDDEN_SET);
             return true;
           }
         }
@@ -476,62 +853,69 @@ public class ConstraintBasedSolver implements ISquareSudokuSolver {
   }
 
   public boolean checkForNakedSet(ISquareSudokuGrid grid, List<Pair<Integer, Integer>> groupElements) {
-    // how many cells/values in the group are not fixed?
+    return checkForNakedSet(grid, toCells(grid, groupElements));
+  }
+
+  public boolean checkForNakedSet(ISquareSudokuGrid grid, int[] groupCells) {
+    GridGeometry geometry = grid.getGeometry();
+
+    // how many cells/values in the group are not fixed? And what are their candidates?
     int groupCandidateCount = 0;
-    for (Pair<Integer, Integer> coord : groupElements) {
-      if (!grid.isFixed(coord.first(), coord.second())) {
+    long[] cellCandidates = new long[groupCells.length];
+    for (int k = 0; k < groupCells.length; k++) {
+      int r = geometry.rowOf(groupCells[k]);
+      int c = geometry.columnOf(groupCells[k]);
+      if (!grid.isFixed(r, c)) {
         groupCandidateCount++;
+        cellCandidates[k] = grid.getCandidateMask(r, c);
       }
     }
 
+    // The positions (within the group) of the cells that can form the naked subset.
+    int[] eligiblePositions = new int[groupCells.length];
     for (int numCandidates = 2; numCandidates < groupCandidateCount; numCandidates++) {
       // Search for a naked n-subset where n is the number of candidates in the naked subset.
-      List<Pair<Integer, Integer>> eligibleCoords = new ArrayList<>();
-      for (Pair<Integer, Integer> coords : groupElements) {
+      int eligibleCount = 0;
+      for (int k = 0; k < groupCells.length; k++) {
         // Cells with more than n candidate values can't be used to form a naked n-subset.
-        if (!grid.isFixed(coords.first(), coords.second()) &&
-                grid.getCandidateValues(coords.first(), coords.second()).size() <= numCandidates) {
-          eligibleCoords.add(coords);
+        if (cellCandidates[k] != 0 && Long.bitCount(cellCandidates[k]) <= numCandidates) {
+          eligiblePositions[eligibleCount++] = k;
         }
       }
 
-      // Try all possible subsets of size n.
-      List<List<Pair<Integer, Integer>>> coordSubsets = SubsetHelper.listAllSubsetsOfSize(eligibleCoords, numCandidates);
-      for (List<Pair<Integer, Integer>> nakedSubsetCoords : coordSubsets) {
-        Set<Integer> nakedSubset = new TreeSet<>();
-        for (Pair<Integer, Integer> subsetCoord : nakedSubsetCoords) {
-          nakedSubset.addAll(grid.getCandidateValues(subsetCoord.first(), subsetCoord.second()));
+      // Try all possible subsets of size n, as bit strings over the eligible cells.
+      for (long subset = SubsetHelper.firstCombination(numCandidates); subset < 1L << eligibleCount;
+           subset = SubsetHelper.nextCombination(subset)) {
+        long nakedSubset = 0;
+        long nakedSubsetPositions = 0;
+        for (long members = subset; members != 0; members &= members - 1) {
+          int k = eligiblePositions[Long.numberOfTrailingZeros(members)];
+          nakedSubset |= cellCandidates[k];
+          nakedSubsetPositions |= 1L << k;
         }
 
-        if (nakedSubset.size() == numCandidates) {
+        if (Long.bitCount(nakedSubset) == numCandidates) {
           // Found a naked n-subset.
-          System.out.println("Found a naked subset! Candidate values: " + DisplayStrings.setToString(nakedSubset));
-//            System.out.println("Element coordinates: " + nakedSubsetCoords);
-//            System.out.println("Group elements and their candidate values:");
-//            for (Pair<Integer, Integer> coords : groupElements) {
-//              System.out.println("Candidates for element (" + coords.first() + ", " + coords.second() + "): " +
-//                  DisplayStrings.setToString(grid.getCandidateValues(coords.first(), coords.second())));
-//            }
 
           // TODO check if the naked subset elements are all in multiple groups (e.g. all in the same row and in the same box)
           // But did we make any progress (i.e. removing a candidate value)?
           boolean updated = false;
-          for (Pair<Integer, Integer> coord : groupElements) {
-            if (!grid.isFixed(coord.first(), coord.second()) && !nakedSubsetCoords.contains(coord)) {
-              Set<Integer> cellCandidates = grid.getCandidateValues(coord.first(), coord.second());
-
+          for (int k = 0; k < groupCells.length; k++) {
+            int r = geometry.rowOf(groupCells[k]);
+            int c = geometry.columnOf(groupCells[k]);
+            if (!grid.isFixed(r, c) && (nakedSubsetPositions & (1L << k)) == 0) {
               // for cells outside the naked subset, remove any candidates that are in the set of values
-              for (int nakedSubsetValue : nakedSubset) {
-                if (cellCandidates.contains(nakedSubsetValue)) {
-                  grid.setCandidate(coord.first(), coord.second(), nakedSubsetValue, false);
-                  updated = true;
-                  System.out.printf("Removed %d as a candidate from element (%d, %d)%n",
-                          nakedSubsetValue, coord.first(), coord.second());
-                }
+              long removable = grid.getCandidateMask(r, c) & nakedSubset;
+              while (removable != 0) {
+                int nakedSubsetValue = Long.numberOfTrailingZeros(removable);
+                removable &= removable - 1;
+                removeCandidate(grid, r, c, nakedSubsetValue);
+                updated = true;
               }
             }
           }
           if (updated) {
+            techniqueApplied(SolvingTechnique.NAKED_SET);
             return true;
           }
         }
@@ -541,135 +925,524 @@ public class ConstraintBasedSolver implements ISquareSudokuSolver {
   }
 
   public boolean checkForBasicFishInRows(ISquareSudokuGrid grid, Integer focusValue, int fishSize) {
-    // try to find N rows so that, across all rows, there are only N columns that contain candidates for the digit
-    Map<Integer, Set<Integer>> rowCandidateColumns = new HashMap<>();
-
-    // only rows with the candidate in at most N columns are eligible to be a part of the basic fish
-    List<Integer> eligibleRows = new ArrayList<>();
-
-    for (int r = 0; r < grid.getDimension(); r++) {
-      Set<Integer> candidateColumns = new HashSet<>();
-      for (int c = 0; c < grid.getDimension(); c++) {
-        if (grid.isFixed(r, c) && grid.getValue(r, c) == focusValue) {
-          // this digit is already fixed in this row, skip
-          candidateColumns = new HashSet<>();
-          break;
-        }
+    return checkForFish(grid, focusValue, fishSize, true, false);
+  }
+
+  public boolean checkForBasicFishInColumns(ISquareSudokuGrid grid, Integer focusValue, int fishSize) {
+    return checkForFish(grid, focusValue, fishSize, false, false);
+  }
+
+  public boolean checkForFinnedFishInRows(ISquareSudokuGrid grid, int value, int fishSize) {
+    return checkForFish(grid, value, fishSize, true, true);
+  }
+
+  public boolean checkForFinnedFishInColumns(ISquareSudokuGrid grid, int value, int fishSize) {
+    return checkForFish(grid, value, fishSize, false, true);
+  }
 
-        if (!grid.isFixed(r, c) && grid.getCandidateValues(r, c).contains(focusValue)) {
-          candidateColumns.add(c);
+  /**
+   * Looks for a fish of the given size for the value. The base sets are rows and the cover sets
+   * are columns if rowBase is true, and the other way around otherwise.
+   *
+   * <p>Each line (a row or column that can be a base set) is reduced to a bit string of the
+   * positions along it where the value is a candidate, and the base sets are enumerated as bit
+   * combinations of the eligible lines, so the search only takes unions and popcounts.</p>
+   *
+   * <p>Without fins, every fish is applied, unless the solver is stepping. With fins, or when
+   * stepping, only the first fish that eliminates anything is applied (as a finned or sashimi
+   * fish if it has fins).</p>
+   */
+  private boolean checkForFish(ISquareSudokuGrid grid, int value, int fishSize, boolean rowBase, boolean finned) {
+    int n = grid.getDimension();
+    int boxSize = grid.getGeometry().getBoxSize();
+
+    // For each line, the positions along it (columns of a row, rows of a column) that have the
+    // value as a candidate, or nothing if the value is already placed in the line.
+    long[] lineCandidates = new long[n];
+
+    // Only lines with the candidate in at most N positions (plus a box worth of fins) are
+    // eligible to be base sets.
+    int[] eligibleLines = new int[n];
+    int eligibleCount = 0;
+    int maxCandidates = finned ? fishSize + boxSize : fishSize;
+    for (int line = 0; line < n; line++) {
+      long candidates = 0;
+      for (int position = 0; position < n; position++) {
+        int r = rowBase ? line : position;
+        int c = rowBase ? position : line;
+        if (grid.isFixed(r, c)) {
+          if (grid.getValue(r, c) == value) {
+            candidates = 0;
+            break;
+          }
+        } else if (grid.isACandidate(r, c, value)) {
+          candidates |= 1L << position;
         }
       }
-      rowCandidateColumns.put(r, candidateColumns);
-      if (candidateColumns.size() <= fishSize && candidateColumns.size() > 0) {
-        eligibleRows.add(r);
+      lineCandidates[line] = candidates;
+      int candidateCount = Long.bitCount(candidates);
+      if (candidateCount > 0 && candidateCount <= maxCandidates) {
+        eligibleLines[eligibleCount++] = line;
       }
     }
 
-    // need to find a subset of N of the rows such that:
-    // - size of the union of columns = N (i.e. across each of the N rows, the digit only appears as
-    //   a candidate in N columns)
     boolean updated = false;
-    List<List<Integer>> rowSubsets = SubsetHelper.listAllSubsetsOfSize(eligibleRows, fishSize);
-    for (List<Integer> rowSubset : rowSubsets) {
-      Set<Integer> columnsUnion = new HashSet<>();
-      for (Integer rowIndex : rowSubset) {
-        columnsUnion.addAll(rowCandidateColumns.get(rowIndex));
+    for (long subset = SubsetHelper.firstCombination(fishSize); subset < 1L << eligibleCount;
+         subset = SubsetHelper.nextCombination(subset)) {
+      long baseLines = 0;
+      long coverPositions = 0;
+      for (long members = subset; members != 0; members &= members - 1) {
+        int line = eligibleLines[Long.numberOfTrailingZeros(members)];
+        baseLines |= 1L << line;
+        coverPositions |= lineCandidates[line];
       }
 
-      if (columnsUnion.size() == fishSize) {
-        // found a basic fish
-        System.out.printf("Found basic fish, size = %d! Value: %d in rows %s is locked to columns %s%n", fishSize, focusValue, rowSubset, DisplayStrings.setToString(columnsUnion));
-
-        // eliminate all candidates in columns (the cover sets)
-        // that are not present in any of the rows (the base sets)
-        List<Pair<Integer, Integer>> elementCoords = new ArrayList<>();
-        for (Integer colIdx : columnsUnion) {
-          elementCoords.addAll(grid.getColumnElements(0, colIdx));
-        }
-
-        for (Pair<Integer, Integer> coord : elementCoords) {
-          int r = coord.first(), c = coord.second();
-          if (rowSubset.contains(r)) {
+      int coverCount = Long.bitCount(coverPositions);
+      if (!finned && coverCount == fishSize) {
+        // found a basic fish: eliminate the value from the cover sets outside of the base sets
+        for (int line = 0; line < n; line++) {
+          if ((baseLines & (1L << line)) != 0) {
             continue;
           }
-          if (!grid.isFixed(r, c) && grid.getCandidateValues(r, c).contains(focusValue)) {
-            grid.setCandidate(r, c, focusValue, false);
-            System.out.printf("Removed candidate %d from (%d, %d)%n", focusValue, r, c);
+          for (long removable = lineCandidates[line] & coverPositions; removable != 0; removable &= removable - 1) {
+            removeFishCandidate(grid, value, rowBase, line, Long.numberOfTrailingZeros(removable));
             updated = true;
           }
+          lineCandidates[line] &= ~coverPositions;
+        }
+        if (stepping && updated) {
+          break;
         }
+      } else if (finned && coverCount > fishSize &&
+          checkForFins(grid, value, fishSize, rowBase, lineCandidates, baseLines, coverPositions)) {
+        return true;
       }
     }
 
+    if (updated) {
+      techniqueApplied(SolvingTechnique.BASIC_FISH);
+    }
     return updated;
   }
 
-  public boolean checkForBasicFishInColumns(ISquareSudokuGrid grid, Integer focusValue, int fishSize) {
-    // try to find N columns so that, across all columns, there are only N rows that contain candidates for the digit
-    Map<Integer, Set<Integer>> columnCandidateRows = new HashMap<>();
-
-    // only rows with the candidate in at most N columns are eligible to be a part of the basic fish
-    List<Integer> eligibleColumns = new ArrayList<>();
-
-    for (int c = 0; c < grid.getDimension(); c++) {
-      Set<Integer> candidateRows = new HashSet<>();
-      for (int r = 0; r < grid.getDimension(); r++) {
-        if (grid.isFixed(r, c) && grid.getValue(r, c) == focusValue) {
-          // this digit is already fixed in this column, skip
-          candidateRows = new HashSet<>();
-          break;
+  /**
+   * Looks for a way to split the candidates of the base lines into a fish and fins in a single
+   * box, and eliminates the value from the cells of the cover sets in that box.
+   */
+  private boolean checkForFins(ISquareSudokuGrid grid, int value, int fishSize, boolean rowBase,
+                               long[] lineCandidates, long baseLines, long candidatePositions) {
+    int boxSize = grid.getGeometry().getBoxSize();
+    for (int stack = 0; stack < boxSize; stack++) {
+      // The fins must be in the box's positions across the lines; every candidate outside of
+      // them is in a cover set.
+      long stackPositions = ((1L << boxSize) - 1) << (stack * boxSize);
+      long outside = candidatePositions & ~stackPositions;
+      long inside = candidatePositions & stackPositions;
+      int coverInsideCount = fishSize - Long.bitCount(outside);
+      if (coverInsideCount < 1) {
+        continue;
+      }
+
+      // Try each choice of which positions in the box are cover sets; the rest are fins.
+      for (long choice = SubsetHelper.firstCombination(coverInsideCount); choice < 1L << Long.bitCount(inside);
+           choice = SubsetHelper.nextCombination(choice)) {
+        long coverInside = 0;
+        long remaining = inside;
+        for (int k = 0; remaining != 0; k++, remaining &= remaining - 1) {
+          if ((choice & (1L << k)) != 0) {
+            coverInside |= remaining & -remaining;
+          }
+        }
+        long coverPositions = outside | coverInside;
+        long finPositions = inside & ~coverInside;
+
+        // All the fins must be in the same box, i.e. in base lines of the same band.
+        int finBand = -1;
+        boolean sashimi = false;
+        boolean finsInOneBox = true;
+        for (long lines = baseLines; lines != 0; lines &= lines - 1) {
+          int line = Long.numberOfTrailingZeros(lines);
+          if ((lineCandidates[line] & finPositions) != 0) {
+            if (finBand >= 0 && finBand != line / boxSize) {
+              finsInOneBox = false;
+              break;
+            }
+            finBand = line / boxSize;
+          }
+          if (Long.bitCount(lineCandidates[line] & coverPositions) <= 1) {
+            sashimi = true;
+          }
+        }
+        if (!finsInOneBox) {
+          continue;
         }
 
-        if (!grid.isFixed(r, c) && grid.getCandidateValues(r, c).contains(focusValue)) {
-          candidateRows.add(r);
+        // The cells of the cover sets in the box of the fins see every fin.
+        boolean updated = false;
+        for (int line = finBand * boxSize; line < (finBand + 1) * boxSize; line++) {
+          if ((baseLines & (1L << line)) != 0) {
+            continue;
+          }
+          for (long removable = lineCandidates[line] & coverInside; removable != 0; removable &= removable - 1) {
+            removeFishCandidate(grid, value, rowBase, line, Long.numberOfTrailingZeros(removable));
+            updated = true;
+          }
+        }
+        if (updated) {
+          techniqueApplied(sashimi ? SolvingTechnique.SASHIMI_FISH : SolvingTechnique.FINNED_FISH);
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void removeFishCandidate(ISquareSudokuGrid grid, int value, boolean rowBase, int line, int position) {
+    removeCandidate(grid, rowBase ? line : position, rowBase ? position : line, value);
+  }
+
+  /**
+   * Looks for a unique rectangle: four unsolved elements at the corners of a rectangle that spans
+   * two boxes, which all have the same two candidates a and b. If nothing else could go in
+   * them, a and b could be swapped in a solution to get another one, so for a puzzle with a
+   * unique solution, one of the elements must hold another value:
+   * <ul>
+   *   <li>Type 1: three elements only have a and b, so the fourth isn't a or b.</li>
+   *   <li>Type 2: two elements on one side only have a and b, and the other two (the roof) have
+   *   the same extra candidate x, so one of the roof elements is x and the elements that see both
+   *   aren't.</li>
+   *   <li>Type 3: as type 2, but the extra candidates of the roof form a naked set with other
+   *   elements of a group that contains the roof.</li>
+   *   <li>Type 4: as type 2, but a is only a candidate of the roof in a group that contains the
+   *   roof, so one of the roof elements is a and neither is b.</li>
+   * </ul>
+   * Only valid for puzzles with a unique solution.
+   */
+  public boolean checkForUniqueRectangle(ISquareSudokuGrid grid) {
+    GridGeometry geometry = grid.getGeometry();
+    int n = grid.getDimension();
+    int boxSize = geometry.getBoxSize();
+    int[] corners = new int[4];
+    long[] cornerCandidates = new long[4];
+    for (int r1 = 0; r1 < n; r1++) {
+      for (int r2 = r1 + 1; r2 < n; r2++) {
+        for (int c1 = 0; c1 < n; c1++) {
+          for (int c2 = c1 + 1; c2 < n; c2++) {
+            // The rectangle must span exactly two boxes.
+            if ((r1 / boxSize == r2 / boxSize) == (c1 / boxSize == c2 / boxSize)) {
+              continue;
+            }
+            corners[0] = geometry.cellIndex(r1, c1);
+            corners[1] = geometry.cellIndex(r1, c2);
+            corners[2] = geometry.cellIndex(r2, c1);
+            corners[3] = geometry.cellIndex(r2, c2);
+            long common = ~0L;
+            for (int k = 0; k < 4; k++) {
+              cornerCandidates[k] = unsolvedCandidates(grid, corners[k]);
+              common &= cornerCandidates[k];
+            }
+            for (long first = common; first != 0; first &= first - 1) {
+              for (long second = first & (first - 1); second != 0; second &= second - 1) {
+                long pair = (first & -first) | (second & -second);
+                if (checkRectangle(grid, corners, cornerCandidates, pair)) {
+                  return true;
+                }
+              }
+            }
+          }
         }
       }
-      columnCandidateRows.put(c, candidateRows);
-      if (candidateRows.size() <= fishSize && candidateRows.size() > 0) {
-        eligibleColumns.add(c);
+    }
+    return false;
+  }
+
+  /**
+   * Applies the first type of unique rectangle that eliminates anything for the given corners
+   * (ordered top left, top right, bottom left, bottom right) and pair of candidates.
+   */
+  private boolean checkRectangle(ISquareSudokuGrid grid, int[] corners, long[] cornerCandidates, long pair) {
+    GridGeometry geometry = grid.getGeometry();
+    int floor = 0;
+    for (int k = 0; k < 4; k++) {
+      if (cornerCandidates[k] == pair) {
+        floor |= 1 << k;
       }
     }
 
-    // need to find a subset of N of the columns such that:
-    // - size of the union of rows = N (i.e. across each of the N columns, the digit only appears as
-    //   a candidate in N rows)
     boolean updated = false;
-    List<List<Integer>> columnSubsets = SubsetHelper.listAllSubsetsOfSize(eligibleColumns, fishSize);
-    for (List<Integer> columnSubset : columnSubsets) {
-      Set<Integer> rowsUnion = new HashSet<>();
-      for (Integer colIndex : columnSubset) {
-        rowsUnion.addAll(columnCandidateRows.get(colIndex));
+    if (Integer.bitCount(floor) == 3) {
+      // Type 1
+      int roof = corners[Integer.numberOfTrailingZeros(~floor & 0xF)];
+      for (long values = pair; values != 0; values &= values - 1) {
+        removeCandidate(grid, geometry.rowOf(roof), geometry.columnOf(roof), Long.numberOfTrailingZeros(values));
+      }
+      updated = true;
+    } else if (floor == 0b0011 || floor == 0b1100 || floor == 0b0101 || floor == 0b1010) {
+      int roofCorners = ~floor & 0xF;
+      int roof1 = corners[Integer.numberOfTrailingZeros(roofCorners)];
+      int roof2 = corners[31 - Integer.numberOfLeadingZeros(roofCorners)];
+      long extras1 = cornerCandidates[Integer.numberOfTrailingZeros(roofCorners)] & ~pair;
+      long extras2 = cornerCandidates[31 - Integer.numberOfLeadingZeros(roofCorners)] & ~pair;
+
+      if (extras1 == extras2 && Long.bitCount(extras1) == 1) {
+        // Type 2
+        int extra = Long.numberOfTrailingZeros(extras1);
+        for (int peer : geometry.getPeers(roof1)) {
+          if (peer != roof2 && sees(geometry, peer, roof2) && (unsolvedCandidates(grid, peer) & extras1) != 0) {
+            removeCandidate(grid, geometry.rowOf(peer), geometry.columnOf(peer), extra);
+            updated = true;
+          }
+        }
       }
 
-      if (rowsUnion.size() == fishSize) {
-        // found a basic fish
-        System.out.printf("Found basic fish, size = %d! Value: %d in columns %s is locked to rows %s%n", fishSize, focusValue, columnSubset, DisplayStrings.setToString(rowsUnion));
+      // The roof is on one side of the rectangle, and may also be in the same box.
+      int[] sharedUnits = {
+          geometry.rowOf(roof1) == geometry.rowOf(roof2) ? geometry.rowOf(roof1) : grid.getDimension() + geometry.columnOf(roof1),
+          geometry.boxOf(roof1) == geometry.boxOf(roof2) ? 2 * grid.getDimension() + geometry.boxOf(roof1) : -1
+      };
+      for (int unit : sharedUnits) {
+        if (!updated && unit >= 0) {
+          updated = checkRoofInUnit(grid, geometry.getUnit(unit), roof1, roof2, pair, extras1 | extras2);
+        }
+      }
+    }
 
-        // eliminate all candidates in columns (the cover sets)
-        // that are not present in any of the rows (the base sets)
-        List<Pair<Integer, Integer>> elementCoords = new ArrayList<>();
-        for (Integer rowIdx : rowsUnion) {
-          elementCoords.addAll(grid.getRowElements(rowIdx, 0));
+    if (updated) {
+      techniqueApplied(SolvingTechnique.UNIQUE_RECTANGLE);
+    }
+    return updated;
+  }
+
+  /**
+   * Applies a unique rectangle of type 4 or type 3 to a group that contains both elements of the
+   * roof.
+   */
+  private boolean checkRoofInUnit(ISquareSudokuGrid grid, int[] unitCells, int roof1, int roof2, long pair, long extras) {
+    GridGeometry geometry = grid.getGeometry();
+
+    // Type 4: if one of the pair is only a candidate of the roof in the group, the roof holds it,
+    // so neither element of the roof can hold the other one of the pair.
+    for (long values = pair; values != 0; values &= values - 1) {
+      long value = values & -values;
+      boolean onlyInRoof = true;
+      for (int cell : unitCells) {
+        if (cell != roof1 && cell != roof2 && (unsolvedCandidates(grid, cell) & value) != 0) {
+          onlyInRoof = false;
+          break;
         }
+      }
+      if (onlyInRoof) {
+        int other = Long.numberOfTrailingZeros(pair & ~value);
+        removeCandidate(grid, geometry.rowOf(roof1), geometry.columnOf(roof1), other);
+        removeCandidate(grid, geometry.rowOf(roof2), geometry.columnOf(roof2), other);
+        return true;
+      }
+    }
 
-        for (Pair<Integer, Integer> coord : elementCoords) {
-          int r = coord.first(), c = coord.second();
-          if (columnSubset.contains(c)) {
+    // Type 3: the roof acts as a single element with the extra candidates, which together with m
+    // other elements of the group can form a naked set of size m + 1.
+    int[] others = new int[unitCells.length];
+    int otherCount = 0;
+    for (int cell : unitCells) {
+      if (cell != roof1 && cell != roof2 && unsolvedCandidates(grid, cell) != 0) {
+        others[otherCount++] = cell;
+      }
+    }
+    for (int m = 1; m < otherCount && m <= 3; m++) {
+      for (long subset = SubsetHelper.firstCombination(m); subset < 1L << otherCount;
+           subset = SubsetHelper.nextCombination(subset)) {
+        long nakedSet = extras;
+        for (long members = subset; members != 0; members &= members - 1) {
+          nakedSet |= unsolvedCandidates(grid, others[Long.numberOfTrailingZeros(members)]);
+        }
+        if (Long.bitCount(nakedSet) != m + 1) {
+          continue;
+        }
+        boolean updated = false;
+        for (int k = 0; k < otherCount; k++) {
+          if ((subset & (1L << k)) != 0) {
             continue;
           }
-          if (!grid.isFixed(r, c) && grid.getCandidateValues(r, c).contains(focusValue)) {
-            grid.setCandidate(r, c, focusValue, false);
-            System.out.printf("Removed candidate %d from (%d, %d)%n", focusValue, r, c);
+          int r = geometry.rowOf(others[k]);
+          int c = geometry.columnOf(others[k]);
+          for (long removable = unsolvedCandidates(grid, others[k]) & nakedSet; removable != 0; removable &= removable - 1) {
+            removeCandidate(grid, r, c, Long.numberOfTrailingZeros(removable));
             updated = true;
           }
         }
+        if (updated) {
+          return true;
+        }
       }
     }
+    return false;
+  }
 
-    return updated;
+  /**
+   * Looks for a bivalue universal grave + 1: every unsolved element has two candidates except
+   * for one, which has three, and each candidate appears twice in every group except for one
+   * value, which appears three times in each group of that element. Without that value, the
+   * grid would have two solutions (or none), so for a puzzle with a unique solution, the element
+   * holds it. Only valid for puzzles with a unique solution.
+   */
+  public boolean checkForBugPlusOne(ISquareSudokuGrid grid) {
+    GridGeometry geometry = grid.getGeometry();
+    int n = grid.getDimension();
+    int extraCell = -1;
+    for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+      int candidateCount = Long.bitCount(unsolvedCandidates(grid, cell));
+      if (candidateCount == 3 && extraCell < 0) {
+        extraCell = cell;
+      } else if (candidateCount != 0 && candidateCount != 2) {
+        return false;
+      }
+    }
+    if (extraCell < 0) {
+      return false;
+    }
+
+    // The extra value is the one that appears three times in the element's groups.
+    int[] extraCellUnits = {geometry.rowOf(extraCell), n + geometry.columnOf(extraCell), 2 * n + geometry.boxOf(extraCell)};
+    long extraCandidates = unsolvedCandidates(grid, extraCell);
+    for (int unit : extraCellUnits) {
+      long seenOnce = 0;
+      long seenTwice = 0;
+      long seenThrice = 0;
+      for (int cell : geometry.getUnit(unit)) {
+        long candidates = unsolvedCandidates(grid, cell);
+        seenThrice |= seenTwice & candidates;
+        seenTwice |= seenOnce & candidates;
+        seenOnce |= candidates;
+      }
+      extraCandidates &= seenThrice;
+    }
+    if (Long.bitCount(extraCandidates) != 1) {
+      return false;
+    }
+
+    // Without the extra value, every candidate must appear exactly twice in every group.
+    int[] counts = new int[n + 1];
+    for (int unit = 0; unit < geometry.getUnitCount(); unit++) {
+      Arrays.fill(counts, 0);
+      for (int cell : geometry.getUnit(unit)) {
+        long candidates = unsolvedCandidates(grid, cell) & (cell == extraCell ? ~extraCandidates : ~0L);
+        for (; candidates != 0; candidates &= candidates - 1) {
+          counts[Long.numberOfTrailingZeros(candidates)]++;
+        }
+      }
+      for (int value = 1; value <= n; value++) {
+        if (counts[value] != 0 && counts[value] != 2) {
+          return false;
+        }
+      }
+    }
+
+    int r = geometry.rowOf(extraCell);
+    int c = geometry.columnOf(extraCell);
+    for (long removable = unsolvedCandidates(grid, extraCell) & ~extraCandidates; removable != 0; removable &= removable - 1) {
+      removeCandidate(grid, r, c, Long.numberOfTrailingZeros(removable));
+    }
+    techniqueApplied(SolvingTechnique.BUG_PLUS_ONE);
+    return true;
+  }
+
+  /**
+   * Returns the candidates of an element as a bit string, or 0 if the element has a value.
+   */
+  private static long unsolvedCandidates(ISquareSudokuGrid grid, int cell) {
+    GridGeometry geometry = grid.getGeometry();
+    int r = geometry.rowOf(cell);
+    int c = geometry.columnOf(cell);
+    return grid.isFixed(r, c) ? 0 : grid.getCandidateMask(r, c);
+  }
+
+  private static boolean sees(GridGeometry geometry, int cell, int other) {
+    return geometry.rowOf(cell) == geometry.rowOf(other) || geometry.columnOf(cell) == geometry.columnOf(other) ||
+        geometry.boxOf(cell) == geometry.boxOf(other);
+  }
+
+  public boolean checkForSimpleColoring(ISquareSudokuGrid grid, int value) {
+    ChainFinder finder = chainFinderFor(grid);
+    return finder.findSimpleColoring(value) && applyChainEliminations(grid, finder, SolvingTechnique.SIMPLE_COLORING);
+  }
+
+  public boolean checkForXChain(ISquareSudokuGrid grid, int value) {
+    ChainFinder finder = chainFinderFor(grid);
+    return finder.findXChain(value) && applyChainEliminations(grid, finder, SolvingTechnique.X_CHAIN);
+  }
+
+  public boolean checkForXYChain(ISquareSudokuGrid grid) {
+    ChainFinder finder = chainFinderFor(grid);
+    return finder.findXYChain() && applyChainEliminations(grid, finder,
+        finder.getChainLength() == 3 ? SolvingTechnique.XY_WING : SolvingTechnique.XY_CHAIN);
   }
 
+  public boolean checkForAlternatingInferenceChain(ISquareSudokuGrid grid) {
+    ChainFinder finder = chainFinderFor(grid);
+    return finder.findAlternatingInferenceChain() &&
+        applyChainEliminations(grid, finder, SolvingTechnique.ALTERNATING_INFERENCE_CHAIN);
+  }
+
+  /**
+   * Gets a chain finder whose link graph is up to date with the grid. The graph is built once
+   * and then refreshed from the eliminations reported to {@link #cellChanged}.
+   */
+  private ChainFinder chainFinderFor(ISquareSudokuGrid grid) {
+    if (chainFinder == null || chainFinder.getGraph().getGrid() != grid) {
+      chainFinder = new ChainFinder(new LinkGraph(grid));
+    } else {
+      chainFinder.getGraph().refresh();
+    }
+    return chainFinder;
+  }
+
+  private boolean applyChainEliminations(ISquareSudokuGrid grid, ChainFinder finder, SolvingTechnique technique) {
+    LinkGraph graph = finder.getGraph();
+    GridGeometry geometry = grid.getGeometry();
+    for (int k = 0; k < finder.getEliminationCount(); k++) {
+      int node = finder.getElimination(k);
+      int cell = graph.cellOf(node);
+      removeCandidate(grid, geometry.rowOf(cell), geometry.columnOf(cell), graph.valueOf(node));
+    }
+    techniqueApplied(technique);
+    return true;
+  }
+
+  /**
+   * A first-in, first-out queue of small non-negative integers (elements, groups, or values)
+   * that ignores items that are already queued.
+   */
+  private static final class Worklist {
+    private final int[] items;
+    private final boolean[] queued;
+    private int head;
+    private int size;
+
+    Worklist(int capacity) {
+      items = new int[capacity];
+      queued = new boolean[capacity];
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    void add(int item) {
+      if (!queued[item]) {
+        queued[item] = true;
+        items[(head + size) % items.length] = item;
+        size++;
+      }
+    }
+
+    int poll() {
+      int item = items[head];
+      head = (head + 1) % items.length;
+      size--;
+      queued[item] = false;
+      return item;
+    }
+  }
 
 //  public boolean checkForXWingInRows(ISquareSudokuGrid grid, Integer focusValue) {
 //    // try to find two rows so that the only candidates for that digit in those rows are
@@ -712,7 +1485,7 @@ public class ConstraintBasedSolver implements ISquareSudokuSolver {
 //                continue;
 //              }
 //              if (!grid.isFixed(r, c) && grid.getCandidateValues(r, c).contains(focusValue)) {
-//                grid.setCandidate(r, c, focusValue, false);
+//                removeCandidate(grid, r, c, focusValue);
 //                updated = true;
 //              }
 //            }
@@ -764,7 +1537,7 @@ public class ConstraintBasedSolver implements ISquareSudokuSolver {
 //                continue;
 //              }
 //              if (!grid.isFixed(r, c) && grid.getCandidateValues(r, c).contains(focusValue)) {
-//                grid.setCandidate(r, c, focusValue, false);
+//                removeCandidate(grid, r, c, focusValue);
 //                updated = true;
 //              }
 //            }
@@ -0,0 +1,64 @@
+package main.solver;
+
+import java.util.Arrays;
+
+/**
+ * A listener that counts the events of each type.
+ */
+public class CountingSolverListener implements SolverListener {
+
+  private long placementCount;
+
+  private long eliminationCount;
+
+  private long backtrackCount;
+
+  /** The number of times each technique was applied, indexed by ordinal. */
+  private final long[] techniqueCounts = new long[SolvingTechnique.values().length];
+
+  @Override
+  public void onPlacement(int row, int column, int value) {
+    placementCount++;
+  }
+
+  @Override
+  public void onElimination(int row, int column, int value) {
+    eliminationCount++;
+  }
+
+  @Override
+  public void onBacktrack(int row, int column) {
+    backtrackCount++;
+  }
+
+  @Override
+  public void onTechniqueApplied(SolvingTechnique technique) {
+    techniqueCounts[technique.ordinal()]++;
+  }
+
+  public long getPlacementCount() {
+    return placementCount;
+  }
+
+  public long getEliminationCount() {
+    return eliminationCount;
+  }
+
+  public long getBacktrackCount() {
+    return backtrackCount;
+  }
+
+  public long getTechniqueCount(SolvingTechnique technique) {
+    return techniqueCounts[technique.ordinal()];
+  }
+
+  /**
+   * Sets every count back to zero.
+   */
+  public void reset() {
+    placementCount = 0;
+    eliminationCount = 0;
+    backtrackCount = 0;
+    Arrays.fill(techniqueCounts, 0);
+  }
+}
@@ -0,0 +1,297 @@
+package main.solver;
+
+import main.grid.model.GridGeometry;
+import main.grid.model.ISquareSudokuGrid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A solver that models the grid as an exact cover problem and solves it with Knuth's
+ * Algorithm X, using the "dancing links" technique to cover and uncover columns of the
+ * exact cover matrix.
+ *
+ * <p>Each row of the matrix is a choice of a value for an element (only the element's current
+ * candidates are included), and each column is a constraint that must be satisfied exactly
+ * once: every element has a value, and every row, column, and box contains every value.
+ * The matrix is stored in flat primitive arrays, so the search itself doesn't allocate, which
+ * makes counting and enumerating solutions cheap. Works for any dimension that
+ * {@link GridGeometry} supports.</p>
+ */
+public class DancingLinksSolver implements ISquareSudokuSolver {
+
+  private ISquareSudokuGrid grid;
+
+  private SolverListener listener = SolverListener.NONE;
+
+  private final SolverStatistics statistics = new SolverStatistics();
+
+  // The nodes of the matrix: node 0 is the root, nodes 1, ..., columnCount are the column
+  // headers, and the rest are the 1s of the matrix (four per matrix row).
+  private int[] left;
+  private int[] right;
+  private int[] up;
+  private int[] down;
+  private int[] columnOf;
+  private int[] matrixRowOf;
+
+  /** The number of 1s remaining in each column. */
+  private int[] columnSize;
+
+  /** The nodes of the matrix rows chosen so far, one per search depth. */
+  private int[] chosenNodes;
+
+  /** The number of solutions found in the current search. */
+  private long solutionCount;
+
+  /** The search stops once this many solutions have been found. */
+  private long solutionLimit;
+
+  /** Receives a copy of each solution that is found, or null if solutions are only counted. */
+  private List<ISquareSudokuGrid> solutions;
+
+  public DancingLinksSolver(ISquareSudokuGrid grid) {
+    this.grid = grid;
+  }
+
+  @Override
+  public ISquareSudokuGrid getGrid() {
+    return grid;
+  }
+
+  /**
+   * Doesn't step: the search runs in a single call, so there is no single deduction to make.
+   * @return  the grid, unchanged
+   */
+  @Override
+  public ISquareSudokuGrid step() {
+    return grid;
+  }
+
+  @Override
+  public void setListener(SolverListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public SolverStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Finds the first solution. The grid is left untouched.
+   * @return  a new solved grid, or an unsolved copy of the grid if there is no solution
+   */
+  @Override
+  public ISquareSudokuGrid solve() {
+    List<ISquareSudokuGrid> found = new ArrayList<>(1);
+    search(1, found);
+    return found.isEmpty() ? grid.copy() : found.get(0);
+  }
+
+  @Override
+  public List<ISquareSudokuGrid> findAllSolutions() {
+    List<ISquareSudokuGrid> found = new ArrayList<>();
+    search(Long.MAX_VALUE, found);
+    return found;
+  }
+
+  @Override
+  public long countSolutions(long limit) {
+    search(limit, null);
+    return solutionCount;
+  }
+
+  /**
+   * Builds the exact cover matrix for the current state of the grid and searches it.
+   */
+  private void search(long limit, List<ISquareSudokuGrid> found) {
+    long start = System.nanoTime();
+    statistics.reset();
+    solutionCount = 0;
+    solutionLimit = limit;
+    solutions = found;
+    if (limit > 0 && buildMatrix()) {
+      search(0);
+    }
+    solutions = null;
+    statistics.setElapsedNanos(System.nanoTime() - start);
+  }
+
+  /**
+   * Builds the matrix and covers the columns satisfied by the fixed elements.
+   * @return  false if the fixed elements already violate a constraint
+   */
+  private boolean buildMatrix() {
+    GridGeometry geometry = grid.getGeometry();
+    int n = grid.getDimension();
+    int cellCount = geometry.getCellCount();
+    int columnCount = 4 * cellCount;
+
+    // Count the matrix rows first so that the arrays can be sized exactly.
+    int matrixRows = 0;
+    for (int cell = 0; cell < cellCount; cell++) {
+      // A fixed element's only candidate is its value.
+      matrixRows += grid.getCandidateCount(geometry.rowOf(cell), geometry.columnOf(cell));
+    }
+
+    int nodeCount = 1 + columnCount + 4 * matrixRows;
+    left = new int[nodeCount];
+    right = new int[nodeCount];
+    up = new int[nodeCount];
+    down = new int[nodeCount];
+    columnOf = new int[nodeCount];
+    matrixRowOf = new int[nodeCount];
+    columnSize = new int[columnCount + 1];
+    chosenNodes = new int[cellCount];
+
+    for (int header = 0; header <= columnCount; header++) {
+      left[header] = header == 0 ? columnCount : header - 1;
+      right[header] = header == columnCount ? 0 : header + 1;
+      up[header] = header;
+      down[header] = header;
+      columnOf[header] = header;
+    }
+
+    int nextNode = columnCount + 1;
+    int[] fixedNodes = new int[cellCount];
+    int fixedCount = 0;
+    for (int cell = 0; cell < cellCount; cell++) {
+      int r = geometry.rowOf(cell);
+      int c = geometry.columnOf(cell);
+      int box = geometry.boxOf(cell);
+      boolean fixed = grid.isFixed(r, c);
+      for (long values = grid.getCandidateMask(r, c); values != 0; values &= values - 1) {
+        int value = Long.numberOfTrailingZeros(values);
+        int first = nextNode;
+        // The four constraints satisfied by placing the value: the element has a value, and the
+        // row, column, and box contain the value.
+        int[] columns = {
+            1 + cell,
+            1 + cellCount + r * n + value - 1,
+            1 + 2 * cellCount + c * n + value - 1,
+            1 + 3 * cellCount + box * n + value - 1
+        };
+        for (int k = 0; k < 4; k++) {
+          int node = nextNode++;
+          int header = columns[k];
+          columnOf[node] = header;
+          matrixRowOf[node] = cell * n + value - 1;
+          up[node] = up[header];
+          down[node] = header;
+          down[up[header]] = node;
+          up[header] = node;
+          columnSize[header]++;
+          left[node] = k == 0 ? first + 3 : node - 1;
+          right[node] = k == 3 ? first : node + 1;
+        }
+        if (fixed) {
+          fixedNodes[fixedCount++] = first;
+        }
+      }
+    }
+
+    // Choose the matrix rows of the fixed elements up front. If two of them satisfy the same
+    // constraint, the fixed values conflict and there is no solution.
+    boolean[] covered = new boolean[columnCount + 1];
+    for (int k = 0; k < fixedCount; k++) {
+      int node = fixedNodes[k];
+      do {
+        if (covered[columnOf[node]]) {
+          return false;
+        }
+        covered[columnOf[node]] = true;
+        cover(columnOf[node]);
+        node = right[node];
+      } while (node != fixedNodes[k]);
+    }
+    return true;
+  }
+
+  /**
+   * Algorithm X: choose the constraint with the fewest remaining options, and try each of them.
+   * @return  whether the search should stop (the solution limit has been reached)
+   */
+  private boolean search(int depth) {
+    statistics.recordNode(depth);
+    if (right[0] == 0) {
+      solutionCount++;
+      if (solutions != null) {
+        solutions.add(buildSolution(depth));
+      }
+      return solutionCount >= solutionLimit;
+    }
+
+    int chosenColumn = right[0];
+    for (int header = right[chosenColumn]; header != 0; header = right[header]) {
+      if (columnSize[header] < columnSize[chosenColumn]) {
+        chosenColumn = header;
+      }
+    }
+    if (columnSize[chosenColumn] == 0) {
+      return false; // Dead end: some constraint can't be satisfied anymore.
+    }
+
+    cover(chosenColumn);
+    boolean done = false;
+    int n = grid.getDimension();
+    for (int node = down[chosenColumn]; node != chosenColumn && !done; node = down[node]) {
+      chosenNodes[depth] = node;
+      int cell = matrixRowOf[node] / n;
+      listener.onPlacement(cell / n, cell % n, matrixRowOf[node] % n + 1);
+      for (int other = right[node]; other != node; other = right[other]) {
+        cover(columnOf[other]);
+      }
+      done = search(depth + 1);
+      for (int other = left[node]; other != node; other = left[other]) {
+        uncover(columnOf[other]);
+      }
+      if (!done) {
+        statistics.recordBacktrack();
+        listener.onBacktrack(cell / n, cell % n);
+      }
+    }
+    uncover(chosenColumn);
+    return done;
+  }
+
+  private void cover(int header) {
+    right[left[header]] = right[header];
+    left[right[header]] = left[header];
+    for (int row = down[header]; row != header; row = down[row]) {
+      for (int node = right[row]; node != row; node = right[node]) {
+        down[up[node]] = down[node];
+        up[down[node]] = up[node];
+        columnSize[columnOf[node]]--;
+      }
+    }
+  }
+
+  private void uncover(int header) {
+    for (int row = up[header]; row != header; row = up[row]) {
+      for (int node = left[row]; node != row; node = left[node]) {
+        columnSize[columnOf[node]]++;
+        down[up[node]] = node;
+        up[down[node]] = node;
+      }
+    }
+    right[left[header]] = header;
+    left[right[header]] = header;
+  }
+
+  /**
+   * Copies the grid and assigns the values of the matrix rows chosen by the search.
+   */
+  private ISquareSudokuGrid buildSolution(int depth) {
+    int n = grid.getDimension();
+    ISquareSudokuGrid solution = grid.copy();
+    for (int k = 0; k < depth; k++) {
+      int matrixRow = matrixRowOf[chosenNodes[k]];
+      int cell = matrixRow / n;
+      if (!solution.isFixed(cell / n, cell % n)) {
+        solution.setValue(cell / n, cell % n, matrixRow % n + 1);
+      }
+    }
+    return solution;
+  }
+}
@@ -0,0 +1,101 @@
+package main.solver;
+
+import main.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single step made by {@link ISquareSudokuSolver#step()}: either the application of a
+ * technique, or a move of a search (placing a guessed value, or backtracking from an element).
+ *
+ * <p>The changes that the step made are kept as {@link SolverEvent}s: the values placed, the
+ * candidates eliminated, and for a search move that gave up on an element, the backtrack.
+ * Placing a value also removes it as a candidate from the element's peers; those removals are
+ * implied by the placement and aren't listed as eliminations.</p>
+ */
+public final class Deduction {
+
+  private final SolvingTechnique technique;
+
+  private final List<SolverEvent> events;
+
+  /**
+   * Creates a deduction.
+   * @param technique the technique that was applied, or null for a search move
+   * @param events  the placements, eliminations, and backtracks that the step made
+   */
+  public Deduction(SolvingTechnique technique, List<SolverEvent> events) {
+    this.technique = technique;
+    this.events = Collections.unmodifiableList(new ArrayList<>(events));
+  }
+
+  /**
+   * Gets the technique that was applied.
+   * @return  the technique, or null if the step was a search move
+   */
+  public SolvingTechnique getTechnique() {
+    return technique;
+  }
+
+  public boolean isSearchMove() {
+    return technique == null;
+  }
+
+  public List<SolverEvent> getEvents() {
+    return events;
+  }
+
+  /**
+   * Gets the values that were placed.
+   * @return  the placement events
+   */
+  public List<SolverEvent> getPlacements() {
+    return eventsOfType(SolverEvent.Type.PLACEMENT);
+  }
+
+  /**
+   * Gets the candidates that were eliminated, not counting the removals from the peers of
+   * placed values.
+   * @return  the elimination events
+   */
+  public List<SolverEvent> getEliminations() {
+    return eventsOfType(SolverEvent.Type.ELIMINATION);
+  }
+
+  /**
+   * Gets the elements that the step changed, in the order that they were first changed.
+   * @return  the coordinates (row, column) of the elements
+   */
+  public List<Pair<Integer, Integer>> getCells() {
+    List<Pair<Integer, Integer>> cells = new ArrayList<>();
+    for (SolverEvent event : events) {
+      Pair<Integer, Integer> cell = new Pair<>(event.getRow(), event.getColumn());
+      if (!cells.contains(cell)) {
+        cells.add(cell);
+      }
+    }
+    return cells;
+  }
+
+  private List<SolverEvent> eventsOfType(SolverEvent.Type type) {
+    List<SolverEvent> matching = new ArrayList<>();
+    for (SolverEvent event : events) {
+      if (event.getType() == type) {
+        matching.add(event);
+      }
+    }
+    return matching;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder output = new StringBuilder(technique == null ? "Search" : technique.getDisplayName());
+    output.append(':');
+    for (SolverEvent event : events) {
+      output.append("\n  ").append(event);
+    }
+    return output.toString();
+  }
+}
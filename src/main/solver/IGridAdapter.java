@@ -1,7 +1,5 @@
 package main.solver;
 
-import java.util.Set;
-
 /**
  * The adapter that allows the solver to update the grid's representation.
  */
@@ -27,6 +25,8 @@ public interface IGridAdapter {
    * Tells the grid to return the candidate values for the given element.
    * @param i the row coordinate of the element in the grid
    * @param j the column coordinate of the element in the grid
+   * @return  the candidate values, as a bit string where the 2^value bit is set if value is a
+   *          candidate
    */
-  Set<Integer> getCandidateValues(int i, int j);
+  long getCandidateMask(int i, int j);
 }
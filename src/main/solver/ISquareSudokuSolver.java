@@ -22,14 +22,28 @@ public interface ISquareSudokuSolver {
 
   /**
    * Attempts to make a single step towards the solution. If the solver is unable to
-   * make progress, it may return the initial grid.
-   * @return  the grid after a single update has been made or the initial grid if no progress could be made
+   * make progress, it may return the initial grid. Each call resumes where the previous one
+   * stopped, and the step that was made is available from {@link #getLastDeduction()}. Solvers
+   * that don't support stepping never make progress: they return the grid unchanged, and
+   * {@link #getLastDeduction()} returns null.
+   * @return  the grid after a single update has been made or the initial grid if no progress could
+   *          be made, never null
    */
   ISquareSudokuGrid step();
 
+  /**
+   * Gets the step made by the most recent call to {@link #step()}.
+   * @return  the step, or null if the last call made no progress (or the solver doesn't support
+   *          stepping)
+   */
+  default Deduction getLastDeduction() {
+    return null;
+  }
+
   /**
    * Returns the solved grid, if the solver is able to find a solution from the initial grid.
-   * @return  the solved grid, or an incomplete grid if the solver was unable to solve the grid
+   * @return  the solved grid, or an incomplete grid if the solver was unable to solve the grid,
+   *          never null
    */
   ISquareSudokuGrid solve();
 
@@ -38,4 +52,35 @@ public interface ISquareSudokuSolver {
    * @return  a list containing the different solutions
    */
   List<ISquareSudokuGrid> findAllSolutions();
+
+  /**
+   * Counts the solutions of the grid, stopping as soon as the given number of solutions has been
+   * found. Unlike {@link #findAllSolutions()}, the solutions aren't copied, so this is the cheap
+   * way to check a puzzle.
+   * @param limit the maximum number of solutions to count
+   * @return  the number of solutions, or the limit if there are at least that many
+   */
+  long countSolutions(long limit);
+
+  /**
+   * Checks whether the grid has exactly one solution (i.e. whether it is a proper puzzle). The
+   * search stops as soon as a second solution is found.
+   * @return  true if the grid has a unique solution
+   */
+  default boolean hasUniqueSolution() {
+    return countSolutions(2) == 1;
+  }
+
+  /**
+   * Sets the listener that receives the solver's events. By default the events are ignored.
+   * @param listener  the listener, or {@link SolverListener#NONE} to ignore the events
+   */
+  void setListener(SolverListener listener);
+
+  /**
+   * Gets the statistics of the solver's most recent run, e.g. a call to {@link #solve()} or
+   * {@link #findAllSolutions()}. The counters are reset when the next run starts.
+   * @return  the statistics
+   */
+  SolverStatistics getStatistics();
 }
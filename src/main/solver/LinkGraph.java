@@ -0,0 +1,221 @@
+package main.solver;
+
+import main.grid.model.GridGeometry;
+import main.grid.model.ISquareSudokuGrid;
+
+import java.util.Arrays;
+
+/**
+ * The strong links between the candidates of a grid, kept up to date as candidates are
+ * eliminated.
+ *
+ * <p>A candidate is a node, numbered cell * N + value - 1. Two candidates are strongly linked if
+ * at least one of them is true: the only two places for a value in a row, column, or box (a
+ * conjugate pair), or the only two candidates of an element (a bivalue element). Two candidates
+ * are weakly linked if at most one of them is true: the same value in two elements that see each
+ * other, or two values of the same element. Weak links follow from the candidates alone, so only
+ * the strong links are stored.</p>
+ *
+ * <p>The solver reports every elimination with {@link #candidatesRemoved(int, long)}, which only
+ * marks the element and its groups as stale; {@link #refresh()} then recomputes the links of
+ * the stale elements and groups, instead of rebuilding the whole graph.</p>
+ */
+final class LinkGraph {
+
+  /** The number of strong links that a node can have: one per group, and one in its element. */
+  static final int MAX_STRONG_LINKS = 4;
+
+  private final ISquareSudokuGrid grid;
+
+  private final GridGeometry geometry;
+
+  private final int n;
+
+  /** The candidates of each element, as in the grid; empty for a fixed element. */
+  private final long[] cellCandidates;
+
+  /**
+   * For each group and value, at index unit * N + value - 1, the positions (indices into the
+   * group's cells) that have the value as a candidate.
+   */
+  private final long[] unitPositions;
+
+  /**
+   * The strong links of each node, at index node * MAX_STRONG_LINKS + k: the conjugates in its
+   * row (k = 0), column (1), and box (2), and the other candidate of a bivalue element (3), or
+   * -1 if there is no such link.
+   */
+  private final int[] strongLinks;
+
+  private final boolean[] staleCells;
+  private final int[] staleCellList;
+  private int staleCellCount;
+
+  /** For each group, the values whose positions are stale, as a bit string. */
+  private final long[] staleUnitValues;
+  private final int[] staleUnitList;
+  private int staleUnitCount;
+
+  /**
+   * Builds the graph of the grid's current candidates.
+   * @param grid  the grid
+   */
+  LinkGraph(ISquareSudokuGrid grid) {
+    this.grid = grid;
+    this.geometry = grid.getGeometry();
+    this.n = grid.getDimension();
+    int cellCount = geometry.getCellCount();
+    cellCandidates = new long[cellCount];
+    unitPositions = new long[geometry.getUnitCount() * n];
+    strongLinks = new int[cellCount * n * MAX_STRONG_LINKS];
+    Arrays.fill(strongLinks, -1);
+    staleCells = new boolean[cellCount];
+    staleCellList = new int[cellCount];
+    staleUnitValues = new long[geometry.getUnitCount()];
+    staleUnitList = new int[geometry.getUnitCount()];
+
+    long allValues = ((1L << n) - 1) << 1;
+    for (int cell = 0; cell < cellCount; cell++) {
+      candidatesRemoved(cell, allValues);
+    }
+    refresh();
+  }
+
+  ISquareSudokuGrid getGrid() {
+    return grid;
+  }
+
+  GridGeometry getGeometry() {
+    return geometry;
+  }
+
+  int getDimension() {
+    return n;
+  }
+
+  int nodeCount() {
+    return cellCandidates.length * n;
+  }
+
+  static int node(int n, int cell, int value) {
+    return cell * n + value - 1;
+  }
+
+  int cellOf(int node) {
+    return node / n;
+  }
+
+  int valueOf(int node) {
+    return node % n + 1;
+  }
+
+  /**
+   * Gets the candidates of the element, as of the last refresh.
+   * @return  a bit string where the 2^value bit is set if value is a candidate
+   */
+  long getCandidates(int cell) {
+    return cellCandidates[cell];
+  }
+
+  boolean isCandidate(int node) {
+    return (cellCandidates[cellOf(node)] & (1L << valueOf(node))) != 0;
+  }
+
+  /**
+   * Gets a strong link of the node.
+   * @param k the kind of link: 0, 1, and 2 for the node's row, column, and box, and 3 for its element
+   * @return  the linked node, or -1 if there is no such link
+   */
+  int getStrongLink(int node, int k) {
+    return strongLinks[node * MAX_STRONG_LINKS + k];
+  }
+
+  /**
+   * Records that the values were removed as candidates from the element (or that the element was
+   * assigned a value, which removes all of its candidates).
+   */
+  void candidatesRemoved(int cell, long values) {
+    if (!staleCells[cell]) {
+      staleCells[cell] = true;
+      staleCellList[staleCellCount++] = cell;
+    }
+    markUnitStale(geometry.rowOf(cell), values);
+    markUnitStale(n + geometry.columnOf(cell), values);
+    markUnitStale(2 * n + geometry.boxOf(cell), values);
+  }
+
+  private void markUnitStale(int unit, long values) {
+    if (staleUnitValues[unit] == 0) {
+      staleUnitList[staleUnitCount++] = unit;
+    }
+    staleUnitValues[unit] |= values;
+  }
+
+  /**
+   * Recomputes the candidates and strong links of the elements and groups that changed since the
+   * last refresh.
+   */
+  void refresh() {
+    for (int k = 0; k < staleCellCount; k++) {
+      int cell = staleCellList[k];
+      staleCells[cell] = false;
+      int r = geometry.rowOf(cell);
+      int c = geometry.columnOf(cell);
+      long candidates = grid.isFixed(r, c) ? 0 : grid.getCandidateMask(r, c);
+      clearCellLinks(cell, cellCandidates[cell]);
+      cellCandidates[cell] = candidates;
+      if (Long.bitCount(candidates) == 2) {
+        int first = node(n, cell, Long.numberOfTrailingZeros(candidates));
+        int second = node(n, cell, 63 - Long.numberOfLeadingZeros(candidates));
+        strongLinks[first * MAX_STRONG_LINKS + 3] = second;
+        strongLinks[second * MAX_STRONG_LINKS + 3] = first;
+      }
+    }
+    staleCellCount = 0;
+
+    for (int k = 0; k < staleUnitCount; k++) {
+      int unit = staleUnitList[k];
+      for (long values = staleUnitValues[unit]; values != 0; values &= values - 1) {
+        refreshUnit(unit, Long.numberOfTrailingZeros(values));
+      }
+      staleUnitValues[unit] = 0;
+    }
+    staleUnitCount = 0;
+  }
+
+  /**
+   * Clears the bivalue links of an element's old candidates.
+   */
+  private void clearCellLinks(int cell, long candidates) {
+    for (long values = candidates; values != 0; values &= values - 1) {
+      strongLinks[node(n, cell, Long.numberOfTrailingZeros(values)) * MAX_STRONG_LINKS + 3] = -1;
+    }
+  }
+
+  private void refreshUnit(int unit, int value) {
+    int[] unitCells = geometry.getUnit(unit);
+    int kind = unit / n;
+    long valueMask = 1L << value;
+    long oldPositions = unitPositions[unit * n + value - 1];
+    long positions = 0;
+    for (int k = 0; k < unitCells.length; k++) {
+      if ((cellCandidates[unitCells[k]] & valueMask) != 0) {
+        positions |= 1L << k;
+      }
+    }
+    unitPositions[unit * n + value - 1] = positions;
+
+    if (Long.bitCount(oldPositions) == 2) {
+      for (long remaining = oldPositions; remaining != 0; remaining &= remaining - 1) {
+        int cell = unitCells[Long.numberOfTrailingZeros(remaining)];
+        strongLinks[node(n, cell, value) * MAX_STRONG_LINKS + kind] = -1;
+      }
+    }
+    if (Long.bitCount(positions) == 2) {
+      int first = node(n, unitCells[Long.numberOfTrailingZeros(positions)], value);
+      int second = node(n, unitCells[63 - Long.numberOfLeadingZeros(positions)], value);
+      strongLinks[first * MAX_STRONG_LINKS + kind] = second;
+      strongLinks[second * MAX_STRONG_LINKS + kind] = first;
+    }
+  }
+}
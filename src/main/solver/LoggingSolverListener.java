@@ -0,0 +1,39 @@
+package main.solver;
+
+import java.io.PrintStream;
+
+/**
+ * A listener that prints a line for each event.
+ */
+public class LoggingSolverListener implements SolverListener {
+
+  private final PrintStream out;
+
+  public LoggingSolverListener() {
+    this(System.out);
+  }
+
+  public LoggingSolverListener(PrintStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public void onPlacement(int row, int column, int value) {
+    out.printf("Setting element (%d, %d) to %d%n", row, column, value);
+  }
+
+  @Override
+  public void onElimination(int row, int column, int value) {
+    out.printf("Removed %d as a candidate from element (%d, %d)%n", value, row, column);
+  }
+
+  @Override
+  public void onBacktrack(int row, int column) {
+    out.printf("Exhausted candidates, backtracking from element (%d, %d)%n", row, column);
+  }
+
+  @Override
+  public void onTechniqueApplied(SolvingTechnique technique) {
+    out.println("Applied " + technique.getDisplayName());
+  }
+}
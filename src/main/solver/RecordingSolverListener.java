@@ -0,0 +1,45 @@
+package main.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A listener that keeps every event in the order that it was reported.
+ */
+public class RecordingSolverListener implements SolverListener {
+
+  private final List<SolverEvent> events = new ArrayList<>();
+
+  @Override
+  public void onPlacement(int row, int column, int value) {
+    events.add(SolverEvent.placement(row, column, value));
+  }
+
+  @Override
+  public void onElimination(int row, int column, int value) {
+    events.add(SolverEvent.elimination(row, column, value));
+  }
+
+  @Override
+  public void onBacktrack(int row, int column) {
+    events.add(SolverEvent.backtrack(row, column));
+  }
+
+  @Override
+  public void onTechniqueApplied(SolvingTechnique technique) {
+    events.add(SolverEvent.techniqueApplied(technique));
+  }
+
+  /**
+   * Returns the events recorded so far.
+   * @return  an unmodifiable view of the events
+   */
+  public List<SolverEvent> getEvents() {
+    return Collections.unmodifiableList(events);
+  }
+
+  public void clear() {
+    events.clear();
+  }
+}
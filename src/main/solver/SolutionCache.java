@@ -0,0 +1,249 @@
+package main.solver;
+
+import main.analysis.CanonicalForm;
+import main.analysis.Canonicalizer;
+import main.analysis.GridTransform;
+import main.grid.model.ISquareSudokuGrid;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of the solutions of puzzles, shared by {@link CachingSolver}s (and safe to
+ * share between threads).
+ *
+ * <p>Puzzles are keyed by their canonical form (see {@link Canonicalizer}) by default, so a
+ * puzzle that has been relabeled, rotated, or otherwise transformed hits the cache entry of the
+ * original. The solutions are stored in the canonical form's labels and positions, and mapped
+ * back through the inverse transformation on a hit. Keying by the compact string instead skips
+ * the canonicalization, and only recognizes identical puzzles.</p>
+ *
+ * <p>When the cache is full, the least recently used puzzle is evicted. The hits, misses, and
+ * evictions are counted with {@link LongAdder}s, so counting doesn't contend between threads.</p>
+ */
+public class SolutionCache {
+
+  /**
+   * A puzzle's key, together with the transformation from the puzzle to the form that the
+   * solutions are stored in.
+   */
+  static final class Key {
+    private final String key;
+    private final GridTransform transform;
+    private GridTransform inverse;
+
+    private Key(String key, GridTransform transform) {
+      this.key = key;
+      this.transform = transform;
+    }
+
+    /** Maps a solution of the puzzle to the form that it is stored in. */
+    String toStored(ISquareSudokuGrid solution) {
+      return transform.apply(solution.compactString());
+    }
+
+    /** Maps a stored solution back to a solution of the puzzle. */
+    String fromStored(String solution) {
+      if (inverse == null) {
+        inverse = transform.inverse();
+      }
+      return inverse.apply(solution);
+    }
+  }
+
+  /**
+   * The known solutions of a puzzle, in the stored form, and whether they are all of its
+   * solutions. Entries are replaced rather than changed, so they can be read outside of the lock.
+   */
+  static final class Entry {
+    private final String[] solutions;
+    private final boolean complete;
+
+    private Entry(String[] solutions, boolean complete) {
+      this.solutions = solutions;
+      this.complete = complete;
+    }
+
+    String[] getSolutions() {
+      return solutions;
+    }
+
+    boolean isComplete() {
+      return complete;
+    }
+  }
+
+  private final int capacity;
+
+  private final boolean canonicalKeys;
+
+  private final Canonicalizer canonicalizer = new Canonicalizer();
+
+  /** The entries, from the least to the most recently used. Guarded by itself. */
+  private final LinkedHashMap<String, Entry> entries;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates a cache keyed by the canonical form of the puzzles.
+   * @param capacity  the maximum number of puzzles to keep
+   */
+  public SolutionCache(int capacity) {
+    this(capacity, true);
+  }
+
+  /**
+   * Creates a cache.
+   * @param capacity  the maximum number of puzzles to keep
+   * @param canonicalKeys whether to key the puzzles by their canonical form (so equivalent puzzles
+   *                      share an entry), or by their compact string
+   * @throws IllegalArgumentException if the capacity isn't positive
+   */
+  public SolutionCache(int capacity, boolean canonicalKeys) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    this.canonicalKeys = canonicalKeys;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        if (size() > SolutionCache.this.capacity) {
+          evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Computes the key of the puzzle from its values (its candidates are ignored, so they should be
+   * the ones implied by the values).
+   */
+  Key keyOf(ISquareSudokuGrid puzzle) {
+    if (!canonicalKeys) {
+      return new Key(puzzle.compactString(), GridTransform.identity(puzzle.getDimension()));
+    }
+    CanonicalForm form = canonicalizer.canonicalize(puzzle);
+    return new Key(form.getCompactString(), form.getTransform());
+  }
+
+  /**
+   * Looks up a puzzle, and counts a hit if its entry has at least the given number of solutions,
+   * or all of them.
+   * @param minSolutions  the number of solutions needed, or {@link Long#MAX_VALUE} to need all
+   * @return  the entry, or null on a miss
+   */
+  Entry get(Key key, long minSolutions) {
+    Entry entry = lookUp(key);
+    return count(entry != null && (entry.complete || entry.solutions.length >= minSolutions) ? entry : null);
+  }
+
+  /**
+   * Looks up a puzzle, and counts a hit if its entry has a solution. Unlike
+   * {@link #get(Key, long)}, knowing that a puzzle has no solution is a miss.
+   * @return  the entry, or null on a miss
+   */
+  Entry getSolved(Key key) {
+    Entry entry = lookUp(key);
+    return count(entry != null && entry.solutions.length > 0 ? entry : null);
+  }
+
+  private Entry lookUp(Key key) {
+    synchronized (entries) {
+      return entries.get(key.key);
+    }
+  }
+
+  private Entry count(Entry hit) {
+    if (hit != null) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+    return hit;
+  }
+
+  /**
+   * Records a solution of the puzzle, unless more is already known about it.
+   */
+  void putSolution(Key key, ISquareSudokuGrid solution) {
+    Entry entry = new Entry(new String[] {key.toStored(solution)}, false);
+    synchronized (entries) {
+      Entry existing = entries.get(key.key);
+      if (existing == null) {
+        entries.put(key.key, entry);
+      }
+    }
+  }
+
+  /**
+   * Records all of the solutions of the puzzle.
+   */
+  void putAllSolutions(Key key, List<ISquareSudokuGrid> solutions) {
+    String[] stored = new String[solutions.size()];
+    for (int k = 0; k < stored.length; k++) {
+      stored[k] = key.toStored(solutions.get(k));
+    }
+    Entry entry = new Entry(stored, true);
+    synchronized (entries) {
+      entries.put(key.key, entry);
+    }
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Gets the number of puzzles in the cache.
+   * @return  the number of entries
+   */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Removes every entry. The counters are kept.
+   */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * Gets the fraction of the lookups that hit.
+   * @return  the hit rate, or 0 if there were no lookups
+   */
+  public double getHitRate() {
+    long hitCount = hits.sum();
+    long lookups = hitCount + misses.sum();
+    return lookups == 0 ? 0 : (double) hitCount / lookups;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d/%d puzzles, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+        size(), capacity, getHitCount(), getMissCount(), 100 * getHitRate(), getEvictionCount());
+  }
+}
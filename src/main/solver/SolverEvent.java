@@ -0,0 +1,100 @@
+package main.solver;
+
+import java.util.Objects;
+
+/**
+ * A single event reported to a {@link SolverListener}, as kept by a
+ * {@link RecordingSolverListener}. Fields that don't apply to the type of the event are -1 (or
+ * null for the technique).
+ */
+public final class SolverEvent {
+
+  public enum Type {
+    PLACEMENT,
+    ELIMINATION,
+    BACKTRACK,
+    TECHNIQUE_APPLIED
+  }
+
+  private final Type type;
+  private final int row;
+  private final int column;
+  private final int value;
+  private final SolvingTechnique technique;
+
+  private SolverEvent(Type type, int row, int column, int value, SolvingTechnique technique) {
+    this.type = type;
+    this.row = row;
+    this.column = column;
+    this.value = value;
+    this.technique = technique;
+  }
+
+  public static SolverEvent placement(int row, int column, int value) {
+    return new SolverEvent(Type.PLACEMENT, row, column, value, null);
+  }
+
+  public static SolverEvent elimination(int row, int column, int value) {
+    return new SolverEvent(Type.ELIMINATION, row, column, value, null);
+  }
+
+  public static SolverEvent backtrack(int row, int column) {
+    return new SolverEvent(Type.BACKTRACK, row, column, -1, null);
+  }
+
+  public static SolverEvent techniqueApplied(SolvingTechnique technique) {
+    return new SolverEvent(Type.TECHNIQUE_APPLIED, -1, -1, -1, technique);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public int getRow() {
+    return row;
+  }
+
+  public int getColumn() {
+    return column;
+  }
+
+  public int getValue() {
+    return value;
+  }
+
+  public SolvingTechnique getTechnique() {
+    return technique;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof SolverEvent)) {
+      return false;
+    }
+    SolverEvent other = (SolverEvent) o;
+    return type == other.type && row == other.row && column == other.column && value == other.value &&
+        technique == other.technique;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(type, row, column, value, technique);
+  }
+
+  @Override
+  public String toString() {
+    switch (type) {
+      case PLACEMENT:
+        return String.format("Placed %d in element (%d, %d)", value, row, column);
+      case ELIMINATION:
+        return String.format("Removed %d as a candidate from element (%d, %d)", value, row, column);
+      case BACKTRACK:
+        return String.format("Backtracked from element (%d, %d)", row, column);
+      default:
+        return "Applied " + technique.getDisplayName();
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package main.solver;
+
+/**
+ * Receives the events of a solver as it works on a grid: values placed, candidates eliminated,
+ * placements undone, and techniques applied. Elements are identified by row and column.
+ *
+ * <p>Every method does nothing by default, so a listener only needs to override the events that
+ * it is interested in. The events carry only primitives and enum constants, so that a solver
+ * with the default {@link #NONE} listener doesn't allocate or format anything to report them.</p>
+ */
+public interface SolverListener {
+
+  /** The listener that ignores every event. */
+  SolverListener NONE = new SolverListener() {};
+
+  /**
+   * Called when the solver places a value in an element, whether it was deduced or is a guess
+   * that may be undone later. The candidates that the value removes from the element's peers are
+   * not reported as separate eliminations.
+   */
+  default void onPlacement(int row, int column, int value) {
+  }
+
+  /**
+   * Called when the solver removes a value as a candidate from an element.
+   */
+  default void onElimination(int row, int column, int value) {
+  }
+
+  /**
+   * Called when a searching solver gives up on the value that it placed in an element.
+   */
+  default void onBacktrack(int row, int column) {
+  }
+
+  /**
+   * Called after a technique has made progress, i.e. after the placement or eliminations that it
+   * led to have been reported.
+   */
+  default void onTechniqueApplied(SolvingTechnique technique) {
+  }
+}
@@ -0,0 +1,155 @@
+package main.solver;
+
+import java.util.Arrays;
+
+/**
+ * Counters describing the work a solver did: the nodes of the search tree that it explored, the
+ * guesses that it had to take back, how deep the search went, how long it took, and how often
+ * each technique was applied and how many candidates it eliminated.
+ *
+ * <p>The counters are plain primitives and aren't synchronized, so each solver keeps its own
+ * statistics. To aggregate the statistics of runs on different threads, {@link #merge} them
+ * once the runs are done.</p>
+ */
+public class SolverStatistics {
+
+  private long nodeCount;
+
+  private long backtrackCount;
+
+  private int maxDepth;
+
+  private long elapsedNanos;
+
+  /** The number of times each technique was applied, indexed by ordinal. */
+  private final long[] techniqueCounts = new long[SolvingTechnique.values().length];
+
+  /** The number of candidates eliminated by each technique, indexed by ordinal. */
+  private final long[] eliminationCounts = new long[SolvingTechnique.values().length];
+
+  /**
+   * Records a node of the search tree.
+   * @param depth the depth of the node (the number of guesses that led to it)
+   */
+  public void recordNode(int depth) {
+    nodeCount++;
+    if (depth > maxDepth) {
+      maxDepth = depth;
+    }
+  }
+
+  /**
+   * Records that a guess was taken back.
+   */
+  public void recordBacktrack() {
+    backtrackCount++;
+  }
+
+  /**
+   * Records that a technique made progress.
+   * @param technique the technique
+   * @param eliminations  the number of candidates that it eliminated, including the candidates
+   *                      that a placement removed from the peers of the element
+   */
+  public void recordTechnique(SolvingTechnique technique, int eliminations) {
+    techniqueCounts[technique.ordinal()]++;
+    eliminationCounts[technique.ordinal()] += eliminations;
+  }
+
+  public void setElapsedNanos(long elapsedNanos) {
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  public long getBacktrackCount() {
+    return backtrackCount;
+  }
+
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  public long getTechniqueCount(SolvingTechnique technique) {
+    return techniqueCounts[technique.ordinal()];
+  }
+
+  public long getEliminationCount(SolvingTechnique technique) {
+    return eliminationCounts[technique.ordinal()];
+  }
+
+  /**
+   * Returns the hardest technique that was applied, i.e. the last one in the order that the
+   * constraint based solver tries them.
+   * @return  the hardest technique, or null if no technique was applied
+   */
+  public SolvingTechnique getHardestTechnique() {
+    SolvingTechnique[] techniques = SolvingTechnique.values();
+    for (int k = techniques.length - 1; k >= 0; k--) {
+      if (techniqueCounts[k] > 0) {
+        return techniques[k];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the number of candidates eliminated by all of the techniques.
+   * @return  the total number of eliminations
+   */
+  public long getEliminationCount() {
+    long total = 0;
+    for (long count : eliminationCounts) {
+      total += count;
+    }
+    return total;
+  }
+
+  /**
+   * Adds the counters of another run to these. The times are added, and the maximum depth is the
+   * larger of the two.
+   * @param other the statistics of the other run
+   */
+  public void merge(SolverStatistics other) {
+    nodeCount += other.nodeCount;
+    backtrackCount += other.backtrackCount;
+    maxDepth = Math.max(maxDepth, other.maxDepth);
+    elapsedNanos += other.elapsedNanos;
+    for (int k = 0; k < techniqueCounts.length; k++) {
+      techniqueCounts[k] += other.techniqueCounts[k];
+      eliminationCounts[k] += other.eliminationCounts[k];
+    }
+  }
+
+  /**
+   * Sets every counter back to zero.
+   */
+  public void reset() {
+    nodeCount = 0;
+    backtrackCount = 0;
+    maxDepth = 0;
+    elapsedNanos = 0;
+    Arrays.fill(techniqueCounts, 0);
+    Arrays.fill(eliminationCounts, 0);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("Nodes: %d, backtracks: %d, max depth: %d, time: %.3f ms%n",
+        nodeCount, backtrackCount, maxDepth, elapsedNanos / 1e6));
+    for (SolvingTechnique technique : SolvingTechnique.values()) {
+      if (techniqueCounts[technique.ordinal()] > 0) {
+        sb.append(String.format("%s: applied %d times, %d eliminations%n", technique.getDisplayName(),
+            techniqueCounts[technique.ordinal()], eliminationCounts[technique.ordinal()]));
+      }
+    }
+    return sb.toString();
+  }
+}
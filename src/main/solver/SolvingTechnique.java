@@ -0,0 +1,84 @@
+package main.solver;
+
+/**
+ * The deductions that the constraint based solver knows how to make, in the order that it tries
+ * them (cheapest first). Each technique has a difficulty rating, which never decreases in the
+ * same order; the rating of a puzzle is the rating of the hardest technique that it needs.
+ */
+public enum SolvingTechnique {
+  /** An element with a single candidate left. */
+  NAKED_SINGLE("naked single", 1.0),
+
+  /** A value with a single element left in a row, column, or box. */
+  HIDDEN_SINGLE("hidden single", 1.5),
+
+  /** A value restricted to a single row or column within a box ("pointing"). */
+  LOCKED_CANDIDATE("locked candidate", 2.5),
+
+  /** A value restricted to a single box within a row or column ("claiming"). */
+  BOX_LOCKING_CANDIDATE("box-locking candidate", 2.8),
+
+  /** m values restricted to the same m elements of a group. */
+  HIDDEN_SET("hidden set", 3.4),
+
+  /** m elements of a group with only m candidates between them. */
+  NAKED_SET("naked set", 3.6),
+
+  /** A value restricted to m columns across m rows, or vice versa (X-wing, swordfish, jellyfish). */
+  BASIC_FISH("basic fish", 4.0),
+
+  /**
+   * A basic fish with extra candidates (fins) in its base sets, all in one box. Either a fin is
+   * true or the fish is, so a candidate in a cover set that sees every fin can be eliminated.
+   */
+  FINNED_FISH("finned fish", 4.2),
+
+  /** A finned fish that would be degenerate without its fins (a base set with one cover candidate). */
+  SASHIMI_FISH("sashimi fish", 4.3),
+
+  /**
+   * Four elements of a rectangle in two boxes that would otherwise be left with the same two
+   * candidates, which would give the puzzle two solutions (types 1 to 4). Only valid for puzzles
+   * with a unique solution.
+   */
+  UNIQUE_RECTANGLE("unique rectangle", 4.4),
+
+  /**
+   * Every unsolved element bivalue except for one with three candidates: that element must hold
+   * the candidate that would otherwise leave two solutions (bivalue universal grave + 1). Only
+   * valid for puzzles with a unique solution.
+   */
+  BUG_PLUS_ONE("BUG+1", 4.4),
+
+  /** A value seen in two colors of a cluster of conjugate pairs, or a color that sees itself. */
+  SIMPLE_COLORING("simple coloring", 4.5),
+
+  /** A chain of conjugate pairs of a single value. */
+  X_CHAIN("X-chain", 4.6),
+
+  /** A bivalue element with two bivalue wings: an XY-chain of three elements. */
+  XY_WING("XY-wing", 4.7),
+
+  /** A chain of bivalue elements. */
+  XY_CHAIN("XY-chain", 4.8),
+
+  /** A chain that alternates strong and weak links of any kind. */
+  ALTERNATING_INFERENCE_CHAIN("alternating inference chain", 5.0);
+
+  private final String displayName;
+
+  private final double rating;
+
+  SolvingTechnique(String displayName, double rating) {
+    this.displayName = displayName;
+    this.rating = rating;
+  }
+
+  public String getDisplayName() {
+    return displayName;
+  }
+
+  public double getRating() {
+    return rating;
+  }
+}
@@ -23,4 +23,20 @@ public class DisplayStrings {
     }
     return sb.toString();
   }
+
+  /**
+   * Displays the positions of the set bits of a bit string in a single line, in increasing order
+   * and separated by spaces (the same layout as {@link #setToString(Set)}).
+   * @param bits  the bit string to display
+   * @return  a string representation of the set bits
+   */
+  @NotNull
+  public static String bitsToString(long bits) {
+    StringBuilder sb = new StringBuilder();
+    for (long remaining = bits; remaining != 0; remaining &= remaining - 1) {
+      sb.append(Long.numberOfTrailingZeros(remaining));
+      sb.append(' ');
+    }
+    return sb.toString();
+  }
 }
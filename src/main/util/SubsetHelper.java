@@ -33,4 +33,29 @@ public class SubsetHelper {
     public static <T> List<List<T>> listAllSubsetsOfSize(List<T> list, int subsetSize) {
         return listAllSubsets(list).stream().filter(subset -> subset.size() == subsetSize).toList();
     }
+
+    /**
+     * Gets the first combination of the given size: the bit string with the lowest subsetSize
+     * bits set. Together with {@link #nextCombination(long)}, this enumerates the subsets of size
+     * subsetSize of {0, ..., setSize - 1} as bit strings without allocating anything:
+     * <pre>
+     * for (long subset = firstCombination(k); subset < 1L << setSize; subset = nextCombination(subset))
+     * </pre>
+     * @param subsetSize  the number of elements in each subset, between 1 and 62
+     * @return  the first combination
+     */
+    public static long firstCombination(int subsetSize) {
+        return (1L << subsetSize) - 1;
+    }
+
+    /**
+     * Gets the next larger bit string with the same number of set bits (Gosper's hack).
+     * @param combination   a non-zero bit string whose highest set bit is below bit 62
+     * @return  the next combination in increasing order
+     */
+    public static long nextCombination(long combination) {
+        long lowestBit = combination & -combination;
+        long ripple = combination + lowestBit;
+        return (((ripple ^ combination) >>> 2) / lowestBit) | ripple;
+    }
 }
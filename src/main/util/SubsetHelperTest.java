@@ -2,6 +2,7 @@ package main.util;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -54,4 +55,20 @@ public class SubsetHelperTest {
         assertTrue(pairs.contains(Arrays.asList("b", "d")));
         assertTrue(pairs.contains(Arrays.asList("c", "d")));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCombinationsOfSize() throws Exception {
+        List<Long> pairs = new ArrayList<>();
+        for (long subset = SubsetHelper.firstCombination(2); subset < 1L << 4; subset = SubsetHelper.nextCombination(subset)) {
+            pairs.add(subset);
+        }
+        assertEquals(Arrays.asList(0b0011L, 0b0101L, 0b0110L, 0b1001L, 0b1010L, 0b1100L), pairs);
+
+        int count = 0;
+        for (long subset = SubsetHelper.firstCombination(4); subset < 1L << 36; subset = SubsetHelper.nextCombination(subset)) {
+            assertEquals(4, Long.bitCount(subset));
+            count++;
+        }
+        assertEquals(58905, count);
+    }
+}
@@ -0,0 +1,152 @@
+package test.analysis;
+
+import main.analysis.CanonicalForm;
+import main.analysis.Canonicalizer;
+import main.analysis.GridTransform;
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+import main.solver.DancingLinksSolver;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CanonicalizerTest {
+  private static final String PUZZLE =
+      ".......1.4.........2...........5.4.7..8...3....1.9....3..4..2...5.1........8.6...";
+
+  /**
+   * Moves the rows and columns of a grid, optionally transposes it, and relabels its values.
+   * @param rows    the original row of each row
+   * @param columns the original column of each column
+   * @param values  the new label of each value
+   */
+  private static ISquareSudokuGrid transform(ISquareSudokuGrid grid, int[] rows, int[] columns,
+                                             boolean transpose, int[] values) {
+    int n = grid.getDimension();
+    int[][] transformed = new int[n][n];
+    for (int r = 0; r < n; r++) {
+      for (int c = 0; c < n; c++) {
+        int value = transpose ? grid.getValue(columns[c], rows[r]) : grid.getValue(rows[r], columns[c]);
+        transformed[r][c] = value == 0 ? 0 : values[value - 1];
+      }
+    }
+    return new StandardSudokuGrid(transformed);
+  }
+
+  private static ISquareSudokuGrid[] equivalentPuzzles() {
+    ISquareSudokuGrid puzzle = new StandardSudokuGrid(PUZZLE);
+    int[] identity = {0, 1, 2, 3, 4, 5, 6, 7, 8};
+    int[] noRelabeling = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+    return new ISquareSudokuGrid[] {
+        puzzle,
+        transform(puzzle, identity, identity, true, noRelabeling),
+        transform(puzzle, new int[] {6, 7, 8, 0, 1, 2, 3, 4, 5}, identity, false, noRelabeling),
+        transform(puzzle, identity, new int[] {2, 0, 1, 5, 4, 3, 7, 8, 6}, false, noRelabeling),
+        transform(puzzle, identity, identity, false, new int[] {9, 8, 7, 6, 5, 4, 3, 2, 1}),
+        transform(puzzle, new int[] {4, 3, 5, 8, 6, 7, 1, 2, 0}, new int[] {8, 6, 7, 1, 0, 2, 4, 5, 3},
+            true, new int[] {3, 1, 4, 5, 9, 2, 6, 8, 7})
+    };
+  }
+
+  @Test
+  public void testEquivalentPuzzlesHaveTheSameForm() throws Exception {
+    Canonicalizer canonicalizer = new Canonicalizer();
+    String expected = canonicalizer.canonicalString(new StandardSudokuGrid(PUZZLE));
+    for (ISquareSudokuGrid puzzle : equivalentPuzzles()) {
+      String form = canonicalizer.canonicalString(puzzle);
+      assertEquals(expected, form);
+      // The canonical form is the smallest equivalent string.
+      assertTrue(form.compareTo(puzzle.compactString()) <= 0);
+    }
+    // The canonical form is its own canonical form.
+    assertEquals(expected, canonicalizer.canonicalString(new StandardSudokuGrid(expected)));
+  }
+
+  @Test
+  public void testDifferentPuzzlesHaveDifferentForms() throws Exception {
+    ISquareSudokuGrid puzzle = new StandardSudokuGrid(PUZZLE);
+    ISquareSudokuGrid withExtraClue = puzzle.copy();
+    withExtraClue.setValue(4, 4, new DancingLinksSolver(puzzle).solve().getValue(4, 4));
+
+    Canonicalizer canonicalizer = new Canonicalizer();
+    assertNotEquals(canonicalizer.canonicalString(puzzle), canonicalizer.canonicalString(withExtraClue));
+  }
+
+  @Test
+  public void testCanonicalFormOfEmptyGrid() throws Exception {
+    assertEquals(".".repeat(81), new Canonicalizer().canonicalString(new StandardSudokuGrid()));
+  }
+
+  @Test
+  public void testTransformMapsToCanonicalForm() throws Exception {
+    Canonicalizer canonicalizer = new Canonicalizer();
+    for (ISquareSudokuGrid puzzle : equivalentPuzzles()) {
+      CanonicalForm form = canonicalizer.canonicalize(puzzle);
+      GridTransform transform = form.getTransform();
+      assertEquals(form.getCompactString(), transform.apply(puzzle).compactString());
+      assertEquals(puzzle.compactString(), transform.inverse().apply(transform.apply(puzzle)).compactString());
+    }
+  }
+
+  @Test
+  public void testInverseMapsSolutionBack() throws Exception {
+    ISquareSudokuGrid puzzle = equivalentPuzzles()[5];
+    CanonicalForm form = new Canonicalizer().canonicalize(puzzle);
+    ISquareSudokuGrid canonicalSolution =
+        new DancingLinksSolver(new StandardSudokuGrid(form.getCompactString())).solve();
+
+    ISquareSudokuGrid solution = form.getTransform().inverse().apply(canonicalSolution);
+
+    assertTrue(solution.isSolved());
+    assertTrue(solution.valuesEqual(new DancingLinksSolver(puzzle).solve()));
+  }
+
+  @Test
+  public void testComposedTransforms() throws Exception {
+    ISquareSudokuGrid[] puzzles = equivalentPuzzles();
+    Canonicalizer canonicalizer = new Canonicalizer();
+    GridTransform first = canonicalizer.canonicalize(puzzles[1]).getTransform();
+    GridTransform second = canonicalizer.canonicalize(puzzles[5]).getTransform();
+
+    // puzzles[1] to the canonical form, then back to puzzles[5].
+    GridTransform composed = first.andThen(second.inverse());
+
+    assertEquals(puzzles[5].compactString(), composed.apply(puzzles[1]).compactString());
+    assertEquals(puzzles[1].compactString(), composed.inverse().apply(puzzles[5]).compactString());
+    assertEquals(PUZZLE, GridTransform.identity(9).apply(puzzles[0]).compactString());
+  }
+
+  @Test
+  public void testEquivalentSolutionsHaveTheSameForm() throws Exception {
+    Canonicalizer canonicalizer = new Canonicalizer();
+    String expected = null;
+    for (ISquareSudokuGrid puzzle : equivalentPuzzles()) {
+      ISquareSudokuGrid solution = new DancingLinksSolver(puzzle).solve();
+      CanonicalForm form = canonicalizer.canonicalize(solution);
+      if (expected == null) {
+        expected = form.getCompactString();
+      }
+      assertEquals(expected, form.getCompactString());
+      assertEquals(expected, form.getTransform().apply(solution).compactString());
+    }
+    assertTrue(expected.startsWith("123456789"));
+  }
+
+  @Test
+  public void testSixteenBySixteen() throws Exception {
+    int[] rows = {5, 4, 7, 6, 0, 1, 2, 3, 15, 14, 13, 12, 9, 8, 11, 10};
+    int[] columns = {12, 13, 14, 15, 3, 2, 1, 0, 6, 7, 4, 5, 9, 11, 10, 8};
+    int[] values = {16, 3, 5, 7, 9, 11, 13, 15, 1, 2, 4, 6, 8, 10, 12, 14};
+    ISquareSudokuGrid puzzle = new StandardSudokuGrid(
+        "..3.5.7.9.B.D.F." + ".6.8.A.C.E.G.2.4" + "9.B.D.F.1.3.5.7." + ".E.G.2.4.6.8.A.C" +
+        "2.4.6.8.A.C.E.G." + ".7.9.B.D.F.1.3.5" + "A.C.E.G.2.4.6.8." + ".F.1.3.5.7.9.B.D" +
+        "3.5.7.9.B.D.F.1." + ".8.A.C.E.G.2.4.6" + "B.D.F.1.3.5.7.9." + ".G.2.4.6.8.A.C.E" +
+        "4.6.8.A.C.E.G.2." + ".5.7.9.B.D.F.1.3" + "C.E.G.2.4.6.8.A." + ".D.F.1.3.5.7.9.B");
+    ISquareSudokuGrid equivalent = transform(puzzle, rows, columns, true, values);
+
+    Canonicalizer canonicalizer = new Canonicalizer();
+    CanonicalForm form = canonicalizer.canonicalize(puzzle);
+    assertEquals(form.getCompactString(), canonicalizer.canonicalString(equivalent));
+    assertEquals(form.getCompactString(), form.getTransform().apply(puzzle).compactString());
+  }
+}
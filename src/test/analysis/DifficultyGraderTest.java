@@ -0,0 +1,70 @@
+package test.analysis;
+
+import main.analysis.DifficultyGrade;
+import main.analysis.DifficultyGrader;
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+import main.solver.SolvingTechnique;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DifficultyGraderTest {
+  @Test
+  public void testGradeIsHardestTechnique() throws Exception {
+    ISquareSudokuGrid claimingLockedCandidates =
+        new StandardSudokuGrid("318..54.6...6.381...6.8.5.3864952137123476958795318264.3.5..78......73.5....39641");
+
+    DifficultyGrade grade = new DifficultyGrader().grade(claimingLockedCandidates);
+
+    assertTrue(grade.isSolved());
+    assertEquals(SolvingTechnique.BOX_LOCKING_CANDIDATE, grade.getHardestTechnique());
+    assertEquals(SolvingTechnique.BOX_LOCKING_CANDIDATE.getRating(), grade.getRating(), 0);
+    assertEquals(0, grade.getStatistics().getNodeCount());
+    // The puzzle itself is left untouched.
+    assertEquals(0, claimingLockedCandidates.getValue(0, 3));
+  }
+
+  @Test
+  public void testFish() throws Exception {
+    ISquareSudokuGrid xWing =
+        new StandardSudokuGrid(".41729.3.769..34.2.3264.7194.39..17.6.7..49.319537..24214567398376.9.541958431267");
+
+    DifficultyGrade grade = new DifficultyGrader().grade(xWing);
+
+    assertTrue(grade.isSolved());
+    assertEquals(SolvingTechnique.BASIC_FISH, grade.getHardestTechnique());
+    assertTrue(grade.getStatistics().getTechniqueCount(SolvingTechnique.BASIC_FISH) > 0);
+  }
+
+  @Test
+  public void testNoSilentBruteForce() throws Exception {
+    // Arto Inkala's "world's hardest Sudoku" needs more than the solver's techniques.
+    ISquareSudokuGrid hardest =
+        new StandardSudokuGrid("8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..");
+
+    DifficultyGrade grade = new DifficultyGrader().grade(hardest);
+
+    assertFalse(grade.isSolved());
+    assertEquals(Double.POSITIVE_INFINITY, grade.getRating(), 0);
+    assertEquals(0, grade.getStatistics().getNodeCount());
+    assertEquals(0, grade.getStatistics().getBacktrackCount());
+  }
+
+  @Test
+  public void testGradeAllKeepsOrder() throws Exception {
+    List<ISquareSudokuGrid> puzzles = List.of(
+        new StandardSudokuGrid("376598421214736598859241763193852647627413859548679132961385274732164985485927316"),
+        new StandardSudokuGrid("..............3.85..1.2.......5.7.....4...1...9.......5......73..2.1........4...9"),
+        new StandardSudokuGrid("8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4.."));
+
+    List<DifficultyGrade> grades = new DifficultyGrader().gradeAll(puzzles);
+
+    assertEquals(0, grades.get(0).getRating(), 0);
+    assertNull(grades.get(0).getHardestTechnique());
+    assertEquals(SolvingTechnique.HIDDEN_SINGLE.getRating(), grades.get(1).getRating(), 0);
+    assertFalse(grades.get(2).isSolved());
+  }
+}
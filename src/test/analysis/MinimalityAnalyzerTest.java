@@ -0,0 +1,69 @@
+package test.analysis;
+
+import main.analysis.MinimalityAnalyzer;
+import main.analysis.MinimalityReport;
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+import main.solver.DancingLinksSolver;
+import main.util.Pair;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MinimalityAnalyzerTest {
+  @Test
+  public void testSeventeenCluePuzzleIsMinimal() throws Exception {
+    // There are no proper puzzles with 16 clues, so every 17 clue puzzle is minimal.
+    ISquareSudokuGrid seventeenClues =
+        new StandardSudokuGrid(".......1.4.........2...........5.4.7..8...3....1.9....3..4..2...5.1........8.6...");
+
+    MinimalityReport report = new MinimalityAnalyzer().analyze(seventeenClues);
+
+    assertTrue(report.isProper());
+    assertTrue(report.isMinimal());
+    assertEquals(17, report.getClueCount());
+    assertTrue(report.getRedundantClues().isEmpty());
+  }
+
+  @Test
+  public void testAddedClueIsRedundant() throws Exception {
+    ISquareSudokuGrid puzzle =
+        new StandardSudokuGrid(".......1.4.........2...........5.4.7..8...3....1.9....3..4..2...5.1........8.6...");
+    ISquareSudokuGrid solution = new DancingLinksSolver(puzzle).solve();
+    puzzle.setValue(4, 4, solution.getValue(4, 4));
+
+    MinimalityReport report = new MinimalityAnalyzer().analyze(puzzle);
+
+    assertTrue(report.isProper());
+    assertFalse(report.isMinimal());
+    assertEquals(18, report.getClueCount());
+    assertTrue(report.getRedundantClues().contains(new Pair<>(4, 4)));
+    for (Pair<Integer, Integer> clue : report.getRedundantClues()) {
+      ISquareSudokuGrid withoutClue = puzzle.copy();
+      withoutClue.clearValue(clue.first(), clue.second());
+      assertEquals(1, new DancingLinksSolver(new StandardSudokuGrid(withoutClue.compactString())).countSolutions(2));
+    }
+  }
+
+  @Test
+  public void testEveryClueOfNearlySolvedGridIsRedundant() throws Exception {
+    ISquareSudokuGrid nearlySolved =
+        new StandardSudokuGrid("37659842121473659885924176319385264762741385954867913296138527473216498548592731.");
+
+    MinimalityReport report = new MinimalityAnalyzer().analyze(nearlySolved);
+
+    assertTrue(report.isProper());
+    assertEquals(80, report.getRedundantClues().size());
+  }
+
+  @Test
+  public void testImproperPuzzle() throws Exception {
+    ISquareSudokuGrid improperPuzzle =
+        new StandardSudokuGrid("2957438614318659..8761925433874592166123874955492167387635241899286713541549386..");
+
+    MinimalityReport report = new MinimalityAnalyzer().analyze(improperPuzzle);
+
+    assertFalse(report.isProper());
+    assertFalse(report.isMinimal());
+  }
+}
@@ -0,0 +1,95 @@
+package test.batch;
+
+import main.batch.BatchResult;
+import main.batch.BatchSolver;
+import main.batch.PackedGridFormat;
+import main.batch.PackedGridReader;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchSolverTest {
+  @Test
+  public void solveFileKeepsInputOrder() throws Exception {
+    Path input = Files.createTempFile("puzzles", ".txt");
+    Path output = Files.createTempFile("solutions", ".txt");
+    try {
+      Files.write(input, Arrays.asList(
+          "# comment lines and blank lines are skipped",
+          ".76.9..2.2..7.........4...3193....4..274138...4....1329...8.........4.85.8..2.31.",
+          "",
+          "3.......3........................................................................",
+          "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+          ".41729.3.769..34.2.3264.7194.39..17.6.7..49.319537..24214567398376.9.541958431267"));
+
+      // A tiny chunk size makes the puzzles span several chunks.
+      BatchSolver batchSolver = new BatchSolver(2, 2);
+      BatchResult result;
+      try {
+        result = batchSolver.solveFile(input, output);
+      } finally {
+        batchSolver.shutdown();
+      }
+
+      assertEquals(4, result.getPuzzleCount());
+      assertEquals(3, result.getSolvedCount());
+      assertTrue(result.getStatistics().getNodeCount() >= 3);
+      List<String> solutions = Files.readAllLines(output);
+      assertEquals(Arrays.asList(
+          "376598421214736598859241763193852647627413859548679132961385274732164985485927316",
+          BatchSolver.NO_SOLUTION,
+          "812753649943682175675491283154237896369845721287169534521974368438526917796318452",
+          "841729635769153482532648719423985176687214953195376824214567398376892541958431267"), solutions);
+    } finally {
+      Files.deleteIfExists(input);
+      Files.deleteIfExists(output);
+    }
+  }
+
+  @Test
+  public void solvePackedFileKeepsIndices() throws Exception {
+    Path text = Files.createTempFile("puzzles", ".txt");
+    Path input = Files.createTempFile("puzzles", ".sdkp");
+    Path output = Files.createTempFile("solutions", ".sdkp");
+    try {
+      Files.write(text, Arrays.asList(
+          "# comment lines and blank lines are skipped",
+          ".76.9..2.2..7.........4...3193....4..274138...4....1329...8.........4.85.8..2.31.",
+          "",
+          "3.......3........................................................................",
+          "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4.."));
+      assertEquals(3, BatchSolver.packFile(text, input));
+      assertTrue(PackedGridReader.isPacked(input));
+      assertFalse(PackedGridReader.isPacked(text));
+
+      BatchSolver batchSolver = new BatchSolver(2);
+      BatchResult result;
+      try {
+        result = batchSolver.solvePackedFile(input, output);
+      } finally {
+        batchSolver.shutdown();
+      }
+
+      assertEquals(3, result.getPuzzleCount());
+      assertEquals(2, result.getSolvedCount());
+      try (PackedGridReader reader = PackedGridReader.open(output)) {
+        assertEquals(PackedGridFormat.Encoding.SOLUTIONS, reader.getEncoding());
+        assertEquals(3, reader.size());
+        assertEquals("376598421214736598859241763193852647627413859548679132961385274732164985485927316",
+            reader.readCompactString(0));
+        assertNull(reader.read(1));
+        assertEquals("812753649943682175675491283154237896369845721287169534521974368438526917796318452",
+            reader.readCompactString(2));
+      }
+    } finally {
+      Files.deleteIfExists(text);
+      Files.deleteIfExists(input);
+      Files.deleteIfExists(output);
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package test.batch;
+
+import main.batch.PackedGridFormat;
+import main.batch.PackedGridReader;
+import main.batch.PackedGridWriter;
+import main.grid.model.BitboardSudokuGrid;
+import main.grid.model.ISquareSudokuGrid;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PackedGridFileTest {
+  private static final String HARDEST =
+      "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+
+  private static final String SOLUTION =
+      "812753649943682175675491283154237896369845721287169534521974368438526917796318452";
+
+  /** A solved 16x16 grid, built from the pattern of a box-shifted Latin square. */
+  private static ISquareSudokuGrid solved16() {
+    int[][] values = new int[16][16];
+    for (int r = 0; r < 16; r++) {
+      for (int c = 0; c < 16; c++) {
+        values[r][c] = (4 * (r % 4) + r / 4 + c) % 16 + 1;
+      }
+    }
+    return new BitboardSudokuGrid(values);
+  }
+
+  @Test
+  public void testRecordSizes() {
+    assertEquals(41, new PackedGridFormat(9, PackedGridFormat.Encoding.GIVENS).getRecordSize());
+    assertEquals(21, new PackedGridFormat(9, PackedGridFormat.Encoding.SOLUTIONS).getRecordSize());
+    assertEquals(160, new PackedGridFormat(16, PackedGridFormat.Encoding.GIVENS).getRecordSize());
+  }
+
+  @Test
+  public void testGivensRoundTrip() throws Exception {
+    Path path = Files.createTempFile("puzzles", ".sdkp");
+    try {
+      try (PackedGridWriter writer = PackedGridWriter.create(path, 9, PackedGridFormat.Encoding.GIVENS, 3)) {
+        writer.write(0, new BitboardSudokuGrid(HARDEST));
+        writer.write(2, new BitboardSudokuGrid(SOLUTION));
+      }
+      assertEquals(PackedGridFormat.HEADER_SIZE + 3 * 41, Files.size(path));
+      assertTrue(PackedGridReader.isPacked(path));
+
+      try (PackedGridReader reader = PackedGridReader.open(path)) {
+        assertEquals(3, reader.size());
+        assertEquals(9, reader.getDimension());
+        assertEquals(PackedGridFormat.Encoding.GIVENS, reader.getEncoding());
+        // Random access, in any order.
+        assertEquals(SOLUTION, reader.readCompactString(2));
+        assertEquals(HARDEST, reader.readCompactString(0));
+        // An unwritten record of givens is an empty grid.
+        assertEquals(".".repeat(81), reader.readCompactString(1));
+        ISquareSudokuGrid puzzle = reader.read(0);
+        assertEquals(HARDEST, puzzle.compactString());
+        assertEquals(new BitboardSudokuGrid(HARDEST).getCandidateMask(0, 1), puzzle.getCandidateMask(0, 1));
+      }
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void testSolutionsRoundTrip() throws Exception {
+    Path path = Files.createTempFile("solutions", ".sdkp");
+    try {
+      try (PackedGridWriter writer = PackedGridWriter.create(path, 9, PackedGridFormat.Encoding.SOLUTIONS, 2)) {
+        writer.write(1, new BitboardSudokuGrid(SOLUTION));
+      }
+      try (PackedGridReader reader = PackedGridReader.open(path)) {
+        assertEquals(SOLUTION, reader.readCompactString(1));
+        assertTrue(reader.read(1).isSolved());
+        // An unwritten record of solutions is missing.
+        assertNull(reader.readCompactString(0));
+        assertNull(reader.read(0));
+        assertFalse(reader.readValues(0, new int[81]));
+      }
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void testSixteenBySixteen() throws Exception {
+    ISquareSudokuGrid solution = solved16();
+    ISquareSudokuGrid puzzle = solution.copy();
+    for (int cell = 0; cell < 256; cell += 3) {
+      puzzle.clearValue(cell / 16, cell % 16);
+    }
+    Path givens = Files.createTempFile("puzzles", ".sdkp");
+    Path solutions = Files.createTempFile("solutions", ".sdkp");
+    try {
+      try (PackedGridWriter writer = PackedGridWriter.create(givens, 16, PackedGridFormat.Encoding.GIVENS, 1)) {
+        writer.write(0, puzzle);
+      }
+      try (PackedGridWriter writer = PackedGridWriter.create(solutions, 16, PackedGridFormat.Encoding.SOLUTIONS, 1)) {
+        writer.write(0, solution);
+      }
+      try (PackedGridReader reader = PackedGridReader.open(givens)) {
+        assertEquals(puzzle.compactString(), reader.readCompactString(0));
+      }
+      try (PackedGridReader reader = PackedGridReader.open(solutions)) {
+        assertEquals(solution.compactString(), reader.readCompactString(0));
+      }
+    } finally {
+      Files.deleteIfExists(givens);
+      Files.deleteIfExists(solutions);
+    }
+  }
+
+  @Test
+  public void testUnsolvedGridIsRejected() throws Exception {
+    Path path = Files.createTempFile("solutions", ".sdkp");
+    try (PackedGridWriter writer = PackedGridWriter.create(path, 9, PackedGridFormat.Encoding.SOLUTIONS, 1)) {
+      try {
+        writer.write(0, new BitboardSudokuGrid(HARDEST));
+        fail("Expected an IllegalArgumentException");
+      } catch (IllegalArgumentException e) {
+        // The record is left missing.
+      }
+      try {
+        writer.write(1, new BitboardSudokuGrid(SOLUTION));
+        fail("Expected an IndexOutOfBoundsException");
+      } catch (IndexOutOfBoundsException e) {
+        // There is only one record.
+      }
+    } finally {
+      try (PackedGridReader reader = PackedGridReader.open(path)) {
+        assertNull(reader.read(0));
+      }
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void testOnlySolutionsAreWritten() throws Exception {
+    // The rows are permutations, but the columns and boxes aren't, so the last row can't be
+    // derived from the columns.
+    int[] notSolved = {1, 2, 3, 4, 1, 2, 3, 4, 3, 4, 1, 2, 4, 3, 2, 1};
+    int[] solved = {1, 2, 3, 4, 3, 4, 1, 2, 2, 1, 4, 3, 4, 3, 2, 1};
+    Path path = Files.createTempFile("solutions", ".sdkp");
+    try {
+      try (PackedGridWriter writer = PackedGridWriter.create(path, 4, PackedGridFormat.Encoding.SOLUTIONS, 2)) {
+        try {
+          writer.write(0, notSolved);
+          fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+          // The record is left missing.
+        }
+        writer.write(1, solved);
+      }
+      try (PackedGridReader reader = PackedGridReader.open(path)) {
+        assertFalse(reader.readValues(0, new int[16]));
+        int[] values = new int[16];
+        assertTrue(reader.readValues(1, values));
+        assertArrayEquals(solved, values);
+      }
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void testDimensionOne() throws Exception {
+    assertEquals(1, new PackedGridFormat(1, PackedGridFormat.Encoding.GIVENS).getRecordSize());
+    try {
+      new PackedGridFormat(1, PackedGridFormat.Encoding.SOLUTIONS);
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // A 1x1 solution would take no bits.
+    }
+  }
+
+  @Test
+  public void testInvalidFilesAreRejected() throws Exception {
+    Path path = Files.createTempFile("puzzles", ".txt");
+    try {
+      Files.write(path, Arrays.asList(HARDEST, SOLUTION));
+      assertFalse(PackedGridReader.isPacked(path));
+      try {
+        PackedGridReader.open(path);
+        fail("Expected an IOException");
+      } catch (IOException e) {
+        // Not a packed file.
+      }
+
+      try (PackedGridWriter writer = PackedGridWriter.create(path, 9, PackedGridFormat.Encoding.GIVENS, 2)) {
+        writer.write(0, new BitboardSudokuGrid(HARDEST));
+      }
+      byte[] bytes = Files.readAllBytes(path);
+      Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+      try {
+        PackedGridReader.open(path);
+        fail("Expected an IOException");
+      } catch (IOException e) {
+        // The last record is cut short.
+      }
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package test.generator;
+
+import main.generator.PuzzleGenerator;
+import main.generator.Symmetry;
+import main.grid.model.ISquareSudokuGrid;
+import main.solver.DancingLinksSolver;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class PuzzleGeneratorTest {
+  @Test
+  public void testOrbits() throws Exception {
+    assertArrayEquals(new int[] {0, 80}, Symmetry.ROTATIONAL.getOrbit(0, 9));
+    assertArrayEquals(new int[] {40}, Symmetry.ROTATIONAL.getOrbit(40, 9));
+    assertArrayEquals(new int[] {10, 16}, Symmetry.MIRROR.getOrbit(10, 9));
+    assertArrayEquals(new int[] {1, 9}, Symmetry.DIAGONAL.getOrbit(1, 9));
+    assertArrayEquals(new int[] {20}, Symmetry.DIAGONAL.getOrbit(20, 9));
+    assertArrayEquals(new int[] {7}, Symmetry.NONE.getOrbit(7, 9));
+  }
+
+  @Test
+  public void testGeneratesProperSymmetricPuzzles() throws Exception {
+    for (Symmetry symmetry : Symmetry.values()) {
+      PuzzleGenerator generator = new PuzzleGenerator(9, symmetry, 30);
+      ISquareSudokuGrid puzzle = generator.generate(new SplittableRandom(symmetry.ordinal()));
+
+      assertEquals(30, countClues(puzzle));
+      assertTrue(puzzle.checkBasicConstraints());
+      assertEquals(1, new DancingLinksSolver(puzzle).countSolutions(2));
+      for (int cell = 0; cell < 81; cell++) {
+        int image = symmetry.imageOf(cell, 9);
+        assertEquals(puzzle.isFixed(cell / 9, cell % 9), puzzle.isFixed(image / 9, image % 9));
+      }
+    }
+  }
+
+  @Test
+  public void testUnreachableTargetReturnsFewestClues() throws Exception {
+    // No proper 9x9 puzzle has fewer than 17 clues.
+    PuzzleGenerator generator = new PuzzleGenerator(9, Symmetry.NONE, 10, 3);
+    ISquareSudokuGrid puzzle = generator.generate(new SplittableRandom(7));
+
+    assertTrue(countClues(puzzle) >= 17);
+    assertEquals(1, new DancingLinksSolver(puzzle).countSolutions(2));
+  }
+
+  @Test
+  public void testParallelGenerationDependsOnlyOnSeed() throws Exception {
+    PuzzleGenerator generator = new PuzzleGenerator(9, Symmetry.ROTATIONAL, 28);
+    List<ISquareSudokuGrid> puzzles = generator.generate(20, 42L);
+    List<ISquareSudokuGrid> again = generator.generate(20, 42L);
+
+    assertEquals(20, puzzles.size());
+    for (int k = 0; k < puzzles.size(); k++) {
+      assertEquals(puzzles.get(k).compactString(), again.get(k).compactString());
+      assertEquals(1, new DancingLinksSolver(puzzles.get(k)).countSolutions(2));
+    }
+  }
+
+  @Test
+  public void testSixteenBySixteen() throws Exception {
+    PuzzleGenerator generator = new PuzzleGenerator(16, Symmetry.ROTATIONAL, 160);
+    ISquareSudokuGrid puzzle = generator.generate(new SplittableRandom(3));
+
+    assertEquals(16, puzzle.getDimension());
+    assertEquals(160, countClues(puzzle));
+    assertEquals(1, new DancingLinksSolver(puzzle).countSolutions(2));
+  }
+
+  private static int countClues(ISquareSudokuGrid puzzle) {
+    int clues = 0;
+    for (int r = 0; r < puzzle.getDimension(); r++) {
+      for (int c = 0; c < puzzle.getDimension(); c++) {
+        if (puzzle.isFixed(r, c)) {
+          clues++;
+        }
+      }
+    }
+    return clues;
+  }
+}
@@ -0,0 +1,282 @@
+package test.grid.model;
+
+import main.grid.model.BitboardSudokuGrid;
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+import main.solver.BruteForceSolver;
+import main.util.Pair;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the flat, bitboard-backed Sudoku grid representation.
+ */
+public class BitboardSudokuGridTest {
+  @Test
+  public void testNoArgConstructor() throws Exception {
+    ISquareSudokuGrid emptyGrid = new BitboardSudokuGrid();
+    assertEquals(9, emptyGrid.getDimension());
+    for (int r = 0; r < emptyGrid.getDimension(); r++) {
+      for (int c = 0; c < emptyGrid.getDimension(); c++) {
+        assertEquals(0, emptyGrid.getValue(r, c));
+        for (int value = 1; value <= emptyGrid.getDimension(); value++) {
+          assertTrue(emptyGrid.isACandidate(r, c, value));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMatchesStandardGrid() throws Exception {
+    String puzzle = "318..54.6...6.381...6.8.5.3864952137123476958795318264.3.5..78......73.5....39641";
+    ISquareSudokuGrid standard = new StandardSudokuGrid(puzzle);
+    ISquareSudokuGrid bitboard = new BitboardSudokuGrid(puzzle);
+
+    assertEquals(standard.gridToString(), bitboard.gridToString());
+    assertEquals(standard.compactString(), bitboard.compactString());
+    for (int r = 0; r < 9; r++) {
+      for (int c = 0; c < 9; c++) {
+        assertEquals(standard.getCandidateValues(r, c), bitboard.getCandidateValues(r, c));
+        for (int value = 1; value <= 9; value++) {
+          assertEquals(standard.peekConstraintsOnPlace(r, c, value), bitboard.peekConstraintsOnPlace(r, c, value));
+        }
+      }
+    }
+    assertEquals(bitboard, new BitboardSudokuGrid(standard));
+  }
+
+  @Test
+  public void testGetSetValue() throws Exception {
+    ISquareSudokuGrid grid = new BitboardSudokuGrid();
+    grid.setValue(4, 4, 5);
+    assertEquals(5, grid.getValue(4, 4));
+    assertTrue(grid.isFixed(4, 4));
+    assertEquals(new TreeSet<>(Arrays.asList(5)), grid.getCandidateValues(4, 4));
+    assertFalse(grid.isACandidate(4, 0, 5));
+    assertFalse(grid.isACandidate(0, 4, 5));
+    assertFalse(grid.isACandidate(3, 3, 5));
+    assertTrue(grid.isACandidate(0, 0, 5));
+    assertFalse(grid.peekConstraintsOnPlace(4, 8, 5));
+
+    // Fixed values can't be overwritten.
+    grid.setValue(4, 4, 6);
+    assertEquals(5, grid.getValue(4, 4));
+  }
+
+  @Test
+  public void testClearValue() throws Exception {
+    ISquareSudokuGrid solvedGrid =
+        new BitboardSudokuGrid("378265914596814732142739568217386459854971603639542871785423196463197285921658347");
+
+    solvedGrid.clearValue(0, 0);
+    assertEquals(0, solvedGrid.getValue(0, 0));
+    for (int candidate = 1; candidate <= 9; candidate++) {
+      assertEquals(candidate == 3, solvedGrid.isACandidate(0, 0, candidate));
+    }
+    assertTrue(solvedGrid.peekConstraintsOnPlace(0, 0, 3));
+    solvedGrid.setValue(0, 0, 3);
+    assertTrue(solvedGrid.checkBasicConstraints());
+  }
+
+  @Test
+  public void testGetSetCandidate() throws Exception {
+    ISquareSudokuGrid emptyGrid = new BitboardSudokuGrid();
+    emptyGrid.setCandidate(1, 0, 5, false);
+    emptyGrid.setCandidate(1, 0, 6, true);
+    assertFalse(emptyGrid.isACandidate(1, 0, 5));
+    assertTrue(emptyGrid.isACandidate(1, 0, 6));
+    assertEquals(new TreeSet<>(Arrays.asList(1, 2, 3, 4, 6, 7, 8, 9)), emptyGrid.getCandidateValues(1, 0));
+  }
+
+  @Test
+  public void testCandidateMask() throws Exception {
+    ISquareSudokuGrid grid = new BitboardSudokuGrid();
+    assertEquals(0x3FEL, grid.getCandidateMask(4, 4));
+    assertEquals(9, grid.getCandidateCount(4, 4));
+
+    grid.setCandidate(4, 4, 1, false);
+    grid.setCandidate(4, 4, 5, false);
+    grid.setCandidate(4, 4, 9, false);
+    assertEquals(0x1DCL, grid.getCandidateMask(4, 4));
+    assertEquals(6, grid.getCandidateCount(4, 4));
+    assertEquals(2, grid.nextCandidate(4, 4, 0));
+    assertEquals(6, grid.nextCandidate(4, 4, 4));
+    assertEquals(0, grid.nextCandidate(4, 4, 8));
+
+    // A fixed element's only candidate is its value.
+    grid.setValue(0, 0, 7);
+    assertEquals(1L << 7, grid.getCandidateMask(0, 0));
+    assertEquals(1, grid.getCandidateCount(0, 0));
+    assertEquals(7, grid.nextCandidate(0, 0, 0));
+    assertEquals(0, grid.nextCandidate(0, 0, 7));
+  }
+
+  @Test
+  public void testGetElements() throws Exception {
+    ISquareSudokuGrid emptyGrid = new BitboardSudokuGrid();
+    assertEquals(new Pair<>(2, 1), emptyGrid.getBoxCoordinates(7, 5));
+    assertEquals(Arrays.asList(
+        new Pair<>(0, 3), new Pair<>(0, 4), new Pair<>(0, 5),
+        new Pair<>(1, 3), new Pair<>(1, 4), new Pair<>(1, 5),
+        new Pair<>(2, 3), new Pair<>(2, 4), new Pair<>(2, 5)), emptyGrid.getBoxElements(2, 3));
+    assertEquals(emptyGrid.getBoxElements(6, 6), emptyGrid.getBoxElementsByCoordinates(new Pair<>(2, 2)));
+  }
+
+  @Test
+  public void testCopyIsIndependent() throws Exception {
+    ISquareSudokuGrid grid =
+        new BitboardSudokuGrid("318..54.6...6.381...6.8.5.3864952137123476958795318264.3.5..78......73.5....39641");
+    ISquareSudokuGrid copy = grid.copy();
+    assertEquals(grid, copy);
+
+    copy.setValue(0, 3, 2);
+    assertEquals(0, grid.getValue(0, 3));
+    assertTrue(grid.isACandidate(0, 4, 2));
+    assertFalse(copy.isACandidate(0, 4, 2));
+    assertNotEquals(grid, copy);
+  }
+
+  @Test
+  public void testIsSolvedAndConstraints() throws Exception {
+    ISquareSudokuGrid solvedGrid =
+        new BitboardSudokuGrid("378265914596814732142739568217386459854971623639542871785423196463197285921658347");
+    assertTrue(solvedGrid.isSolved());
+    assertTrue(solvedGrid.checkBasicConstraints());
+
+    ISquareSudokuGrid repeatInRow =
+        new BitboardSudokuGrid("378265913596814732142739568217386459854971623639542871785423196463197285921658347");
+    assertFalse(repeatInRow.isSolved());
+    assertFalse(repeatInRow.checkBasicConstraints());
+
+    ISquareSudokuGrid notFilled =
+        new BitboardSudokuGrid(".78265914596814732142739568217386459854971623639542871785423196463197285921658347");
+    assertFalse(notFilled.isSolved());
+    assertTrue(notFilled.checkBasicConstraints());
+  }
+
+  @Test
+  public void testBruteForceSolve() throws Exception {
+    ISquareSudokuGrid skyscraper =
+        new BitboardSudokuGrid(".76.9..2.2..7.........4...3193....4..274138...4....1329...8.........4.85.8..2.31.");
+    ISquareSudokuGrid solved = new BruteForceSolver(skyscraper).solve();
+
+    assertTrue(solved.isSolved());
+    assertEquals("376598421214736598859241763193852647627413859548679132961385274732164985485927316",
+        solved.compactString());
+  }
+
+  @Test
+  public void testSixteenBySixteenMatchesStandardGrid() throws Exception {
+    String puzzle = ".2.4..7.9..C.E....7.9..C.E..1.3.9..C.E..1.3..6.8.E..1.3..6.8..B." +
+        "2.4..7.9..C.E..1.7.9..C.E..1.3....C.E..1.3..6.8.E..1.3..6.8..B.D" +
+        ".4..7.9..C.E..1.7.9..C.E..1.3..6.C.E..1.3..6.8....1.3..6.8..B.D." +
+        "4..7.9..C.E..1.3.9..C.E..1.3..6.C.E..1.3..6.8..B.1.3..6.8..B.D..";
+    ISquareSudokuGrid standard = new StandardSudokuGrid(puzzle);
+    ISquareSudokuGrid bitboard = new BitboardSudokuGrid(puzzle);
+
+    assertEquals(16, bitboard.getDimension());
+    assertEquals(puzzle, bitboard.compactString());
+    assertEquals(standard.gridToString(), bitboard.gridToString());
+    for (int r = 0; r < 16; r++) {
+      for (int c = 0; c < 16; c++) {
+        assertEquals(standard.getCandidateValues(r, c), bitboard.getCandidateValues(r, c));
+        for (int value = 1; value <= 16; value++) {
+          assertEquals(standard.peekConstraintsOnPlace(r, c, value), bitboard.peekConstraintsOnPlace(r, c, value));
+        }
+      }
+    }
+    assertEquals(bitboard, new BitboardSudokuGrid(standard));
+  }
+
+  @Test
+  public void testThirtySixByThirtySix() throws Exception {
+    ISquareSudokuGrid grid = new BitboardSudokuGrid(36);
+    grid.setValue(0, 0, 36);
+    assertEquals(36, grid.getValue(0, 0));
+    assertFalse(grid.isACandidate(0, 35, 36));
+    assertFalse(grid.isACandidate(35, 0, 36));
+    assertFalse(grid.isACandidate(5, 5, 36));
+    assertTrue(grid.isACandidate(6, 6, 36));
+    assertEquals(35, grid.getCandidateValues(0, 1).size());
+    assertTrue(grid.compactString().startsWith("a."));
+    assertEquals(grid, new BitboardSudokuGrid(grid.compactString()));
+  }
+
+  @Test
+  public void testClearValueRestoresPeerCandidates() throws Exception {
+    ISquareSudokuGrid grid = new BitboardSudokuGrid();
+    grid.setValue(0, 0, 5);
+    grid.setValue(1, 4, 5);
+    grid.setCandidate(0, 1, 3, false);
+
+    grid.clearValue(0, 0);
+
+    assertTrue(grid.isACandidate(0, 0, 5));
+    assertTrue(grid.isACandidate(0, 1, 5));
+    assertTrue(grid.isACandidate(8, 0, 5));
+    // (0, 4) shares a box with the 5 at (1, 4), and the 3 was removed from (0, 1) by hand.
+    assertFalse(grid.isACandidate(0, 4, 5));
+    assertFalse(grid.isACandidate(0, 1, 3));
+    assertFalse(grid.isACandidate(1, 0, 5));
+  }
+
+  @Test
+  public void testRollbackOfClearValue() throws Exception {
+    ISquareSudokuGrid grid = new BitboardSudokuGrid();
+    grid.setValue(0, 0, 5);
+    int checkpoint = grid.checkpoint();
+    grid.clearValue(0, 0);
+    grid.setValue(2, 2, 5);
+    grid.rollback(checkpoint);
+
+    assertEquals(5, grid.getValue(0, 0));
+    assertFalse(grid.peekConstraintsOnPlace(0, 1, 5));
+    assertFalse(grid.isACandidate(0, 1, 5));
+    assertTrue(grid.peekConstraintsOnPlace(3, 3, 5));
+    grid.clearValue(0, 0);
+    assertTrue(grid.isACandidate(0, 1, 5));
+    assertTrue(grid.peekConstraintsOnPlace(2, 2, 5));
+  }
+
+  @Test
+  public void testCheckpointAndRollback() throws Exception {
+    ISquareSudokuGrid grid =
+        new BitboardSudokuGrid("318..54.6...6.381...6.8.5.3864952137123476958795318264.3.5..78......73.5....39641");
+    ISquareSudokuGrid original = grid.copy();
+
+    int first = grid.checkpoint();
+    grid.setValue(0, 3, 2);
+    grid.setCandidate(1, 0, 9, false);
+    ISquareSudokuGrid afterFirstEdits = grid.copy();
+    int second = grid.checkpoint();
+    grid.clearValue(0, 3);
+    grid.setValue(0, 4, 9);
+
+    grid.rollback(second);
+    assertEquals(afterFirstEdits, grid);
+    grid.rollback(first);
+    assertEquals(original, grid);
+    for (int r = 0; r < 9; r++) {
+      for (int c = 0; c < 9; c++) {
+        assertEquals(original.getCandidateValues(r, c), grid.getCandidateValues(r, c));
+      }
+    }
+    // Rolling back to the same checkpoint again does nothing.
+    grid.rollback(first);
+    assertEquals(original, grid);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRollbackPastCheckpointFails() throws Exception {
+    ISquareSudokuGrid grid = new BitboardSudokuGrid();
+    int first = grid.checkpoint();
+    grid.setValue(0, 0, 1);
+    int second = grid.checkpoint();
+    grid.rollback(first);
+    grid.rollback(second + 1);
+  }
+}
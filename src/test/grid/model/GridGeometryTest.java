@@ -0,0 +1,69 @@
+package test.grid.model;
+
+import main.grid.model.GridGeometry;
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+import main.util.Pair;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the precomputed unit and peer tables.
+ */
+public class GridGeometryTest {
+  @Test
+  public void testStandardTables() throws Exception {
+    GridGeometry geometry = GridGeometry.forDimension(9);
+    assertEquals(3, geometry.getBoxSize());
+    assertEquals(81, geometry.getCellCount());
+    assertEquals(27, geometry.getUnitCount());
+
+    assertArrayEquals(new int[] {18, 19, 20, 21, 22, 23, 24, 25, 26}, geometry.getRow(2));
+    assertArrayEquals(new int[] {3, 12, 21, 30, 39, 48, 57, 66, 75}, geometry.getColumn(3));
+    assertArrayEquals(new int[] {3, 4, 5, 12, 13, 14, 21, 22, 23}, geometry.getBox(1));
+    assertEquals(7, geometry.boxOf(geometry.cellIndex(7, 5)));
+    assertEquals(20, geometry.getPeers(40).length);
+  }
+
+  @Test
+  public void testMatchesPairLists() throws Exception {
+    ISquareSudokuGrid grid = new StandardSudokuGrid();
+    for (int r = 0; r < 9; r++) {
+      for (int c = 0; c < 9; c++) {
+        assertCellsMatch(grid.getRowElements(r, c), grid.getRowCells(r));
+        assertCellsMatch(grid.getColumnElements(r, c), grid.getColumnCells(c));
+        assertCellsMatch(grid.getBoxElements(r, c), grid.getBoxCells(r, c));
+      }
+    }
+  }
+
+  @Test
+  public void testPeersOfLargerGrids() throws Exception {
+    GridGeometry geometry = GridGeometry.forDimension(16);
+    assertEquals(4, geometry.getBoxSize());
+    for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+      int[] peers = geometry.getPeers(cell);
+      assertEquals(39, peers.length);
+      for (int peer : peers) {
+        assertTrue(peer != cell);
+        assertTrue(geometry.rowOf(peer) == geometry.rowOf(cell) || geometry.columnOf(peer) == geometry.columnOf(cell) ||
+            geometry.boxOf(peer) == geometry.boxOf(cell));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedDimension() throws Exception {
+    GridGeometry.forDimension(10);
+  }
+
+  private static void assertCellsMatch(List<Pair<Integer, Integer>> coordinates, int[] cells) {
+    assertEquals(coordinates.size(), cells.length);
+    for (int k = 0; k < cells.length; k++) {
+      assertEquals(coordinates.get(k).first() * 9 + coordinates.get(k).second(), cells[k]);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package test.grid.model;
+
+import main.grid.model.GridModel;
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+import main.solver.Deduction;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the undo and redo of edits and steps in the model.
+ */
+public class GridModelTest {
+  private static final String PUZZLE =
+      "318..54.6...6.381...6.8.5.3864952137123476958795318264.3.5..78......73.5....39641";
+
+  @Test
+  public void testUndoRedoEdits() throws Exception {
+    GridModel model = new GridModel(new StandardSudokuGrid(PUZZLE), () -> { });
+    ISquareSudokuGrid grid = model.getGrid();
+
+    model.setValue(0, 3, 2);
+    model.setCandidate(0, 4, 9, false);
+    assertEquals(2, grid.getValue(0, 3));
+    assertFalse(grid.isACandidate(0, 4, 9));
+
+    assertTrue(model.undo());
+    assertTrue(grid.isACandidate(0, 4, 9));
+    assertTrue(model.undo());
+    assertEquals(0, grid.getValue(0, 3));
+    assertTrue(grid.isACandidate(0, 4, 2));
+    assertFalse(model.undo());
+
+    assertTrue(model.redo());
+    assertEquals(2, grid.getValue(0, 3));
+    assertFalse(grid.isACandidate(0, 4, 2));
+    assertTrue(model.redo());
+    assertFalse(grid.isACandidate(0, 4, 9));
+    assertFalse(model.redo());
+  }
+
+  @Test
+  public void testUndoRedoSteps() throws Exception {
+    GridModel model = new GridModel(new StandardSudokuGrid(PUZZLE), () -> { });
+    ISquareSudokuGrid grid = model.getGrid();
+
+    Deduction first = model.step();
+    assertNotNull(first);
+    String afterFirst = grid.compactString();
+    model.step();
+
+    assertTrue(model.undo());
+    assertEquals(afterFirst, grid.compactString());
+    assertTrue(model.undo());
+    assertEquals(PUZZLE, grid.compactString());
+    assertTrue(model.redo());
+    assertEquals(afterFirst, grid.compactString());
+
+    // A new edit clears what could be redone.
+    model.setValue(8, 0, 5);
+    assertFalse(model.redo());
+  }
+}
@@ -245,6 +245,29 @@ public class StandardSudokuGridTest {
     assertEquals(new TreeSet<>(Arrays.asList(1, 2, 5, 6, 7, 8, 9)), emptyGrid.getCandidateValues(8, 6));
   }
 
+  @Test
+  public void testCandidateMask() throws Exception {
+    ISquareSudokuGrid grid = new StandardSudokuGrid();
+    assertEquals(0x3FEL, grid.getCandidateMask(4, 4));
+    assertEquals(9, grid.getCandidateCount(4, 4));
+
+    grid.setCandidate(4, 4, 1, false);
+    grid.setCandidate(4, 4, 5, false);
+    grid.setCandidate(4, 4, 9, false);
+    assertEquals(0x1DCL, grid.getCandidateMask(4, 4));
+    assertEquals(6, grid.getCandidateCount(4, 4));
+    assertEquals(2, grid.nextCandidate(4, 4, 0));
+    assertEquals(6, grid.nextCandidate(4, 4, 4));
+    assertEquals(0, grid.nextCandidate(4, 4, 8));
+
+    // A fixed element's only candidate is its value.
+    grid.setValue(0, 0, 7);
+    assertEquals(1L << 7, grid.getCandidateMask(0, 0));
+    assertEquals(1, grid.getCandidateCount(0, 0));
+    assertEquals(7, grid.nextCandidate(0, 0, 0));
+    assertEquals(0, grid.nextCandidate(0, 0, 7));
+  }
+
   @Test
   public void testIsFixed() throws Exception {
     ISquareSudokuGrid partiallyFilledGrid = new StandardSudokuGrid(new int[][] {
@@ -285,6 +308,17 @@ public class StandardSudokuGridTest {
     });
     assertTrue(solvedGrid.isSolved());
 
+    // The check follows the values as they are cleared, placed, and rolled back.
+    int checkpoint = solvedGrid.checkpoint();
+    solvedGrid.clearValue(0, 0);
+    assertFalse(solvedGrid.isSolved());
+    solvedGrid.setValue(0, 0, 3);
+    assertTrue(solvedGrid.isSolved());
+    solvedGrid.clearValue(0, 0);
+    solvedGrid.rollback(checkpoint);
+    assertTrue(solvedGrid.isSolved());
+    assertTrue(solvedGrid.copy().isSolved());
+
     ISquareSudokuGrid notFilledGrid = new StandardSudokuGrid(new int[][] {
         {0, 7, 8, 2, 6, 5, 9, 1, 4},
         {5, 9, 6, 8, 1, 4, 7, 3, 2},
@@ -419,4 +453,103 @@ public class StandardSudokuGridTest {
             "346......" +
             ".........", partiallyFilledGrid.compactString());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testSixteenBySixteen() throws Exception {
+    String solution = "123456789ABCDEFG56789ABCDEFG12349ABCDEFG12345678DEFG123456789ABC" +
+        "23456789ABCDEFG16789ABCDEFG12345ABCDEFG123456789EFG123456789ABCD" +
+        "3456789ABCDEFG12789ABCDEFG123456BCDEFG123456789AFG123456789ABCDE" +
+        "456789ABCDEFG12389ABCDEFG1234567CDEFG123456789ABG123456789ABCDEF";
+    ISquareSudokuGrid grid = new StandardSudokuGrid(solution);
+    assertEquals(16, grid.getDimension());
+    assertTrue(grid.isSolved());
+    assertEquals(solution, grid.compactString());
+    assertTrue(grid.gridToString().startsWith("1234|5678|9ABC|DEFG\n"));
+    assertTrue(grid.gridToString().contains("----+----+----+----\n"));
+
+    grid.clearValue(15, 15);
+    assertEquals(0, grid.getValue(15, 15));
+    assertEquals(new TreeSet<>(Arrays.asList(15)), grid.getCandidateValues(15, 15));
+    assertFalse(grid.peekConstraintsOnPlace(15, 15, 16));
+    assertTrue(grid.peekConstraintsOnPlace(15, 15, 15));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedDimension() throws Exception {
+    new StandardSudokuGrid(10);
+  }
+
+  @Test
+  public void testClearValueRestoresPeerCandidates() throws Exception {
+    ISquareSudokuGrid grid = new StandardSudokuGrid();
+    grid.setValue(0, 0, 5);
+    grid.setValue(1, 4, 5);
+    grid.setCandidate(0, 1, 3, false);
+
+    grid.clearValue(0, 0);
+
+    assertTrue(grid.isACandidate(0, 0, 5));
+    assertTrue(grid.isACandidate(0, 1, 5));
+    assertTrue(grid.isACandidate(8, 0, 5));
+    // (0, 4) shares a box with the 5 at (1, 4), and the 3 was removed from (0, 1) by hand.
+    assertFalse(grid.isACandidate(0, 4, 5));
+    assertFalse(grid.isACandidate(0, 1, 3));
+    assertFalse(grid.isACandidate(1, 0, 5));
+  }
+
+  @Test
+  public void testRollbackOfClearValue() throws Exception {
+    ISquareSudokuGrid grid = new StandardSudokuGrid();
+    grid.setValue(0, 0, 5);
+    int checkpoint = grid.checkpoint();
+    grid.clearValue(0, 0);
+    grid.setValue(2, 2, 5);
+    grid.rollback(checkpoint);
+
+    assertEquals(5, grid.getValue(0, 0));
+    assertFalse(grid.peekConstraintsOnPlace(0, 1, 5));
+    assertFalse(grid.isACandidate(0, 1, 5));
+    assertTrue(grid.peekConstraintsOnPlace(3, 3, 5));
+    grid.clearValue(0, 0);
+    assertTrue(grid.isACandidate(0, 1, 5));
+    assertTrue(grid.peekConstraintsOnPlace(2, 2, 5));
+  }
+
+  @Test
+  public void testCheckpointAndRollback() throws Exception {
+    ISquareSudokuGrid grid =
+        new StandardSudokuGrid("318..54.6...6.381...6.8.5.3864952137123476958795318264.3.5..78......73.5....39641");
+    ISquareSudokuGrid original = grid.copy();
+
+    int first = grid.checkpoint();
+    grid.setValue(0, 3, 2);
+    grid.setCandidate(1, 0, 9, false);
+    ISquareSudokuGrid afterFirstEdits = grid.copy();
+    int second = grid.checkpoint();
+    grid.clearValue(0, 3);
+    grid.setValue(0, 4, 9);
+
+    grid.rollback(second);
+    assertEquals(afterFirstEdits, grid);
+    grid.rollback(first);
+    assertEquals(original, grid);
+    for (int r = 0; r < 9; r++) {
+      for (int c = 0; c < 9; c++) {
+        assertEquals(original.getCandidateValues(r, c), grid.getCandidateValues(r, c));
+      }
+    }
+    // Rolling back to the same checkpoint again does nothing.
+    grid.rollback(first);
+    assertEquals(original, grid);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRollbackPastCheckpointFails() throws Exception {
+    ISquareSudokuGrid grid = new StandardSudokuGrid();
+    int first = grid.checkpoint();
+    grid.setValue(0, 0, 1);
+    int second = grid.checkpoint();
+    grid.rollback(first);
+    grid.rollback(second + 1);
+  }
+}
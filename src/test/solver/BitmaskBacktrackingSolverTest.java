@@ -0,0 +1,126 @@
+package test.solver;
+
+import main.grid.model.BitboardSudokuGrid;
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+import main.solver.BitmaskBacktrackingSolver;
+import main.solver.DancingLinksSolver;
+import main.solver.ISquareSudokuSolver;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BitmaskBacktrackingSolverTest {
+  @Test
+  public void solveSkyscraper() throws Exception {
+    ISquareSudokuGrid skyscraper =
+        new StandardSudokuGrid(".76.9..2.2..7.........4...3193....4..274138...4....1329...8.........4.85.8..2.31.");
+    ISquareSudokuGrid solution =
+        new StandardSudokuGrid("376598421214736598859241763193852647627413859548679132961385274732164985485927316");
+
+    ISquareSudokuSolver solver = new BitmaskBacktrackingSolver(skyscraper);
+    ISquareSudokuGrid solved = solver.solve();
+
+    assertTrue(solved.isSolved());
+    assertEquals(solution.gridToString(), solved.gridToString());
+  }
+
+  @Test
+  public void solveHardest() throws Exception {
+    // Arto Inkala's "world's hardest Sudoku"
+    ISquareSudokuGrid hardest =
+        new BitboardSudokuGrid("8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..");
+    ISquareSudokuGrid solution =
+        new BitboardSudokuGrid("812753649943682175675491283154237896369845721287169534521974368438526917796318452");
+
+    BitmaskBacktrackingSolver solver = new BitmaskBacktrackingSolver(hardest);
+    ISquareSudokuGrid solved = solver.solve();
+
+    assertTrue(solved.isSolved());
+    assertTrue(solution.valuesEqual(solved));
+    assertEquals(1, solver.countSolutions(2));
+  }
+
+  @Test
+  public void solveSeventeenClues() throws Exception {
+    ISquareSudokuGrid seventeenClues =
+        new BitboardSudokuGrid(".......1.4.........2...........5.4.7..8...3....1.9....3..4..2...5.1........8.6...");
+
+    BitmaskBacktrackingSolver solver = new BitmaskBacktrackingSolver(seventeenClues);
+    ISquareSudokuGrid solved = solver.solve();
+    ISquareSudokuGrid expected = new DancingLinksSolver(seventeenClues).solve();
+
+    assertTrue(solved.isSolved());
+    assertTrue(expected.valuesEqual(solved));
+    assertEquals(1, solver.countSolutions(2));
+  }
+
+  @Test
+  public void findMultipleSolutions() throws Exception {
+    ISquareSudokuGrid improperPuzzle =
+        new StandardSudokuGrid("2957438614318659..8761925433874592166123874955492167387635241899286713541549386..");
+
+    BitmaskBacktrackingSolver solver = new BitmaskBacktrackingSolver(improperPuzzle);
+    List<ISquareSudokuGrid> solutions = solver.findAllSolutions();
+    ISquareSudokuGrid solution1 =
+        new StandardSudokuGrid("295743861431865927876192543387459216612387495549216738763524189928671354154938672");
+    ISquareSudokuGrid solution2 =
+        new StandardSudokuGrid("295743861431865972876192543387459216612387495549216738763524189928671354154938627");
+
+    assertEquals(2, solutions.size());
+    assertTrue(solutions.contains(solution1));
+    assertTrue(solutions.contains(solution2));
+    assertEquals(2, solver.countSolutions(2));
+  }
+
+  @Test
+  public void countMatchesDancingLinks() throws Exception {
+    // Removing clues from a proper puzzle makes it improper.
+    ISquareSudokuGrid underconstrained =
+        new BitboardSudokuGrid("..............3.85..1.2.......5.7.....4...1...9.......5......73..2.1..............");
+
+    long expected = new DancingLinksSolver(underconstrained).countSolutions(500);
+    assertEquals(expected, new BitmaskBacktrackingSolver(underconstrained).countSolutions(500));
+  }
+
+  @Test
+  public void noSolutionForConflictingGivens() throws Exception {
+    ISquareSudokuGrid conflicting =
+        new StandardSudokuGrid("3.......3........................................................................");
+
+    BitmaskBacktrackingSolver solver = new BitmaskBacktrackingSolver(conflicting);
+    ISquareSudokuGrid unsolved = solver.solve();
+    assertFalse(unsolved.isSolved());
+    assertEquals(conflicting.compactString(), unsolved.compactString());
+    assertNotSame(conflicting, unsolved);
+    // The solver doesn't step, so it returns the grid as it is.
+    assertSame(conflicting, solver.step());
+    assertNull(solver.getLastDeduction());
+    assertEquals(0, solver.countSolutions(2));
+  }
+
+  @Test
+  public void solveSixteenBySixteen() throws Exception {
+    ISquareSudokuGrid puzzle = new BitboardSudokuGrid(
+        ".2.4..7.9..C.E....7.9..C.E..1.3.9..C.E..1.3..6.8.E..1.3..6.8..B." +
+            "2.4..7.9..C.E..1.7.9..C.E..1.3....C.E..1.3..6.8.E..1.3..6.8..B.D" +
+            ".4..7.9..C.E..1.7.9..C.E..1.3..6.C.E..1.3..6.8....1.3..6.8..B.D." +
+            "4..7.9..C.E..1.3.9..C.E..1.3..6.C.E..1.3..6.8..B.1.3..6.8..B.D..");
+
+    ISquareSudokuGrid solved = new BitmaskBacktrackingSolver(puzzle).solve();
+    ISquareSudokuGrid expected = new DancingLinksSolver(puzzle).solve();
+
+    assertEquals(16, solved.getDimension());
+    assertTrue(solved.isSolved());
+    assertTrue(expected.isSolved());
+    for (int r = 0; r < 16; r++) {
+      for (int c = 0; c < 16; c++) {
+        if (puzzle.isFixed(r, c)) {
+          assertEquals(puzzle.getValue(r, c), solved.getValue(r, c));
+        }
+      }
+    }
+  }
+}
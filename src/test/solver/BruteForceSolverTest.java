@@ -3,7 +3,10 @@ package test.solver;
 import main.grid.model.ISquareSudokuGrid;
 import main.grid.model.StandardSudokuGrid;
 import main.solver.BruteForceSolver;
+import main.solver.ConstraintBasedSolver;
+import main.solver.Deduction;
 import main.solver.ISquareSudokuSolver;
+import main.solver.SolverEvent;
 import org.junit.Test;
 
 import java.util.List;
@@ -111,4 +114,60 @@ public class BruteForceSolverTest {
     assertTrue(solutions.get(0).isSolved());
     assertTrue(solutions.get(1).isSolved());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void countSolutions() throws Exception {
+    ISquareSudokuGrid improperPuzzle =
+        new StandardSudokuGrid("2957438614318659..8761925433874592166123874955492167387635241899286713541549386..");
+    ISquareSudokuGrid properPuzzle =
+        new StandardSudokuGrid("318..54.6...6.381...6.8.5.3864952137123476958795318264.3.5..78......73.5....39641");
+
+    assertEquals(2, new BruteForceSolver(improperPuzzle).countSolutions(10));
+    assertEquals(1, new BruteForceSolver(improperPuzzle).countSolutions(1));
+    assertFalse(new BruteForceSolver(improperPuzzle).hasUniqueSolution());
+    assertTrue(new BruteForceSolver(properPuzzle).hasUniqueSolution());
+    // The original grid is left untouched.
+    assertEquals(0, properPuzzle.getValue(0, 3));
+  }
+
+  @Test
+  public void stepMakesOneSearchMoveAtATime() throws Exception {
+    ISquareSudokuGrid puzzle =
+        new StandardSudokuGrid("318..54.6...6.381...6.8.5.3864952137123476958795318264.3.5..78......73.5....39641");
+    BruteForceSolver solver = new BruteForceSolver(puzzle);
+
+    ISquareSudokuGrid stepped = solver.step();
+    Deduction first = solver.getLastDeduction();
+    assertTrue(first.isSearchMove());
+    assertEquals(List.of(SolverEvent.placement(0, 3, 2)), first.getEvents());
+
+    int backtracks = 0;
+    while (solver.getLastDeduction() != null) {
+      if (solver.getLastDeduction().getEvents().get(0).getType() == SolverEvent.Type.BACKTRACK) {
+        backtracks++;
+      }
+      stepped = solver.step();
+    }
+
+    assertTrue(stepped.isSolved());
+    assertEquals(new BruteForceSolver(puzzle).solveIterative().compactString(), stepped.compactString());
+    assertEquals(solver.getStatistics().getBacktrackCount(), backtracks);
+    // The original grid is left untouched.
+    assertEquals(0, puzzle.getValue(0, 3));
+  }
+
+  @Test
+  public void solveReturnsUnsolvedGridWithoutSolution() throws Exception {
+    // (0, 8) has no candidates left: the rest of row 0 has 1 to 8, and column 8 has a 9.
+    String puzzle = "12345678.........9" + ".".repeat(63);
+
+    ISquareSudokuGrid recursive = new BruteForceSolver(new StandardSudokuGrid(puzzle)).solve();
+    ISquareSudokuGrid iterative = new BruteForceSolver(new StandardSudokuGrid(puzzle)).solveIterative();
+    ISquareSudokuGrid propagated = new ConstraintBasedSolver(new StandardSudokuGrid(puzzle)).solve();
+
+    for (ISquareSudokuGrid result : List.of(recursive, iterative, propagated)) {
+      assertFalse(result.isSolved());
+      assertEquals(puzzle, result.compactString());
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package test.solver;
+
+import main.grid.model.BitboardSudokuGrid;
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+import main.solver.BitmaskBacktrackingSolver;
+import main.solver.CachingSolver;
+import main.solver.DancingLinksSolver;
+import main.solver.ISquareSudokuSolver;
+import main.solver.SolutionCache;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class CachingSolverTest {
+  private static final String HARDEST =
+      "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+
+  private static final String SOLUTION =
+      "812753649943682175675491283154237896369845721287169534521974368438526917796318452";
+
+  /** Transposes the grid and relabels each value v as N + 1 - v. */
+  private static ISquareSudokuGrid transposeAndRelabel(ISquareSudokuGrid grid) {
+    int n = grid.getDimension();
+    int[][] transformed = new int[n][n];
+    for (int r = 0; r < n; r++) {
+      for (int c = 0; c < n; c++) {
+        int value = grid.getValue(c, r);
+        transformed[r][c] = value == 0 ? 0 : n + 1 - value;
+      }
+    }
+    return new StandardSudokuGrid(transformed);
+  }
+
+  private static CachingSolver cachingSolver(ISquareSudokuGrid puzzle, SolutionCache cache) {
+    return new CachingSolver(new BitmaskBacktrackingSolver(puzzle), cache);
+  }
+
+  @Test
+  public void testEquivalentPuzzleHits() throws Exception {
+    SolutionCache cache = new SolutionCache(16);
+    ISquareSudokuGrid puzzle = new BitboardSudokuGrid(HARDEST);
+    ISquareSudokuGrid solution = cachingSolver(puzzle, cache).solve();
+    assertEquals(SOLUTION, solution.compactString());
+    assertEquals(0, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+
+    ISquareSudokuGrid equivalent = transposeAndRelabel(puzzle);
+    CachingSolver solver = cachingSolver(equivalent, cache);
+    ISquareSudokuGrid equivalentSolution = solver.solve();
+
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.size());
+    assertEquals(0, solver.getStatistics().getNodeCount());
+    assertTrue(equivalentSolution.isSolved());
+    assertEquals(transposeAndRelabel(solution).compactString(), equivalentSolution.compactString());
+    // The solution is the same kind of grid as the puzzle.
+    assertTrue(equivalentSolution instanceof StandardSudokuGrid);
+  }
+
+  @Test
+  public void testCompactStringKeysOnlyMatchIdenticalPuzzles() throws Exception {
+    SolutionCache cache = new SolutionCache(16, false);
+    ISquareSudokuGrid puzzle = new BitboardSudokuGrid(HARDEST);
+    cachingSolver(puzzle, cache).solve();
+    cachingSolver(transposeAndRelabel(puzzle), cache).solve();
+    assertEquals(0, cache.getHitCount());
+
+    ISquareSudokuGrid solution = cachingSolver(new BitboardSudokuGrid(HARDEST), cache).solve();
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(SOLUTION, solution.compactString());
+  }
+
+  @Test
+  public void testFindAllSolutions() throws Exception {
+    // Clearing a rectangle whose values can be swapped leaves two solutions.
+    ISquareSudokuGrid puzzle = new BitboardSudokuGrid(SOLUTION);
+    puzzle.clearValue(0, 2);
+    puzzle.clearValue(0, 5);
+    puzzle.clearValue(1, 2);
+    puzzle.clearValue(1, 5);
+    SolutionCache cache = new SolutionCache(16);
+
+    // A single solution doesn't answer later requests for all of them.
+    cachingSolver(puzzle, cache).solve();
+    List<ISquareSudokuGrid> solutions = cachingSolver(puzzle, cache).findAllSolutions();
+    assertEquals(2, solutions.size());
+    assertEquals(0, cache.getHitCount());
+
+    ISquareSudokuGrid equivalent = transposeAndRelabel(puzzle);
+    List<ISquareSudokuGrid> equivalentSolutions = cachingSolver(equivalent, cache).findAllSolutions();
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, equivalentSolutions.size());
+    for (ISquareSudokuGrid solution : equivalentSolutions) {
+      assertTrue(solution.isSolved());
+    }
+    assertNotEquals(equivalentSolutions.get(0).compactString(), equivalentSolutions.get(1).compactString());
+
+    CachingSolver solver = cachingSolver(equivalent, cache);
+    assertFalse(solver.hasUniqueSolution());
+    assertEquals(2, solver.countSolutions(5));
+    assertEquals(3, cache.getHitCount());
+  }
+
+  @Test
+  public void testPuzzleWithoutSolution() throws Exception {
+    // The hardest puzzle has a unique solution, with a 9 where this has a 2.
+    ISquareSudokuGrid unsolvable =
+        new BitboardSudokuGrid("81.......2.36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..");
+    SolutionCache cache = new SolutionCache(16);
+    ISquareSudokuGrid uncached = new BitmaskBacktrackingSolver(unsolvable.copy()).solve();
+
+    ISquareSudokuGrid miss = cachingSolver(unsolvable, cache).solve();
+    assertTrue(cachingSolver(unsolvable, cache).findAllSolutions().isEmpty());
+    assertEquals(0, cachingSolver(unsolvable, cache).countSolutions(2));
+    assertEquals(1, cache.getHitCount());
+
+    // Knowing that there is no solution doesn't answer solve(): the other solver gives the
+    // unsolved grid, so that it is the same whether or not the puzzle is cached.
+    ISquareSudokuGrid afterCaching = cachingSolver(unsolvable, cache).solve();
+    assertEquals(1, cache.getHitCount());
+    for (ISquareSudokuGrid result : List.of(miss, afterCaching)) {
+      assertFalse(result.isSolved());
+      assertEquals(uncached.compactString(), result.compactString());
+    }
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() throws Exception {
+    SolutionCache cache = new SolutionCache(2);
+    ISquareSudokuGrid first = new BitboardSudokuGrid(HARDEST);
+    ISquareSudokuGrid second =
+        new StandardSudokuGrid(".76.9..2.2..7.........4...3193....4..274138...4....1329...8.........4.85.8..2.31.");
+    ISquareSudokuGrid third =
+        new StandardSudokuGrid(".......1.4.........2...........5.4.7..8...3....1.9....3..4..2...5.1........8.6...");
+
+    cachingSolver(first, cache).solve();
+    cachingSolver(second, cache).solve();
+    cachingSolver(first, cache).solve();
+    cachingSolver(third, cache).solve();
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(2, cache.size());
+
+    // The second puzzle was evicted, since the first one was used more recently.
+    cachingSolver(first, cache).solve();
+    cachingSolver(second, cache).solve();
+    assertEquals(2, cache.getHitCount());
+    assertEquals(4, cache.getMissCount());
+  }
+
+  @Test
+  public void testConcurrentSolves() throws Exception {
+    SolutionCache cache = new SolutionCache(4);
+    ISquareSudokuGrid puzzle = new BitboardSudokuGrid(HARDEST);
+    ISquareSudokuGrid equivalent = transposeAndRelabel(puzzle);
+    String expected = transposeAndRelabel(new DancingLinksSolver(puzzle).solve()).compactString();
+
+    boolean allSolved = IntStream.range(0, 200).parallel().allMatch(k -> {
+      ISquareSudokuSolver solver = cachingSolver(k % 2 == 0 ? puzzle.copy() : equivalent.copy(), cache);
+      String solution = solver.solve().compactString();
+      return solution.equals(k % 2 == 0 ? SOLUTION : expected);
+    });
+
+    assertTrue(allSolved);
+    assertEquals(200, cache.getHitCount() + cache.getMissCount());
+    assertEquals(1, cache.size());
+  }
+}
@@ -4,10 +4,17 @@ import main.grid.model.ISquareSudokuGrid;
 import main.grid.model.StandardSudokuGrid;
 import main.solver.BruteForceSolver;
 import main.solver.ConstraintBasedSolver;
+import main.solver.DancingLinksSolver;
+import main.solver.Deduction;
 import main.solver.ISquareSudokuSolver;
+import main.solver.RecordingSolverListener;
+import main.solver.SolverEvent;
+import main.solver.SolvingTechnique;
 import main.util.Pair;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -577,6 +584,70 @@ public class ConstraintBasedSolverTest {
     assertEquals(solution.gridToString(), solved.gridToString());
   }
 
+  @Test
+  public void findFinnedXWing() throws Exception {
+    // Rows 0 and 4 have the 5 only in columns 1 and 7, plus a fin at (0, 8).
+    ISquareSudokuGrid grid = new StandardSudokuGrid();
+    for (int c = 0; c < 9; c++) {
+      if (c != 1 && c != 7 && c != 8) {
+        grid.setCandidate(0, c, 5, false);
+      }
+      if (c != 1 && c != 7) {
+        grid.setCandidate(4, c, 5, false);
+      }
+    }
+
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(grid);
+    assertFalse(solver.checkForBasicFishInRows(grid, 5, 2));
+    assertTrue(solver.checkForFinnedFishInRows(grid, 5, 2));
+
+    // Only the cells of column 7 that see the fin lose the 5.
+    assertFalse(grid.isACandidate(1, 7, 5));
+    assertFalse(grid.isACandidate(2, 7, 5));
+    assertTrue(grid.isACandidate(3, 7, 5));
+    assertTrue(grid.isACandidate(1, 1, 5));
+    assertEquals(1, solver.getStatistics().getTechniqueCount(SolvingTechnique.FINNED_FISH));
+  }
+
+  @Test
+  public void findSashimiXWing() throws Exception {
+    // Row 0 has the 5 only in columns 7 and 8, and row 4 only in columns 1 and 7.
+    ISquareSudokuGrid grid = new StandardSudokuGrid();
+    for (int c = 0; c < 9; c++) {
+      if (c != 7 && c != 8) {
+        grid.setCandidate(0, c, 5, false);
+      }
+      if (c != 1 && c != 7) {
+        grid.setCandidate(4, c, 5, false);
+      }
+    }
+
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(grid);
+    assertTrue(solver.checkForFinnedFishInRows(grid, 5, 2));
+
+    assertFalse(grid.isACandidate(1, 7, 5));
+    assertFalse(grid.isACandidate(2, 7, 5));
+    assertTrue(grid.isACandidate(3, 7, 5));
+    assertEquals(1, solver.getStatistics().getTechniqueCount(SolvingTechnique.SASHIMI_FISH));
+  }
+
+  @Test
+  public void solveSkyscraperWithoutFallback() throws Exception {
+    // A skyscraper is a sashimi X-wing.
+    ISquareSudokuGrid skyscraper =
+        new StandardSudokuGrid(".76.9..2.2..7.........4...3193....4..274138...4....1329...8.........4.85.8..2.31.");
+
+    ISquareSudokuGrid solution = new DancingLinksSolver(skyscraper.copy()).solve();
+
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(skyscraper);
+    solver.setBruteForceFallback(false);
+    ISquareSudokuGrid solved = solver.solve();
+
+    assertTrue(solved.isSolved());
+    assertTrue(solution.valuesEqual(solved));
+    assertTrue(solver.getStatistics().getTechniqueCount(SolvingTechnique.SASHIMI_FISH) > 0);
+  }
+
   @Test
   public void solveSkyscraper() throws Exception {
     ISquareSudokuGrid skyscraper =
@@ -638,4 +709,262 @@ public class ConstraintBasedSolverTest {
     assertTrue(solutions.get(0).isSolved());
     assertTrue(solutions.get(1).isSolved());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void countSolutions() throws Exception {
+    ISquareSudokuGrid improperPuzzle =
+        new StandardSudokuGrid("2957438614318659..8761925433874592166123874955492167387635241899286713541549386..");
+    ISquareSudokuGrid skyscraper =
+        new StandardSudokuGrid(".76.9..2.2..7.........4...3193....4..274138...4....1329...8.........4.85.8..2.31.");
+
+    assertEquals(2, new ConstraintBasedSolver(improperPuzzle).countSolutions(10));
+    assertFalse(new ConstraintBasedSolver(improperPuzzle.copy()).hasUniqueSolution());
+    assertTrue(new ConstraintBasedSolver(skyscraper).hasUniqueSolution());
+  }
+
+  @Test
+  public void countSolutionsIgnoresAssumeUniqueSolution() throws Exception {
+    // A puzzle with two solutions, whose deadly pattern the uniqueness techniques would remove.
+    ISquareSudokuGrid improperPuzzle =
+        new StandardSudokuGrid("2.57.38.14..8....7.7....543387.5..1.....87.9.5.9.16...763.2..8.......3.4.....8..2");
+
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(improperPuzzle);
+    solver.setAssumeUniqueSolution(true);
+    assertEquals(2, solver.countSolutions(2));
+    assertFalse(solver.hasUniqueSolution());
+  }
+
+  @Test
+  public void countSolutionsLeavesGridUnchanged() throws Exception {
+    String puzzle = ".76.9..2.2..7.........4...3193....4..274138...4....1329...8.........4.85.8..2.31.";
+    ISquareSudokuGrid grid = new StandardSudokuGrid(puzzle);
+    ISquareSudokuGrid before = grid.copy();
+
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(grid);
+    assertEquals(1, solver.countSolutions(2));
+
+    assertSame(grid, solver.getGrid());
+    assertEquals(puzzle, grid.compactString());
+    for (int r = 0; r < 9; r++) {
+      for (int c = 0; c < 9; c++) {
+        assertEquals(before.getCandidateMask(r, c), grid.getCandidateMask(r, c));
+      }
+    }
+  }
+
+  @Test
+  public void countSolutionsFollowsChangesToGrid() throws Exception {
+    ISquareSudokuGrid improperPuzzle =
+        new StandardSudokuGrid("2957438614318659..8761925433874592166123874955492167387635241899286713541549386..");
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(improperPuzzle);
+    assertEquals(2, solver.countSolutions(10));
+
+    // The same solver counts again after a clue is added.
+    improperPuzzle.setValue(1, 7, 2);
+    assertEquals(1, solver.countSolutions(10));
+    assertTrue(solver.hasUniqueSolution());
+  }
+
+  @Test
+  public void solveWithoutBruteForceFallback() throws Exception {
+    ISquareSudokuGrid hardest =
+        new StandardSudokuGrid("8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..");
+
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(hardest);
+    solver.setBruteForceFallback(false);
+    ISquareSudokuGrid result = solver.solve();
+
+    assertFalse(result.isSolved());
+    assertEquals(0, solver.getStatistics().getNodeCount());
+  }
+
+  @Test
+  public void stepAppliesOneDeductionAtATime() throws Exception {
+    // Needs locked candidates in boxes where more than one value is locked, and a skyscraper.
+    String puzzle = ".76.9..2.2..7.........4...3193....4..274138...4....1329...8.........4.85.8..2.31.";
+    ConstraintBasedSolver stepper = new ConstraintBasedSolver(new StandardSudokuGrid(puzzle));
+    RecordingSolverListener listener = new RecordingSolverListener();
+    stepper.setListener(listener);
+
+    int steps = 0;
+    Set<SolvingTechnique> techniques = new HashSet<>();
+    ISquareSudokuGrid stepped = stepper.step();
+    while (stepper.getLastDeduction() != null) {
+      Deduction deduction = stepper.getLastDeduction();
+      assertFalse(deduction.isSearchMove());
+      assertFalse(deduction.getEvents().isEmpty());
+      if (deduction.getTechnique() == SolvingTechnique.NAKED_SINGLE ||
+          deduction.getTechnique() == SolvingTechnique.HIDDEN_SINGLE) {
+        assertEquals(1, deduction.getPlacements().size());
+        assertTrue(deduction.getEliminations().isEmpty());
+      } else {
+        assertTrue(deduction.getPlacements().isEmpty());
+        assertFalse(deduction.getEliminations().isEmpty());
+      }
+
+      List<SolvingTechnique> applied = new ArrayList<>();
+      for (SolverEvent event : listener.getEvents()) {
+        if (event.getType() == SolverEvent.Type.TECHNIQUE_APPLIED) {
+          applied.add(event.getTechnique());
+        }
+      }
+      assertEquals(List.of(deduction.getTechnique()), applied);
+      techniques.add(deduction.getTechnique());
+      listener.clear();
+      steps++;
+      stepped = stepper.step();
+    }
+
+    assertTrue(techniques.contains(SolvingTechnique.LOCKED_CANDIDATE));
+    assertTrue(stepped.isSolved());
+    assertEquals(new DancingLinksSolver(new StandardSudokuGrid(puzzle)).solve().compactString(),
+        stepped.compactString());
+    long applied = 0;
+    for (SolvingTechnique technique : SolvingTechnique.values()) {
+      applied += stepper.getStatistics().getTechniqueCount(technique);
+    }
+    assertEquals(steps, applied);
+  }
+
+  @Test
+  public void findXYWing() throws Exception {
+    // The pivot (0, 0) has {1, 2}, and its wings (0, 4) and (4, 0) have {1, 3} and {2, 3}, so one
+    // of the wings is 3 and (4, 4), which sees both, can't be.
+    ISquareSudokuGrid grid = new StandardSudokuGrid();
+    int[][] bivalueCells = {{0, 0, 1, 2}, {0, 4, 1, 3}, {4, 0, 2, 3}};
+    for (int[] bivalueCell : bivalueCells) {
+      for (int value = 1; value <= 9; value++) {
+        if (value != bivalueCell[2] && value != bivalueCell[3]) {
+          grid.setCandidate(bivalueCell[0], bivalueCell[1], value, false);
+        }
+      }
+    }
+
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(grid);
+    assertTrue(solver.checkForXYChain(grid));
+
+    assertFalse(grid.isACandidate(4, 4, 3));
+    assertTrue(grid.isACandidate(4, 4, 1));
+    assertTrue(grid.isACandidate(4, 1, 3));
+    assertEquals(1, solver.getStatistics().getTechniqueCount(SolvingTechnique.XY_WING));
+  }
+
+  @Test
+  public void solveWithSimpleColoring() throws Exception {
+    assertSolvedWithTechnique(".....6.1..4..8.......9..75.....4...7361.......74...9...3....6.5..21.8..........3.",
+        SolvingTechnique.SIMPLE_COLORING);
+  }
+
+  @Test
+  public void solveWithXYChain() throws Exception {
+    assertSolvedWithTechnique("........9..9..215..634........3....47.1.9......4....8..7.65....2....37..........8",
+        SolvingTechnique.XY_CHAIN);
+  }
+
+  @Test
+  public void solveWithAlternatingInferenceChains() throws Exception {
+    assertSolvedWithTechnique(".......94.7.5......1.36..........83.....7....9.81.4.6..64....2......26..3.....1..",
+        SolvingTechnique.ALTERNATING_INFERENCE_CHAIN);
+  }
+
+  @Test
+  public void chainEliminationsAgreeWithDancingLinks() throws Exception {
+    String[] puzzles = {
+        ".7.8.......2...3.7.....1.6.84.7...........4.9...6.2......3.6...5.....98.9.1......",
+        "7.94...8.6.............6..1..2.7.4.89.721.........5....5...........3.9....4...35.",
+        ".....5..6...4...17..91...8.74..............9.3...8....1..23......7..1.59....6...3",
+        "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4.."
+    };
+    for (String puzzle : puzzles) {
+      ISquareSudokuGrid solution = new DancingLinksSolver(new StandardSudokuGrid(puzzle)).solve();
+      ConstraintBasedSolver solver = new ConstraintBasedSolver(new StandardSudokuGrid(puzzle));
+      solver.setBruteForceFallback(false);
+      RecordingSolverListener recorder = new RecordingSolverListener();
+      solver.setListener(recorder);
+      solver.solve();
+
+      for (SolverEvent event : recorder.getEvents()) {
+        if (event.getType() == SolverEvent.Type.ELIMINATION) {
+          assertNotEquals(solution.getValue(event.getRow(), event.getColumn()), event.getValue());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void findUniqueRectangleType1() throws Exception {
+    // (0, 0), (0, 3), and (1, 0) only have 1 and 2, so (1, 3) can't be 1 or 2.
+    ISquareSudokuGrid grid = new StandardSudokuGrid();
+    int[][] floor = {{0, 0}, {0, 3}, {1, 0}};
+    for (int[] cell : floor) {
+      for (int value = 3; value <= 9; value++) {
+        grid.setCandidate(cell[0], cell[1], value, false);
+      }
+    }
+
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(grid);
+    assertTrue(solver.checkForUniqueRectangle(grid));
+
+    assertEquals(Set.of(3, 4, 5, 6, 7, 8, 9), grid.getCandidateValues(1, 3));
+    assertEquals(1, solver.getStatistics().getTechniqueCount(SolvingTechnique.UNIQUE_RECTANGLE));
+  }
+
+  @Test
+  public void findUniqueRectangleType4() throws Exception {
+    // (0, 0) and (0, 3) only have 1 and 2, and in row 1, 1 is only a candidate of (1, 0) and
+    // (1, 3). One of them is 1, so neither can be 2.
+    ISquareSudokuGrid grid = new StandardSudokuGrid();
+    for (int value = 3; value <= 9; value++) {
+      grid.setCandidate(0, 0, value, false);
+      grid.setCandidate(0, 3, value, false);
+    }
+    for (int c = 0; c < 9; c++) {
+      if (c != 0 && c != 3) {
+        grid.setCandidate(1, c, 1, false);
+      }
+    }
+
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(grid);
+    assertTrue(solver.checkForUniqueRectangle(grid));
+
+    assertFalse(grid.isACandidate(1, 0, 2));
+    assertFalse(grid.isACandidate(1, 3, 2));
+    assertTrue(grid.isACandidate(1, 0, 1));
+    assertTrue(grid.isACandidate(1, 3, 1));
+  }
+
+  @Test
+  public void solveWithUniqueRectangle() throws Exception {
+    String puzzle = ".....6.1..4..8.......9..75.....4...7361.......74...9...3....6.5..21.8..........3.";
+    assertSolvedWithTechnique(puzzle, SolvingTechnique.UNIQUE_RECTANGLE, true);
+
+    // The uniqueness techniques are off unless the puzzle is declared to be unique.
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(new StandardSudokuGrid(puzzle));
+    solver.setBruteForceFallback(false);
+    solver.solve();
+    assertEquals(0, solver.getStatistics().getTechniqueCount(SolvingTechnique.UNIQUE_RECTANGLE));
+  }
+
+  @Test
+  public void solveWithBugPlusOne() throws Exception {
+    assertSolvedWithTechnique(".....3.7.4.....86......95...521.............4..16..92..2........7...8....6.354...",
+        SolvingTechnique.BUG_PLUS_ONE, true);
+  }
+
+  private static void assertSolvedWithTechnique(String puzzle, SolvingTechnique technique) {
+    assertSolvedWithTechnique(puzzle, technique, false);
+  }
+
+  private static void assertSolvedWithTechnique(String puzzle, SolvingTechnique technique, boolean assumeUniqueSolution) {
+    ISquareSudokuGrid solution = new DancingLinksSolver(new StandardSudokuGrid(puzzle)).solve();
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(new StandardSudokuGrid(puzzle));
+    solver.setBruteForceFallback(false);
+    solver.setAssumeUniqueSolution(assumeUniqueSolution);
+
+    ISquareSudokuGrid solved = solver.solve();
+
+    assertTrue(solved.isSolved());
+    assertTrue(solution.valuesEqual(solved));
+    assertTrue(solver.getStatistics().getTechniqueCount(technique) > 0);
+  }
+}
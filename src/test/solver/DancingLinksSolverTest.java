@@ -0,0 +1,97 @@
+package test.solver;
+
+import main.grid.model.BitboardSudokuGrid;
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+import main.solver.DancingLinksSolver;
+import main.solver.ISquareSudokuSolver;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DancingLinksSolverTest {
+  @Test
+  public void solveSkyscraper() throws Exception {
+    ISquareSudokuGrid skyscraper =
+        new StandardSudokuGrid(".76.9..2.2..7.........4...3193....4..274138...4....1329...8.........4.85.8..2.31.");
+    ISquareSudokuGrid solution =
+        new StandardSudokuGrid("376598421214736598859241763193852647627413859548679132961385274732164985485927316");
+
+    ISquareSudokuSolver solver = new DancingLinksSolver(skyscraper);
+    ISquareSudokuGrid solved = solver.solve();
+
+    assertTrue(solved.isSolved());
+    assertEquals(solution.gridToString(), solved.gridToString());
+    // The original grid is left untouched.
+    assertEquals(0, skyscraper.getValue(0, 0));
+  }
+
+  @Test
+  public void solveBacktrackingAdversarial() throws Exception {
+    // source: https://www.flickr.com/photos/npcomplete/2361922699
+    ISquareSudokuGrid adversarial =
+        new BitboardSudokuGrid("..............3.85..1.2.......5.7.....4...1...9.......5......73..2.1........4...9");
+    ISquareSudokuGrid solution =
+        new BitboardSudokuGrid("987654321246173985351928746128537694634892157795461832519286473472319568863745219");
+
+    DancingLinksSolver solver = new DancingLinksSolver(adversarial);
+    ISquareSudokuGrid solved = solver.solve();
+
+    assertTrue(solved.isSolved());
+    assertTrue(solution.valuesEqual(solved));
+    assertEquals(1, solver.countSolutions(2));
+  }
+
+  @Test
+  public void findMultipleSolutions() throws Exception {
+    ISquareSudokuGrid improperPuzzle =
+        new StandardSudokuGrid("2957438614318659..8761925433874592166123874955492167387635241899286713541549386..");
+
+    DancingLinksSolver solver = new DancingLinksSolver(improperPuzzle);
+    List<ISquareSudokuGrid> solutions = solver.findAllSolutions();
+    ISquareSudokuGrid solution1 =
+        new StandardSudokuGrid("295743861431865927876192543387459216612387495549216738763524189928671354154938672");
+    ISquareSudokuGrid solution2 =
+        new StandardSudokuGrid("295743861431865972876192543387459216612387495549216738763524189928671354154938627");
+
+    assertEquals(2, solutions.size());
+    assertTrue(solutions.contains(solution1));
+    assertTrue(solutions.contains(solution2));
+    assertEquals(2, solver.countSolutions(10));
+    assertEquals(1, solver.countSolutions(1));
+  }
+
+  @Test
+  public void countSolutionsOfEmptyGridStopsAtLimit() throws Exception {
+    DancingLinksSolver solver = new DancingLinksSolver(new BitboardSudokuGrid());
+    assertEquals(1000, solver.countSolutions(1000));
+  }
+
+  @Test
+  public void noSolutionForConflictingGivens() throws Exception {
+    // Two 3s in the first row.
+    ISquareSudokuGrid conflicting =
+        new StandardSudokuGrid("3.......3........................................................................");
+
+    DancingLinksSolver solver = new DancingLinksSolver(conflicting);
+    ISquareSudokuGrid unsolved = solver.solve();
+    assertFalse(unsolved.isSolved());
+    assertEquals(conflicting.compactString(), unsolved.compactString());
+    assertNotSame(conflicting, unsolved);
+    // The solver doesn't step, so it returns the grid as it is.
+    assertSame(conflicting, solver.step());
+    assertNull(solver.getLastDeduction());
+    assertEquals(0, solver.countSolutions(2));
+    assertTrue(solver.findAllSolutions().isEmpty());
+  }
+
+  @Test
+  public void hasUniqueSolution() throws Exception {
+    ISquareSudokuGrid adversarial =
+        new BitboardSudokuGrid("..............3.85..1.2.......5.7.....4...1...9.......5......73..2.1........4...9");
+    assertTrue(new DancingLinksSolver(adversarial).hasUniqueSolution());
+    assertFalse(new DancingLinksSolver(new BitboardSudokuGrid()).hasUniqueSolution());
+  }
+}
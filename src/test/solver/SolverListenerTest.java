@@ -0,0 +1,86 @@
+package test.solver;
+
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+import main.solver.*;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SolverListenerTest {
+  @Test
+  public void recordNakedSinglePlacements() throws Exception {
+    ISquareSudokuGrid nakedSingle =
+        new StandardSudokuGrid("841729635769153482532648719423985176687214953195376824214567398376892541958431.67");
+
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(nakedSingle);
+    RecordingSolverListener recorder = new RecordingSolverListener();
+    solver.setListener(recorder);
+    solver.solve();
+
+    List<SolverEvent> events = recorder.getEvents();
+    assertEquals(2, events.size());
+    assertEquals(SolverEvent.placement(8, 6, 2), events.get(0));
+    assertEquals(SolverEvent.techniqueApplied(SolvingTechnique.NAKED_SINGLE), events.get(1));
+  }
+
+  @Test
+  public void countConstraintBasedEvents() throws Exception {
+    ISquareSudokuGrid skyscraper =
+        new StandardSudokuGrid(".76.9..2.2..7.........4...3193....4..274138...4....1329...8.........4.85.8..2.31.");
+    int emptyCount = 0;
+    for (int r = 0; r < 9; r++) {
+      for (int c = 0; c < 9; c++) {
+        if (!skyscraper.isFixed(r, c)) {
+          emptyCount++;
+        }
+      }
+    }
+
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(skyscraper);
+    CountingSolverListener counter = new CountingSolverListener();
+    solver.setListener(counter);
+    ISquareSudokuGrid solved = solver.solve();
+
+    assertTrue(solved.isSolved());
+    // Every empty element is filled by exactly one placement, whether deduced or guessed.
+    assertTrue(counter.getPlacementCount() >= emptyCount);
+    assertTrue(counter.getTechniqueCount(SolvingTechnique.LOCKED_CANDIDATE) > 0);
+    assertTrue(counter.getEliminationCount() > 0);
+  }
+
+  @Test
+  public void countBacktracks() throws Exception {
+    ISquareSudokuGrid hardest =
+        new StandardSudokuGrid("8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..");
+
+    BitmaskBacktrackingSolver solver = new BitmaskBacktrackingSolver(hardest);
+    CountingSolverListener counter = new CountingSolverListener();
+    solver.setListener(counter);
+    assertTrue(solver.solve().isSolved());
+
+    // Every guess that didn't lead to the solution was undone.
+    assertTrue(counter.getBacktrackCount() > 0);
+    assertTrue(counter.getPlacementCount() > counter.getBacktrackCount());
+
+    counter.reset();
+    assertEquals(0, counter.getPlacementCount());
+    assertEquals(0, counter.getBacktrackCount());
+  }
+
+  @Test
+  public void logEvents() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    SolverListener logger = new LoggingSolverListener(new PrintStream(bytes, true));
+    logger.onElimination(1, 2, 3);
+    logger.onTechniqueApplied(SolvingTechnique.HIDDEN_SET);
+
+    String[] lines = bytes.toString().split("\\R");
+    assertEquals("Removed 3 as a candidate from element (1, 2)", lines[0]);
+    assertEquals("Applied hidden set", lines[1]);
+  }
+}
@@ -0,0 +1,79 @@
+package test.solver;
+
+import main.grid.model.ISquareSudokuGrid;
+import main.grid.model.StandardSudokuGrid;
+import main.solver.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SolverStatisticsTest {
+  @Test
+  public void countTechniqueEliminations() throws Exception {
+    // The techniques get stuck on this puzzle, so it needs the brute force fallback.
+    ISquareSudokuGrid hardest =
+        new StandardSudokuGrid("8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..");
+
+    ConstraintBasedSolver solver = new ConstraintBasedSolver(hardest);
+    CountingSolverListener counter = new CountingSolverListener();
+    solver.setListener(counter);
+    solver.solve();
+
+    SolverStatistics statistics = solver.getStatistics();
+    for (SolvingTechnique technique : SolvingTechnique.values()) {
+      assertEquals(counter.getTechniqueCount(technique), statistics.getTechniqueCount(technique));
+    }
+    assertTrue(statistics.getEliminationCount(SolvingTechnique.LOCKED_CANDIDATE) >=
+        statistics.getTechniqueCount(SolvingTechnique.LOCKED_CANDIDATE));
+    // The brute force fallback's statistics are included.
+    assertEquals(counter.getBacktrackCount(), statistics.getBacktrackCount());
+    assertTrue(statistics.getNodeCount() > 0);
+    assertTrue(statistics.getElapsedNanos() > 0);
+  }
+
+  @Test
+  public void countSearchNodes() throws Exception {
+    ISquareSudokuGrid hardest =
+        new StandardSudokuGrid("8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..");
+
+    BitmaskBacktrackingSolver solver = new BitmaskBacktrackingSolver(hardest);
+    solver.solve();
+    SolverStatistics first = solver.getStatistics();
+    long nodes = first.getNodeCount();
+    assertTrue(nodes > first.getBacktrackCount());
+    assertTrue(first.getMaxDepth() > 0);
+
+    // Each run starts from zero.
+    solver.solve();
+    assertEquals(nodes, solver.getStatistics().getNodeCount());
+  }
+
+  @Test
+  public void mergeStatistics() throws Exception {
+    SolverStatistics a = new SolverStatistics();
+    a.recordNode(3);
+    a.recordBacktrack();
+    a.recordTechnique(SolvingTechnique.HIDDEN_SET, 4);
+    a.setElapsedNanos(10);
+
+    SolverStatistics b = new SolverStatistics();
+    b.recordNode(1);
+    b.recordNode(5);
+    b.recordTechnique(SolvingTechnique.HIDDEN_SET, 2);
+    b.recordTechnique(SolvingTechnique.NAKED_SINGLE, 8);
+    b.setElapsedNanos(5);
+
+    a.merge(b);
+    assertEquals(3, a.getNodeCount());
+    assertEquals(1, a.getBacktrackCount());
+    assertEquals(5, a.getMaxDepth());
+    assertEquals(15, a.getElapsedNanos());
+    assertEquals(2, a.getTechniqueCount(SolvingTechnique.HIDDEN_SET));
+    assertEquals(6, a.getEliminationCount(SolvingTechnique.HIDDEN_SET));
+    assertEquals(14, a.getEliminationCount());
+
+    a.reset();
+    assertEquals(0, a.getNodeCount());
+    assertEquals(0, a.getEliminationCount());
+  }
+}